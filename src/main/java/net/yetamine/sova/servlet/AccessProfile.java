@@ -0,0 +1,704 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * A profile of the request attribute accesses for each route.
+ *
+ * <p>
+ * When registered as a filter, an instance samples a fraction of the HTTP
+ * requests and wraps them, so that it records which attributes were read,
+ * written, or missed while the request passed the rest of the chain. A miss of
+ * a request attribute of a registered {@link ServletSymbol} is recorded as a
+ * fallback to the context as well.
+ *
+ * <p>
+ * The route of a request is the servlet mapping pattern that the request
+ * matched, so that a servlet mapped to {@code "/"}, like the default servlet
+ * or a front controller, makes a single route rather than a route for each
+ * path. The pattern comes from the {@code HttpServletMapping} of the request
+ * when the container supports Servlet 4. Otherwise the route is derived from
+ * the servlet path: a request with a path info matched a prefix pattern, and
+ * the servlet mappings of the context tell an exact or extension pattern from
+ * the default one. If the context does not provide the servlet mappings, the
+ * route of such requests falls back to their servlet path.
+ *
+ * <p>
+ * Note that profiling changes what the rest of the chain sees: a sampled
+ * request is passed as a wrapper, so its identity and class differ from the
+ * requests that were not sampled. The wrapper forwards all calls to the wrapped
+ * request, hence the wrappers below it, like {@link WriteBehindRequest} or
+ * {@link AttributeTableRequest}, keep working; code looking for such a wrapper
+ * should unwrap the request, e.g., with {@link AttributeTableRequest#find},
+ * rather than testing the request with {@code instanceof}. The accesses made
+ * through the found wrapper directly bypass the recording.
+ *
+ * <p>
+ * A sampled request records the accesses locally and merges them in the shared
+ * profile at the end, which relies on concurrent maps and adders only, so that
+ * the requests do not contend. The numbers of the routes and of the attributes
+ * per route are limited to bound the memory; the excess is counted as dropped.
+ * Accesses after the filter chain returns, e.g., during asynchronous
+ * processing, are not recorded.
+ *
+ * <p>
+ * The profile is available with {@link #report()}, which may drive prefetching
+ * the attributes, see {@link ContextHoistingFilter}, or removing the unused
+ * ones.
+ */
+public final class AccessProfile implements Filter {
+
+    /** Name of the attribute holding the installed instance. */
+    private static final String ATTRIBUTE = ServletAttributeSymbol.name(AccessProfile.class, "instance");
+
+    /** {@code HttpServletRequest.getHttpServletMapping()}, or {@code null}. */
+    private static final Method MAPPING;
+    /** {@code HttpServletMapping.getPattern()}, or {@code null}. */
+    private static final Method PATTERN;
+    static {
+        Method mapping;
+        Method pattern;
+        try {
+            mapping = HttpServletRequest.class.getMethod("getHttpServletMapping");
+            pattern = mapping.getReturnType().getMethod("getPattern");
+        } catch (NoSuchMethodException e) { // Servlet 3.x
+            mapping = null;
+            pattern = null;
+        }
+
+        MAPPING = mapping;
+        PATTERN = pattern;
+    }
+
+    /** Request attributes of the symbols falling back to the context. */
+    private final Set<String> fallbacks;
+    /** Probability of sampling a request. */
+    private final double samplingRate;
+    /** Maximal number of routes and attributes per route. */
+    private final int limit;
+    /** Profiles of the routes. */
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    /** Number of dropped records. */
+    private final LongAdder dropped = new LongAdder();
+    /** Servlet mappings of the context, or {@code null} if not known yet. */
+    private volatile Mappings mappings;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param fallbackSymbols
+     *            the symbols whose request misses fall back to the context. It
+     *            must not be {@code null}.
+     * @param requestSamplingRate
+     *            the probability of sampling a request, which must be in the
+     *            range from zero to one
+     * @param maxEntries
+     *            the maximal number of routes and of attributes per route,
+     *            which must be positive
+     */
+    public AccessProfile(Collection<? extends ServletSymbol<?>> fallbackSymbols, double requestSamplingRate, int maxEntries) {
+        if (!((0.0 <= requestSamplingRate) && (requestSamplingRate <= 1.0))) {
+            throw new IllegalArgumentException("Invalid sampling rate: " + requestSamplingRate);
+        }
+
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid limit: " + maxEntries);
+        }
+
+        fallbacks = fallbackSymbols.stream().map(symbol -> symbol.forRequest().attribute()).collect(Collectors.toSet());
+        samplingRate = requestSamplingRate;
+        limit = maxEntries;
+    }
+
+    /**
+     * Returns the instance installed in the given context.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     *
+     * @return the instance installed in the given context
+     */
+    public static Optional<AccessProfile> find(ServletContext context) {
+        final Object result = context.getAttribute(ATTRIBUTE);
+        return (result instanceof AccessProfile) ? Optional.of((AccessProfile) result) : Optional.empty();
+    }
+
+    /**
+     * Installs this instance in the given context, so that the diagnostics can
+     * find it.
+     *
+     * @param context
+     *            the context to install in. It must not be {@code null}.
+     */
+    public void install(ServletContext context) {
+        context.setAttribute(ATTRIBUTE, this);
+    }
+
+    /**
+     * Returns the number of records dropped due to the limit.
+     *
+     * @return the number of records dropped due to the limit
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the profile of all recorded accesses.
+     *
+     * @return the profile of all recorded accesses
+     */
+    public List<Access> report() {
+        final List<Access> result = new ArrayList<>();
+        routes.forEach((route, profile) -> {
+            final long requests = profile.requests.sum();
+            profile.attributes.forEach((attribute, counters) -> result.add(counters.access(route, attribute, requests)));
+        });
+
+        return result;
+    }
+
+    /**
+     * Discards all records.
+     */
+    public void clear() {
+        routes.clear();
+        dropped.reset();
+    }
+
+    /**
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+        mappings = Mappings.of(filterConfig.getServletContext());
+    }
+
+    /**
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || (ThreadLocalRandom.current().nextDouble() >= samplingRate)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final HttpServletRequest http = (HttpServletRequest) request;
+        final String route = route(http);
+        final Recording recording = new Recording();
+        try {
+            chain.doFilter(new RecordingRequest(http, recording), response);
+        } finally {
+            merge(route, recording.close());
+        }
+    }
+
+    /**
+     * @see javax.servlet.Filter#destroy()
+     */
+    public void destroy() {
+        // Nothing to release
+    }
+
+    /**
+     * Returns the route of a request.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     *
+     * @return the route of the request
+     */
+    private String route(HttpServletRequest request) {
+        if (MAPPING != null) {
+            try {
+                final Object mapping = MAPPING.invoke(request);
+                if (mapping != null) {
+                    return (String) PATTERN.invoke(mapping);
+                }
+            } catch (ReflectiveOperationException e) {
+                // Fall back to the servlet path
+            }
+        }
+
+        final String path = request.getServletPath();
+        if ((path == null) || path.isEmpty()) {
+            return "/";
+        }
+
+        if (request.getPathInfo() != null) {
+            return path + "/*";
+        }
+
+        Mappings current = mappings;
+        if (current == null) {
+            current = Mappings.of(request.getServletContext());
+            mappings = current;
+        }
+
+        return current.pattern(path);
+    }
+
+    /**
+     * Merges the records of a request.
+     *
+     * @param route
+     *            the route of the request. It must not be {@code null}.
+     * @param records
+     *            the records. It must not be {@code null}.
+     */
+    private void merge(String route, Map<String, int[]> records) {
+        final Route profile = entry(routes, route, Route::new);
+        if (profile == null) {
+            return;
+        }
+
+        profile.requests.increment();
+        records.forEach((attribute, counts) -> {
+            final Counters counters = entry(profile.attributes, attribute, Counters::new);
+            if (counters != null) {
+                counters.add(counts, fallbacks.contains(attribute));
+            }
+        });
+    }
+
+    /**
+     * Returns an entry of a map, creating it if the limit permits.
+     *
+     * @param <V>
+     *            the type of the entry
+     * @param map
+     *            the map. It must not be {@code null}.
+     * @param key
+     *            the key. It must not be {@code null}.
+     * @param factory
+     *            the factory of the entries. It must not be {@code null}.
+     *
+     * @return the entry, or {@code null} if dropped
+     */
+    private <V> V entry(ConcurrentMap<String, V> map, String key, Supplier<V> factory) {
+        final V current = map.get(key);
+        if (current != null) {
+            return current;
+        }
+
+        if (map.size() >= limit) {
+            dropped.increment();
+            return null;
+        }
+
+        final V created = factory.get();
+        final V previous = map.putIfAbsent(key, created);
+        return (previous != null) ? previous : created;
+    }
+
+    /**
+     * A profile of an attribute on a route.
+     */
+    public static final class Access {
+
+        /** Route of the requests. */
+        private final String route;
+        /** Name of the attribute. */
+        private final String attribute;
+        /** Number of sampled requests of the route. */
+        private final long requests;
+        /** Number of reads. */
+        private final long reads;
+        /** Number of writes. */
+        private final long writes;
+        /** Number of misses. */
+        private final long misses;
+        /** Number of fallbacks to the context. */
+        private final long fallbacks;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param requestRoute
+         *            the route of the requests. It must not be {@code null}.
+         * @param attributeName
+         *            the name of the attribute. It must not be {@code null}.
+         * @param requestCount
+         *            the number of sampled requests of the route
+         * @param readCount
+         *            the number of reads
+         * @param writeCount
+         *            the number of writes
+         * @param missCount
+         *            the number of misses
+         * @param fallbackCount
+         *            the number of fallbacks to the context
+         */
+        Access(String requestRoute, String attributeName, long requestCount, long readCount, long writeCount, long missCount, long fallbackCount) {
+            route = requestRoute;
+            attribute = attributeName;
+            requests = requestCount;
+            reads = readCount;
+            writes = writeCount;
+            misses = missCount;
+            fallbacks = fallbackCount;
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("%s\t%s\t%d\t%d\t%d\t%d\t%d", route, attribute, requests, reads, writes, misses, fallbacks);
+        }
+
+        /**
+         * Returns the route of the requests.
+         *
+         * @return the route of the requests
+         */
+        public String route() {
+            return route;
+        }
+
+        /**
+         * Returns the name of the attribute.
+         *
+         * @return the name of the attribute
+         */
+        public String attribute() {
+            return attribute;
+        }
+
+        /**
+         * Returns the number of sampled requests of the route.
+         *
+         * @return the number of sampled requests of the route
+         */
+        public long requests() {
+            return requests;
+        }
+
+        /**
+         * Returns the number of reads that found a value.
+         *
+         * @return the number of reads that found a value
+         */
+        public long reads() {
+            return reads;
+        }
+
+        /**
+         * Returns the number of writes, including removals.
+         *
+         * @return the number of writes
+         */
+        public long writes() {
+            return writes;
+        }
+
+        /**
+         * Returns the number of reads that found no value.
+         *
+         * @return the number of reads that found no value
+         */
+        public long misses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of misses that fell back to the context.
+         *
+         * @return the number of misses that fell back to the context
+         */
+        public long fallbacks() {
+            return fallbacks;
+        }
+    }
+
+    /**
+     * Profile of a route.
+     */
+    private static final class Route {
+
+        /** Number of sampled requests. */
+        final LongAdder requests = new LongAdder();
+        /** Counters of the attributes. */
+        final ConcurrentMap<String, Counters> attributes = new ConcurrentHashMap<>();
+
+        /**
+         * Creates a new instance.
+         */
+        Route() {
+            // Default constructor
+        }
+    }
+
+    /**
+     * Counters of an attribute on a route.
+     */
+    private static final class Counters {
+
+        /** Number of reads. */
+        private final LongAdder reads = new LongAdder();
+        /** Number of writes. */
+        private final LongAdder writes = new LongAdder();
+        /** Number of misses. */
+        private final LongAdder misses = new LongAdder();
+        /** Number of fallbacks. */
+        private final LongAdder fallbacks = new LongAdder();
+
+        /**
+         * Creates a new instance.
+         */
+        Counters() {
+            // Default constructor
+        }
+
+        /**
+         * Adds the records of a request.
+         *
+         * @param counts
+         *            the counts of reads, writes and misses. It must not be
+         *            {@code null}.
+         * @param fallback
+         *            {@code true} if the misses fell back to the context
+         */
+        public void add(int[] counts, boolean fallback) {
+            reads.add(counts[Recording.READ]);
+            writes.add(counts[Recording.WRITE]);
+            misses.add(counts[Recording.MISS]);
+            if (fallback) {
+                fallbacks.add(counts[Recording.MISS]);
+            }
+        }
+
+        /**
+         * Makes the access profile.
+         *
+         * @param route
+         *            the route. It must not be {@code null}.
+         * @param attribute
+         *            the name of the attribute. It must not be {@code null}.
+         * @param requests
+         *            the number of requests of the route
+         *
+         * @return the access profile
+         */
+        public Access access(String route, String attribute, long requests) {
+            return new Access(route, attribute, requests, reads.sum(), writes.sum(), misses.sum(), fallbacks.sum());
+        }
+    }
+
+    /**
+     * Records of a single request.
+     */
+    private static final class Recording {
+
+        /** Index of the reads. */
+        static final int READ = 0;
+        /** Index of the writes. */
+        static final int WRITE = 1;
+        /** Index of the misses. */
+        static final int MISS = 2;
+
+        /** Counts for the attributes, {@code null} when closed. */
+        private Map<String, int[]> counts = new HashMap<>();
+
+        /**
+         * Creates a new instance.
+         */
+        Recording() {
+            // Default constructor
+        }
+
+        /**
+         * Records an access.
+         *
+         * @param attribute
+         *            the name of the attribute
+         * @param kind
+         *            the kind of the access
+         */
+        public synchronized void record(String attribute, int kind) {
+            if ((counts != null) && (attribute != null)) {
+                counts.computeIfAbsent(attribute, name -> new int[3])[kind]++;
+            }
+        }
+
+        /**
+         * Stops the recording.
+         *
+         * @return the records
+         */
+        public synchronized Map<String, int[]> close() {
+            final Map<String, int[]> result = counts;
+            counts = null;
+            return result;
+        }
+    }
+
+    /**
+     * A request wrapper recording the attribute accesses.
+     */
+    private static final class RecordingRequest extends HttpServletRequestWrapper {
+
+        /** Recording to use. */
+        private final Recording recording;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param request
+         *            the request to wrap. It must not be {@code null}.
+         * @param target
+         *            the recording to use. It must not be {@code null}.
+         */
+        RecordingRequest(HttpServletRequest request, Recording target) {
+            super(request);
+            recording = target;
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+         */
+        @Override
+        public Object getAttribute(String name) {
+            final Object result = super.getAttribute(name);
+            recording.record(name, (result != null) ? Recording.READ : Recording.MISS);
+            return result;
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#setAttribute(java.lang.String,
+         *      java.lang.Object)
+         */
+        @Override
+        public void setAttribute(String name, Object o) {
+            recording.record(name, Recording.WRITE);
+            super.setAttribute(name, o);
+        }
+
+        /**
+         * @see javax.servlet.ServletRequestWrapper#removeAttribute(java.lang.String)
+         */
+        @Override
+        public void removeAttribute(String name) {
+            recording.record(name, Recording.WRITE);
+            super.removeAttribute(name);
+        }
+    }
+
+    /**
+     * Exact and extension patterns of the servlet mappings of a context.
+     */
+    private static final class Mappings {
+
+        /** Exact patterns. */
+        private final Set<String> exact = new HashSet<>();
+        /** Extension patterns. */
+        private final Set<String> extensions = new HashSet<>();
+        /** Indicates that the mappings are known. */
+        private final boolean available;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param context
+         *            the context. It must not be {@code null}.
+         */
+        private Mappings(ServletContext context) {
+            boolean known = true;
+            try {
+                for (ServletRegistration registration : context.getServletRegistrations().values()) {
+                    for (String pattern : registration.getMappings()) {
+                        if (pattern.startsWith("*.")) {
+                            extensions.add(pattern);
+                        } else if (!pattern.endsWith("/*")) {
+                            exact.add(pattern);
+                        }
+                    }
+                }
+            } catch (UnsupportedOperationException e) { // E.g., a restricted context
+                known = false;
+            }
+
+            available = known;
+        }
+
+        /**
+         * Returns the mappings of the given context.
+         *
+         * @param context
+         *            the context. It must not be {@code null}.
+         *
+         * @return the mappings of the context
+         */
+        public static Mappings of(ServletContext context) {
+            return new Mappings(context);
+        }
+
+        /**
+         * Returns the pattern matching the servlet path of a request without
+         * a path info.
+         *
+         * @param path
+         *            the servlet path. It must not be {@code null}.
+         *
+         * @return the pattern, or the servlet path if the mappings are not
+         *         known
+         */
+        public String pattern(String path) {
+            if (!available || exact.contains(path)) {
+                return path;
+            }
+
+            final int dot = path.lastIndexOf('.');
+            if ((dot >= 0) && (path.indexOf('/', dot) < 0)) {
+                final String extension = "*" + path.substring(dot);
+                if (extensions.contains(extension)) {
+                    return extension;
+                }
+            }
+
+            return "/";
+        }
+    }
+}
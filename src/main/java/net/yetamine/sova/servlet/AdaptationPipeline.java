@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import net.yetamine.sova.AdaptationProvider;
+import net.yetamine.sova.Downcasting;
+
+/**
+ * A chain of adaptation steps composed into a single function.
+ *
+ * <p>
+ * Chained adaptations, like downcasting, then converting and validating the
+ * result, usually pass a value through several levels of generic adaptations,
+ * each dispatching to the next one through shared code. This class composes
+ * the steps into a nested function when building the pipeline instead, so
+ * that each step of each pipeline is a function object of its own, which
+ * invokes the functions and conditions of the step and of its predecessor
+ * directly, and {@link #apply(Object)} is a single call. A step that fails
+ * yields {@code null}, which ends the chain.
+ *
+ * <p>
+ * A symbol that opts in applies the pipeline to the raw values in place of
+ * the adaptation. Since every step downcasts its result, the results of the
+ * pipeline need no further adaptation, and the adaptation of the symbol, see
+ * {@link #adaptation()}, serves for the fallback and for the results reporting
+ * the outcome of the pipeline as their arguments.
+ *
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class AdaptationPipeline<T> {
+
+    /** Type of the resulting values. */
+    private final Class<T> type;
+    /** Fallback value. */
+    private final T fallback;
+    /** Composition of the steps. */
+    private final Function<Object, ? extends T> function;
+    /** Number of the steps. */
+    private final int length;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param resultType
+     *            the type of the resulting values. It must not be {@code null}.
+     * @param fallbackValue
+     *            the fallback value
+     * @param composition
+     *            the composition of the steps. It must not be {@code null}.
+     * @param steps
+     *            the number of the steps
+     */
+    private AdaptationPipeline(Class<T> resultType, T fallbackValue, Function<Object, ? extends T> composition, int steps) {
+        type = Objects.requireNonNull(resultType);
+        function = Objects.requireNonNull(composition);
+        fallback = fallbackValue;
+        length = steps;
+    }
+
+    /**
+     * Starts a pipeline with downcasting to the given type.
+     *
+     * @param <T>
+     *            the type of resulting values
+     * @param type
+     *            the type to downcast to. It must not be {@code null}.
+     *
+     * @return the new pipeline
+     */
+    public static <T> AdaptationPipeline<T> of(Class<T> type) {
+        Objects.requireNonNull(type);
+        return new AdaptationPipeline<>(type, null, value -> type.isInstance(value) ? type.cast(value) : null, 1);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("AdaptationPipeline[type=%s, fallback=%s, steps=%d]", type.getTypeName(), fallback, length);
+    }
+
+    /**
+     * Returns the type of the resulting values.
+     *
+     * @return the type of the resulting values
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Returns the adaptation for the results of this pipeline, which is the
+     * downcasting to {@link #type()} with the fallback value if set.
+     *
+     * @return the adaptation for the results of this pipeline
+     */
+    public AdaptationProvider<T> adaptation() {
+        return (fallback != null) ? Downcasting.withFallbackTo(type, fallback) : Downcasting.to(type);
+    }
+
+    /**
+     * Appends a conversion step with downcasting the result.
+     *
+     * @param <R>
+     *            the type of resulting values
+     * @param resultType
+     *            the type of resulting values. It must not be {@code null}.
+     * @param conversion
+     *            the conversion to apply. It must not be {@code null}; it may
+     *            return {@code null} if the conversion is not possible.
+     *
+     * @return the new pipeline
+     */
+    public <R> AdaptationPipeline<R> map(Class<R> resultType, Function<? super T, ?> conversion) {
+        Objects.requireNonNull(resultType);
+        Objects.requireNonNull(conversion);
+
+        final Function<Object, ? extends T> before = function;
+        return new AdaptationPipeline<>(resultType, null, value -> {
+            final T input = before.apply(value);
+            if (input == null) {
+                return null;
+            }
+
+            final Object result = conversion.apply(input);
+            return resultType.isInstance(result) ? resultType.cast(result) : null;
+        }, length + 1);
+    }
+
+    /**
+     * Appends a validation step.
+     *
+     * @param condition
+     *            the condition which the valid values must satisfy. It must not
+     *            be {@code null}.
+     *
+     * @return the new pipeline
+     */
+    public AdaptationPipeline<T> filter(Predicate<? super T> condition) {
+        Objects.requireNonNull(condition);
+
+        final Function<Object, ? extends T> before = function;
+        return new AdaptationPipeline<>(type, fallback, value -> {
+            final T result = before.apply(value);
+            return ((result != null) && condition.test(result)) ? result : null;
+        }, length + 1);
+    }
+
+    /**
+     * Sets the fallback value for the adaptation.
+     *
+     * @param value
+     *            the fallback value
+     *
+     * @return the new pipeline
+     */
+    public AdaptationPipeline<T> withFallback(T value) {
+        return new AdaptationPipeline<>(type, value, function, length);
+    }
+
+    /**
+     * Applies the pipeline.
+     *
+     * @param argument
+     *            the argument to adapt
+     *
+     * @return the result, or {@code null} if some step failed
+     */
+    public T apply(Object argument) {
+        return function.apply(argument);
+    }
+}
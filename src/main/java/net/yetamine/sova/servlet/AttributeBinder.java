@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import net.yetamine.sova.Downcasting;
+
+/**
+ * Fills instances of a type with attribute values of a request in one pass.
+ *
+ * <p>
+ * A binder is created once per type, see {@link #of(Class)}, from the public
+ * setters annotated with {@link BoundAttribute}. The type must be a public
+ * concrete class with a public constructor without parameters. The symbols for
+ * reading the attributes are prepared in advance and the binder composes the
+ * readers and the setters of all attributes into a single method handle, so
+ * that binding an instance involves no reflection at all. Because the binder
+ * invokes the same handle on every binding, the runtime specializes the handle
+ * for it, so that the calls of the individual readers and setters are direct
+ * rather than going through a shared, hence megamorphic, call site. The method
+ * handles need no access to the bound type from the class loader of this class,
+ * therefore the binder works even when the library is shared by several web
+ * applications.
+ *
+ * <p>
+ * The constructor is linked through {@link LambdaMetafactory} when the bound
+ * type is visible from the class loader of this class, otherwise the binder
+ * invokes the method handle of the constructor directly.
+ *
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ *
+ * @param <T>
+ *            the type of bound instances
+ */
+public final class AttributeBinder<T> {
+
+    /** Binders for the types. */
+    private static final ClassValue<AttributeBinder<?>> BINDERS = new ClassValue<AttributeBinder<?>>() {
+        @Override
+        protected AttributeBinder<?> computeValue(Class<?> type) {
+            return new AttributeBinder<>(type);
+        }
+    };
+
+    /** Lookup for linking the accessors. */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /** Type of the composed binder: {@code (ServletRequest, Object) void}. */
+    private static final MethodType BINDER = MethodType.methodType(void.class, ServletRequest.class, Object.class);
+    /** Type of the setters: {@code (Object, Object) void}. */
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    /** Type of the readers: {@code (ServletRequest) Object}. */
+    private static final MethodType READER = MethodType.methodType(Object.class, ServletRequest.class);
+    /** Handle of {@link #skip()}. */
+    private static final MethodHandle SKIP;
+    /** Handle of {@link Objects#nonNull(Object)}. */
+    private static final MethodHandle NON_NULL;
+    /** Handle of {@link ServletRequest#getServletContext()}. */
+    private static final MethodHandle CONTEXT_OF;
+    /** Handle of {@link ServletRequestSymbol#get(ServletRequest)}. */
+    private static final MethodHandle READ_REQUEST;
+    /** Handle of {@link ServletContextSymbol#get(ServletContext)}. */
+    private static final MethodHandle READ_CONTEXT;
+    /** Handle of {@link ServletSymbol#get(ServletRequest)}. */
+    private static final MethodHandle READ_ANY;
+    static {
+        try {
+            SKIP = LOOKUP.findStatic(AttributeBinder.class, "skip", MethodType.methodType(void.class));
+            NON_NULL = LOOKUP.findStatic(Objects.class, "nonNull", MethodType.methodType(boolean.class, Object.class));
+            CONTEXT_OF = LOOKUP.findVirtual(ServletRequest.class, "getServletContext", MethodType.methodType(ServletContext.class));
+            READ_REQUEST = LOOKUP.findVirtual(ServletRequestSymbol.class, "get", READER);
+            READ_CONTEXT = LOOKUP.findVirtual(ServletContextSymbol.class, "get", MethodType.methodType(Object.class, ServletContext.class));
+            READ_ANY = LOOKUP.findVirtual(ServletSymbol.class, "get", READER);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Bound type. */
+    private final Class<T> type;
+    /** Factory of the instances. */
+    private final Supplier<T> factory;
+    /** Names of the bound attributes. */
+    private final List<String> attributes;
+    /** Composed binder of all attributes. */
+    private final MethodHandle binder;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param boundType
+     *            the bound type. It must not be {@code null}.
+     */
+    private AttributeBinder(Class<T> boundType) {
+        final int modifiers = boundType.getModifiers();
+        if (!Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers) || boundType.isInterface()) {
+            throw new IllegalArgumentException("Bound type must be a public concrete class: " + boundType.getName());
+        }
+
+        final List<String> names = new ArrayList<>();
+        final List<MethodHandle> bindings = new ArrayList<>();
+        for (Method method : boundType.getMethods()) {
+            final BoundAttribute annotation = method.getAnnotation(BoundAttribute.class);
+            if (annotation != null) {
+                bindings.add(binding(method, annotation));
+                names.add(annotation.value());
+            }
+        }
+
+        MethodHandle composition = MethodHandles.dropArguments(SKIP, 0, ServletRequest.class, Object.class);
+        for (int i = bindings.size(); i-- > 0;) { // Each binding runs before the ones composed so far
+            composition = MethodHandles.foldArguments(composition, bindings.get(i));
+        }
+
+        attributes = Collections.unmodifiableList(names);
+        binder = composition;
+        factory = factory(boundType);
+        type = boundType;
+    }
+
+    /**
+     * Returns the binder for the given type.
+     *
+     * @param <T>
+     *            the type of bound instances
+     * @param type
+     *            the type to bind. It must not be {@code null}.
+     *
+     * @return the binder for the given type
+     *
+     * @throws IllegalArgumentException
+     *             if the type can't be bound
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> AttributeBinder<T> of(Class<T> type) {
+        return (AttributeBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("AttributeBinder[type=%s, attributes=%s]", type.getName(), attributes());
+    }
+
+    /**
+     * Returns the bound type.
+     *
+     * @return the bound type
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Returns the names of the bound attributes.
+     *
+     * @return the names of the bound attributes
+     */
+    public List<String> attributes() {
+        return attributes;
+    }
+
+    /**
+     * Creates a new instance of the bound type and fills it with the attribute
+     * values of the given request.
+     *
+     * @param source
+     *            the request to read. It must not be {@code null}.
+     *
+     * @return the new instance
+     */
+    public T bind(ServletRequest source) {
+        return fill(source, factory.get());
+    }
+
+    /**
+     * Fills the given instance with the attribute values of the given request.
+     *
+     * @param source
+     *            the request to read. It must not be {@code null}.
+     * @param target
+     *            the instance to fill. It must not be {@code null}.
+     *
+     * @return the filled instance
+     */
+    public T fill(ServletRequest source, T target) {
+        Objects.requireNonNull(target);
+
+        try {
+            binder.invokeExact(source, (Object) target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+
+        return target;
+    }
+
+    /**
+     * Makes the binding for an annotated setter, which reads the attribute
+     * value and passes it to the setter unless it is {@code null}.
+     *
+     * @param method
+     *            the setter. It must not be {@code null}.
+     * @param annotation
+     *            the annotation of the setter. It must not be {@code null}.
+     *
+     * @return the binding of the type {@code (ServletRequest, Object) void}
+     */
+    private static MethodHandle binding(Method method, BoundAttribute annotation) {
+        if (method.getParameterCount() != 1 || Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("Bound attribute requires a setter with a single parameter: " + method);
+        }
+
+        final Class<?> parameter = MethodType.methodType(method.getParameterTypes()[0]).wrap().returnType();
+        // (Object target, Object value) void, skipping null values
+        final MethodHandle skip = MethodHandles.dropArguments(SKIP, 0, Object.class, Object.class);
+        final MethodHandle present = MethodHandles.dropArguments(NON_NULL, 0, Object.class);
+        final MethodHandle setter = MethodHandles.guardWithTest(present, setter(method), skip);
+        // (Object target, ServletRequest source) void
+        final MethodHandle bound = MethodHandles.collectArguments(setter, 1, reader(annotation.value(), parameter, annotation.scope()));
+        return MethodHandles.permuteArguments(bound, BINDER, 1, 0);
+    }
+
+    /**
+     * Makes the reader of an attribute.
+     *
+     * @param <V>
+     *            the type of the value
+     * @param attribute
+     *            the name of the attribute. It must not be {@code null}.
+     * @param type
+     *            the type of the value. It must not be {@code null}.
+     * @param scope
+     *            the scope of the attribute. It must not be {@code null}.
+     *
+     * @return the reader of the type {@code (ServletRequest) Object}
+     */
+    private static <V> MethodHandle reader(String attribute, Class<V> type, BoundAttribute.Scope scope) {
+        switch (scope) {
+            case REQUEST:
+                return READ_REQUEST.bindTo(new ServletRequestSymbol<>(attribute, type));
+
+            case CONTEXT:
+                final MethodHandle read = READ_CONTEXT.bindTo(new ServletContextSymbol<>(attribute, type));
+                return MethodHandles.filterArguments(read, 0, CONTEXT_OF);
+
+            case ANY:
+                return READ_ANY.bindTo(new ServletSymbol<>(attribute, Downcasting.to(type)));
+
+            default:
+                throw new AssertionError(scope);
+        }
+    }
+
+    /**
+     * Links a setter.
+     *
+     * @param method
+     *            the setter. It must not be {@code null}.
+     *
+     * @return the setter of the type {@code (Object, Object) void}
+     */
+    private static MethodHandle setter(Method method) {
+        try {
+            return LOOKUP.unreflect(method).asType(SETTER);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not link the setter: " + method, e);
+        }
+    }
+
+    /**
+     * Links the constructor.
+     *
+     * @param <T>
+     *            the type of bound instances
+     * @param type
+     *            the bound type. It must not be {@code null}.
+     *
+     * @return the factory
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> factory(Class<T> type) {
+        try {
+            final MethodHandle handle = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+
+            if (visible(type)) {
+                final MethodType signature = MethodType.methodType(Object.class);
+                final MethodType instantiated = MethodType.methodType(type);
+                final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class), signature, handle, instantiated);
+                return (Supplier<T>) site.getTarget().invokeExact();
+            }
+
+            final MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return type.cast(generic.invokeExact());
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            };
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Bound type requires a public constructor without parameters: " + type.getName(), e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Could not link the constructor: " + type.getName(), t);
+        }
+    }
+
+    /**
+     * Tests if the given type is visible from the class loader of this class,
+     * hence the generated accessors can refer to it.
+     *
+     * @param type
+     *            the type to test. It must not be {@code null}.
+     *
+     * @return {@code true} if the type is visible
+     */
+    private static boolean visible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, AttributeBinder.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Does nothing; serves for composing the binder.
+     */
+    private static void skip() {
+        // Nothing to do
+    }
+}
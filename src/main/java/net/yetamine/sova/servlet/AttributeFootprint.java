@@ -0,0 +1,402 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * An accounting of the heap footprint of context and session attributes.
+ *
+ * <p>
+ * An instance estimates the retained size of the values of registered symbols
+ * with a pluggable {@link FootprintEstimator} and keeps the statistics for each
+ * symbol. The accounting is incremental: {@link #update(ServletContext, int)}
+ * estimates a limited number of context attributes in a round-robin fashion,
+ * and session attributes are sampled from the sessions of a fraction of the
+ * requests, so that the accounting may run periodically in production.
+ *
+ * <p>
+ * When registered as a request listener, the instance performs the sampling
+ * at the end of the requests and accounts one context attribute with each
+ * sample. The statistics are available with {@link #report()} and via the
+ * {@link AttributeFootprintServlet} if the instance is installed in the
+ * context.
+ *
+ * <p>
+ * The estimates run on the request threads and walk application values, which
+ * other threads may modify meanwhile, so that the estimator may fail, e.g., with
+ * a {@link java.util.ConcurrentModificationException}. A failing estimate just
+ * skips the sample and increments the {@link #failures()} counter, so that the
+ * accounting never breaks the request processing.
+ */
+public final class AttributeFootprint implements ServletRequestListener {
+
+    /** Name of the attribute holding the installed instance. */
+    private static final String ATTRIBUTE = ServletAttributeSymbol.name(AttributeFootprint.class, "instance");
+
+    /** Estimator of the values. */
+    private final FootprintEstimator estimator;
+    /** Names of the context attributes. */
+    private final String[] contextAttributes;
+    /** Names of the session attributes. */
+    private final String[] sessionAttributes;
+    /** Probability of sampling a request. */
+    private final double samplingRate;
+    /** Position of the next context attribute to account. */
+    private final AtomicInteger cursor = new AtomicInteger();
+    /** Statistics of the context attributes. */
+    private final ConcurrentMap<String, Statistics> contextStatistics = new ConcurrentHashMap<>();
+    /** Statistics of the session attributes. */
+    private final ConcurrentMap<String, Statistics> sessionStatistics = new ConcurrentHashMap<>();
+    /** Number of the failed estimates. */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param valueEstimator
+     *            the estimator of the values. It must not be {@code null}.
+     * @param contextSymbols
+     *            the symbols of the context attributes to account. It must not
+     *            be {@code null}.
+     * @param sessionSymbols
+     *            the symbols of the session attributes to account. It must not
+     *            be {@code null}.
+     * @param requestSamplingRate
+     *            the probability of sampling a request, which must be in the
+     *            range from zero to one
+     */
+    public AttributeFootprint(FootprintEstimator valueEstimator, Collection<? extends ServletAttributeSymbol<?>> contextSymbols, Collection<? extends ServletAttributeSymbol<?>> sessionSymbols, double requestSamplingRate) {
+        if (!((0.0 <= requestSamplingRate) && (requestSamplingRate <= 1.0))) {
+            throw new IllegalArgumentException("Invalid sampling rate: " + requestSamplingRate);
+        }
+
+        estimator = Objects.requireNonNull(valueEstimator);
+        contextAttributes = contextSymbols.stream().map(ServletAttributeSymbol::attribute).distinct().toArray(String[]::new);
+        sessionAttributes = sessionSymbols.stream().map(ServletAttributeSymbol::attribute).distinct().toArray(String[]::new);
+        samplingRate = requestSamplingRate;
+    }
+
+    /**
+     * Returns the instance installed in the given context.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     *
+     * @return the instance installed in the given context
+     */
+    public static Optional<AttributeFootprint> find(ServletContext context) {
+        final Object result = context.getAttribute(ATTRIBUTE);
+        return (result instanceof AttributeFootprint) ? Optional.of((AttributeFootprint) result) : Optional.empty();
+    }
+
+    /**
+     * Installs this instance in the given context, so that the diagnostics can
+     * find it.
+     *
+     * @param context
+     *            the context to install in. It must not be {@code null}.
+     */
+    public void install(ServletContext context) {
+        context.setAttribute(ATTRIBUTE, this);
+    }
+
+    /**
+     * Accounts the next context attributes.
+     *
+     * @param context
+     *            the context to account. It must not be {@code null}.
+     * @param budget
+     *            the maximal number of attributes to account
+     *
+     * @return the number of accounted attributes
+     */
+    public int update(ServletContext context, int budget) {
+        final int count = Math.min(budget, contextAttributes.length);
+
+        for (int i = 0; i < count; i++) {
+            final int position = Math.floorMod(cursor.getAndIncrement(), contextAttributes.length);
+            final String attribute = contextAttributes[position];
+            account(contextStatistics, attribute, context.getAttribute(attribute));
+        }
+
+        return count;
+    }
+
+    /**
+     * Accounts the attributes of the given session.
+     *
+     * @param session
+     *            the session to account. It must not be {@code null}.
+     */
+    public void sample(HttpSession session) {
+        for (String attribute : sessionAttributes) {
+            try {
+                account(sessionStatistics, attribute, session.getAttribute(attribute));
+            } catch (IllegalStateException e) { // Invalidated meanwhile
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of all accounted attributes.
+     *
+     * @return the statistics of all accounted attributes
+     */
+    public List<Footprint> report() {
+        final List<Footprint> result = new ArrayList<>(contextStatistics.size() + sessionStatistics.size());
+        contextStatistics.forEach((attribute, statistics) -> result.add(statistics.footprint("context", attribute)));
+        sessionStatistics.forEach((attribute, statistics) -> result.add(statistics.footprint("session", attribute)));
+        return result;
+    }
+
+    /**
+     * Returns the number of the estimates that failed.
+     *
+     * @return the number of the estimates that failed
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestListener#requestInitialized(javax.servlet.ServletRequestEvent)
+     */
+    public void requestInitialized(ServletRequestEvent sre) {
+        // Nothing to do, the sampling happens at the end
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestListener#requestDestroyed(javax.servlet.ServletRequestEvent)
+     */
+    public void requestDestroyed(ServletRequestEvent sre) {
+        if (ThreadLocalRandom.current().nextDouble() >= samplingRate) {
+            return;
+        }
+
+        update(sre.getServletContext(), 1);
+        final ServletRequest request = sre.getServletRequest();
+        if (request instanceof HttpServletRequest) {
+            final HttpSession session = ((HttpServletRequest) request).getSession(false);
+            if (session != null) {
+                sample(session);
+            }
+        }
+    }
+
+    /**
+     * Accounts a value.
+     *
+     * @param statistics
+     *            the statistics to update. It must not be {@code null}.
+     * @param attribute
+     *            the name of the attribute. It must not be {@code null}.
+     * @param value
+     *            the value to account
+     */
+    private void account(ConcurrentMap<String, Statistics> statistics, String attribute, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        final long estimate;
+        try {
+            estimate = estimator.estimate(value);
+        } catch (RuntimeException e) { // E.g., a collection modified concurrently
+            failures.increment();
+            return;
+        }
+
+        statistics.computeIfAbsent(attribute, name -> new Statistics()).add(estimate);
+    }
+
+    /**
+     * A footprint of an attribute.
+     */
+    public static final class Footprint {
+
+        /** Scope of the attribute. */
+        private final String scope;
+        /** Name of the attribute. */
+        private final String attribute;
+        /** Number of samples. */
+        private final long samples;
+        /** Last sample. */
+        private final long last;
+        /** Average of the samples. */
+        private final long average;
+        /** Maximum of the samples. */
+        private final long max;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param attributeScope
+         *            the scope of the attribute. It must not be {@code null}.
+         * @param attributeName
+         *            the name of the attribute. It must not be {@code null}.
+         * @param sampleCount
+         *            the number of samples
+         * @param lastSample
+         *            the last sample
+         * @param sampleAverage
+         *            the average of the samples
+         * @param sampleMax
+         *            the maximum of the samples
+         */
+        Footprint(String attributeScope, String attributeName, long sampleCount, long lastSample, long sampleAverage, long sampleMax) {
+            scope = attributeScope;
+            attribute = attributeName;
+            samples = sampleCount;
+            last = lastSample;
+            average = sampleAverage;
+            max = sampleMax;
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("%s\t%s\t%d\t%d\t%d\t%d", scope, attribute, samples, last, average, max);
+        }
+
+        /**
+         * Returns the scope of the attribute, i.e., {@code "context"} or
+         * {@code "session"}.
+         *
+         * @return the scope of the attribute
+         */
+        public String scope() {
+            return scope;
+        }
+
+        /**
+         * Returns the name of the attribute.
+         *
+         * @return the name of the attribute
+         */
+        public String attribute() {
+            return attribute;
+        }
+
+        /**
+         * Returns the number of samples.
+         *
+         * @return the number of samples
+         */
+        public long samples() {
+            return samples;
+        }
+
+        /**
+         * Returns the last estimate in bytes.
+         *
+         * @return the last estimate in bytes
+         */
+        public long last() {
+            return last;
+        }
+
+        /**
+         * Returns the average estimate in bytes.
+         *
+         * @return the average estimate in bytes
+         */
+        public long average() {
+            return average;
+        }
+
+        /**
+         * Returns the maximal estimate in bytes.
+         *
+         * @return the maximal estimate in bytes
+         */
+        public long max() {
+            return max;
+        }
+    }
+
+    /**
+     * Statistics of an attribute.
+     */
+    private static final class Statistics {
+
+        /** Number of samples. */
+        private final LongAdder count = new LongAdder();
+        /** Sum of the samples. */
+        private final LongAdder sum = new LongAdder();
+        /** Maximum of the samples. */
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        /** Last sample. */
+        private volatile long last;
+
+        /**
+         * Creates a new instance.
+         */
+        public Statistics() {
+            // Default constructor
+        }
+
+        /**
+         * Adds a sample.
+         *
+         * @param sample
+         *            the sample to add
+         */
+        public void add(long sample) {
+            count.increment();
+            sum.add(sample);
+            max.accumulate(sample);
+            last = sample;
+        }
+
+        /**
+         * Makes the footprint.
+         *
+         * @param scope
+         *            the scope of the attribute. It must not be {@code null}.
+         * @param attribute
+         *            the name of the attribute. It must not be {@code null}.
+         *
+         * @return the footprint
+         */
+        public Footprint footprint(String scope, String attribute) {
+            final long samples = count.sum();
+            final long average = (samples != 0) ? sum.sum() / samples : 0;
+            return new Footprint(scope, attribute, samples, last, average, max.get());
+        }
+    }
+}
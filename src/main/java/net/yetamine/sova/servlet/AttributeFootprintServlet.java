@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Optional;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A diagnostics endpoint reporting the {@link AttributeFootprint} installed in
+ * the context as plain text.
+ *
+ * <p>
+ * Each line of the report describes an attribute with tab-separated columns:
+ * the scope, the name, the number of samples, the last, average and maximal
+ * estimate in bytes. When the request has the {@code update} parameter, all
+ * context attributes are accounted before reporting.
+ */
+public class AttributeFootprintServlet extends HttpServlet {
+
+    /** Serialization version. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance.
+     */
+    public AttributeFootprintServlet() {
+        // Default constructor
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final ServletContext context = req.getServletContext();
+        final Optional<AttributeFootprint> footprint = AttributeFootprint.find(context);
+        if (!footprint.isPresent()) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No attribute footprint installed.");
+            return;
+        }
+
+        final AttributeFootprint accounting = footprint.get();
+        if (req.getParameter("update") != null) {
+            accounting.update(context, Integer.MAX_VALUE);
+        }
+
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+        final PrintWriter writer = resp.getWriter();
+        writer.println("scope\tattribute\tsamples\tlast\taverage\tmax");
+        accounting.report().forEach(writer::println);
+        writer.flush();
+    }
+}
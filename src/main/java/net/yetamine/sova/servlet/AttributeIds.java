@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns stable integer identifiers to attribute names.
+ *
+ * <p>
+ * The identifiers are assigned sequentially and never released, which is fine
+ * for the names of symbols, as symbols are constants mostly, so the registry is
+ * bounded by the set of the declared names. Looking up a name that has got an
+ * identifier already takes no lock; only assigning a new identifier does.
+ */
+final class AttributeIds {
+
+    /** Identifiers of the names. */
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    /** Lock for assigning new identifiers. */
+    private static final Object LOCK = new Object();
+    /** Names indexed by the identifiers; replaced when growing. */
+    private static volatile String[] names = new String[64];
+    /** Number of the assigned identifiers. */
+    private static int count;
+
+    /**
+     * Prevents creating instances of this class.
+     */
+    private AttributeIds() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the identifier of the given name, assigning a new one if the
+     * name has none yet.
+     *
+     * @param name
+     *            the name. It must not be {@code null}.
+     *
+     * @return the identifier of the name
+     */
+    public static int id(String name) {
+        final Integer result = IDS.get(name); // Avoid locking the bin of computeIfAbsent on Java 8
+        return (result != null) ? result : IDS.computeIfAbsent(name, AttributeIds::assign);
+    }
+
+    /**
+     * Returns the name for the given identifier.
+     *
+     * @param id
+     *            the identifier
+     *
+     * @return the name, or {@code null} if the identifier is not assigned
+     */
+    public static String name(int id) {
+        final String[] current = names;
+        return ((0 <= id) && (id < current.length)) ? current[id] : null;
+    }
+
+    /**
+     * Assigns a new identifier.
+     *
+     * @param name
+     *            the name to assign the identifier to. It must not be
+     *            {@code null}.
+     *
+     * @return the new identifier
+     */
+    private static Integer assign(String name) {
+        synchronized (LOCK) {
+            final int result = count;
+            final String[] current = (result < names.length) ? names : Arrays.copyOf(names, result * 2);
+            current[result] = name;
+            names = current; // Publish the name before the identifier
+            count = result + 1;
+            return result;
+        }
+    }
+}
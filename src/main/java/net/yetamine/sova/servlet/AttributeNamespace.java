@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+/**
+ * An index of qualified attribute names sharing the same qualifier.
+ *
+ * <p>
+ * An instance makes the qualified names in the same way as
+ * {@link ServletAttributeSymbol#name(String, String)} does, but it remembers
+ * all names it made, so that it can enumerate, copy or clear the attributes in
+ * the namespace without scanning all attribute names of the source and testing
+ * their prefixes. Therefore, the cost of these operations is proportional to
+ * the number of the names in the namespace rather than to the number of all
+ * attributes of the source. Attributes set with a name that did not come from
+ * this instance are not indexed, hence not found by these operations.
+ *
+ * <p>
+ * Instances of this class are thread-safe. Making names is supposed to happen
+ * rarely (typically when defining the symbol constants), while the operations
+ * on the attributes are lock-free.
+ */
+public final class AttributeNamespace {
+
+    /** Qualifier of the namespace. */
+    private final String qualifier;
+    /** Names in the namespace (copy-on-write). */
+    private volatile String[] names = new String[0];
+
+    /**
+     * Creates a new instance.
+     *
+     * @param namespaceQualifier
+     *            the qualifier of the namespace. It must not be {@code null}.
+     */
+    public AttributeNamespace(String namespaceQualifier) {
+        qualifier = Objects.requireNonNull(namespaceQualifier);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param namespaceQualifier
+     *            the qualifier of the namespace. It must not be {@code null}.
+     *
+     * @return the new instance
+     */
+    public static AttributeNamespace of(Class<?> namespaceQualifier) {
+        return new AttributeNamespace(namespaceQualifier.getTypeName());
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("AttributeNamespace[qualifier=%s, names=%s]", qualifier, Arrays.toString(names));
+    }
+
+    /**
+     * Returns the qualifier of the namespace.
+     *
+     * @return the qualifier of the namespace
+     */
+    public String qualifier() {
+        return qualifier;
+    }
+
+    /**
+     * Makes a qualified name in this namespace and indexes it.
+     *
+     * @param identifier
+     *            the local part of the name. It must not be {@code null}.
+     *
+     * @return a qualified name consisting of the qualifier and the identifier
+     */
+    public String name(String identifier) {
+        final String result = ServletAttributeSymbol.name(qualifier, identifier);
+
+        synchronized (this) {
+            final String[] current = names;
+            for (String name : current) {
+                if (name.equals(result)) {
+                    return name;
+                }
+            }
+
+            final String[] update = Arrays.copyOf(current, current.length + 1);
+            update[current.length] = result;
+            names = update;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns all names indexed by this instance.
+     *
+     * @return all names indexed by this instance
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(names)));
+    }
+
+    /**
+     * Tests if the given name belongs to the index.
+     *
+     * @param name
+     *            the name to test
+     *
+     * @return {@code true} if the given name belongs to the index
+     */
+    public boolean contains(String name) {
+        for (String item : names) {
+            if (item.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Request attributes
+
+    /**
+     * Returns the attributes of the namespace that the source contains.
+     *
+     * @param source
+     *            the source of the attributes. It must not be {@code null}.
+     *
+     * @return a map of the present attributes
+     */
+    public Map<String, Object> attributes(ServletRequest source) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+
+        for (String name : names) {
+            final Object value = source.getAttribute(name);
+            if (value != null) {
+                result.put(name, value);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Copies the attributes of the namespace from the source to the target.
+     * Attributes missing in the source are removed from the target.
+     *
+     * @param source
+     *            the source of the attributes. It must not be {@code null}.
+     * @param target
+     *            the target of the attributes. It must not be {@code null}.
+     */
+    public void copy(ServletRequest source, ServletRequest target) {
+        for (String name : names) {
+            final Object value = source.getAttribute(name);
+
+            if (value != null) {
+                target.setAttribute(name, value);
+            } else {
+                target.removeAttribute(name);
+            }
+        }
+    }
+
+    /**
+     * Removes all attributes of the namespace from the given source.
+     *
+     * @param source
+     *            the source to clear. It must not be {@code null}.
+     */
+    public void clear(ServletRequest source) {
+        for (String name : names) {
+            if (source.getAttribute(name) != null) {
+                source.removeAttribute(name);
+            }
+        }
+    }
+
+    // Context attributes
+
+    /**
+     * Returns the attributes of the namespace that the source contains.
+     *
+     * @param source
+     *            the source of the attributes. It must not be {@code null}.
+     *
+     * @return a map of the present attributes
+     */
+    public Map<String, Object> attributes(ServletContext source) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+
+        for (String name : names) {
+            final Object value = source.getAttribute(name);
+            if (value != null) {
+                result.put(name, value);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Copies the attributes of the namespace from the source to the target.
+     * Attributes missing in the source are removed from the target.
+     *
+     * @param source
+     *            the source of the attributes. It must not be {@code null}.
+     * @param target
+     *            the target of the attributes. It must not be {@code null}.
+     */
+    public void copy(ServletContext source, ServletContext target) {
+        for (String name : names) {
+            final Object value = source.getAttribute(name);
+
+            if (value != null) {
+                target.setAttribute(name, value);
+            } else {
+                target.removeAttribute(name);
+            }
+        }
+    }
+
+    /**
+     * Removes all attributes of the namespace from the given source.
+     *
+     * @param source
+     *            the source to clear. It must not be {@code null}.
+     */
+    public void clear(ServletContext source) {
+        for (String name : names) {
+            if (source.getAttribute(name) != null) {
+                source.removeAttribute(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import net.yetamine.sova.AdaptationResult;
+
+/**
+ * The scope-agnostic core of the symbol operations.
+ *
+ * <p>
+ * The symbol classes declare the operations with their own store types and
+ * implement them as one-line bridges to this class, passing the symbol itself
+ * and a stateless {@link AttributeScope} singleton of the class. The bridges
+ * are small enough to inline these methods, so that the symbol class and the
+ * scope are exact types at the call sites and the operations remain specific
+ * for each kind of the store, while the code exists just once.
+ */
+final class AttributeOperations {
+
+    /**
+     * Prevents creating instances of this class.
+     */
+    private AttributeOperations() {
+        throw new AssertionError();
+    }
+
+    // Store primitives
+
+    /**
+     * Get the attribute value from the store without any adaptation.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source to use. It must not be {@code null}.
+     *
+     * @return the attribute value from the store without any adaptation
+     */
+    public static <S> Object pull(ServletAttributeSymbol<?> symbol, AttributeScope<S> scope, S source) {
+        return scope.getAttribute(source, symbol.attribute());
+    }
+
+    /**
+     * Transfers the given value to the given consumer.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param consumer
+     *            the consumer to accept the attribute. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to transfer
+     */
+    public static <S, T> void push(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S consumer, T value) {
+        scope.setAttribute(consumer, symbol.attribute(), value);
+    }
+
+    /**
+     * Removes the attribute from the given consumer.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param consumer
+     *            the consumer to update. It must not be {@code null}.
+     */
+    public static <S> void remove(ServletAttributeSymbol<?> symbol, AttributeScope<S> scope, S consumer) {
+        scope.removeAttribute(consumer, symbol.attribute());
+    }
+
+    // Mappable-like methods
+
+    /**
+     * Returns an adapted value from the source.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     */
+    public static <S, T> T get(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source) {
+        return symbol.adapted(pull(symbol, scope, source));
+    }
+
+    /**
+     * Returns an adapted value from the source, or the default.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return the result of the adaptation, or the default
+     */
+    public static <S, T> T give(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source) {
+        final T result = get(symbol, scope, source);
+        return (result != null) ? result : symbol.surrogate(null);
+    }
+
+    /**
+     * Returns an adapted value from the source as an {@link Optional}.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return an adapted value from the source as an {@link Optional}
+     */
+    public static <S, T> Optional<T> find(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source) {
+        return Optional.ofNullable(get(symbol, scope, source));
+    }
+
+    /**
+     * Returns a representation of an adapted value from the source.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return the result of the adaptation
+     */
+    public static <S, T> AdaptationResult<T> yield(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source) {
+        return symbol.adaptedResult(pull(symbol, scope, source));
+    }
+
+    /**
+     * Fills the given holder with the argument and the adapted value.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     * @param holder
+     *            the holder to fill. It must not be {@code null}.
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    public static <S, T> boolean yieldInto(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source, ResultHolder<? super T> holder) {
+        return symbol.adaptedInto(pull(symbol, scope, source), holder);
+    }
+
+    /**
+     * Puts the adapted value to the given store.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param consumer
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to adapt and transfer
+     */
+    public static <S, T> void put(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S consumer, Object value) {
+        push(symbol, scope, consumer, symbol.derive(value));
+    }
+
+    /**
+     * Puts the specified value to the given store, or removes the existing
+     * value from the store if the specified value could not be adapted to a
+     * valid object.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param consumer
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to adapt and transfer
+     */
+    public static <S, T> void let(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S consumer, Object value) {
+        final T result = symbol.derive(value);
+
+        if (result == null) { // Null or non-adaptable
+            remove(symbol, scope, consumer);
+            return;
+        }
+
+        push(symbol, scope, consumer, result);
+    }
+
+    /**
+     * Transfers the adapted value to the given consumer if the value could be
+     * adapted to a valid object.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param consumer
+     *            the consumer to accept the adapted value. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to adapt and transfer
+     *
+     * @return the result of the adaptation
+     */
+    public static <S, T> Optional<T> have(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S consumer, Object value) {
+        final Optional<T> result = Optional.ofNullable(symbol.derive(value));
+        result.ifPresent(v -> push(symbol, scope, consumer, v));
+        return result;
+    }
+
+    /**
+     * Returns a value from the source if the source can supply a valid result,
+     * otherwise fixes the source with a surrogate value and returns it instead.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source to provide or accept the value. It must not be
+     *            {@code null}.
+     * @param surrogate
+     *            the surrogate supplier. It must not be {@code null}.
+     *
+     * @return the original or surrogate value, which the source contains now;
+     *         {@code null} may be returned if the surrogate does not pass the
+     *         adaptation
+     */
+    public static <S, T> T supply(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source, Supplier<? extends T> surrogate) {
+        final T current = get(symbol, scope, source);
+        if (current != null) {
+            return current;
+        }
+
+        final T result = symbol.derive(surrogate.get());
+        if (result == null) { // Null or non-adaptable
+            remove(symbol, scope, source);
+            return null;
+        }
+
+        push(symbol, scope, source, result);
+        return result;
+    }
+
+    /**
+     * Puts the default to the source if the attribute is absent, otherwise
+     * tries to use the present attribute to get the result.
+     *
+     * @param <S>
+     *            the type of the store
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol to use. It must not be {@code null}.
+     * @param scope
+     *            the scope of the store. It must not be {@code null}.
+     * @param source
+     *            the source of the result, which might be possibly updated. It
+     *            must not be {@code null}.
+     *
+     * @return the adaptation of the resulting value; an empty container is
+     *         returned if the value could not adapted, or no default is
+     *         provided
+     */
+    public static <S, T> Optional<T> have(ServletAttributeSymbol<T> symbol, AttributeScope<S> scope, S source) {
+        final Object current = pull(symbol, scope, source);
+
+        if (current != null) { // If present, try to use it
+            return Optional.ofNullable(symbol.adapted(current));
+        }
+
+        final Optional<T> result = Optional.ofNullable(symbol.fallback().get());
+        result.ifPresent(value -> push(symbol, scope, source, value));
+        return result;
+    }
+}
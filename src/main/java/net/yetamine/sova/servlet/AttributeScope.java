@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Map;
+
+/**
+ * An accessor of attributes of a custom store type for {@link StoreSymbol}.
+ *
+ * <p>
+ * Implementations should be stateless singletons, ideally final classes, so
+ * that a symbol bound to a scope keeps its call sites monomorphic.
+ *
+ * @param <S>
+ *            the type of the attribute stores
+ */
+public interface AttributeScope<S> {
+
+    /**
+     * Returns the scope accessing a {@link Map}, which may serve as an
+     * in-memory store, e.g., for testing or for preparing attributes before
+     * copying them into a request.
+     *
+     * @return the scope accessing a {@link Map}
+     */
+    static AttributeScope<Map<String, Object>> map() {
+        return MapAttributeScope.INSTANCE;
+    }
+
+    /**
+     * Returns the value of the attribute.
+     *
+     * @param source
+     *            the store. It must not be {@code null}.
+     * @param name
+     *            the name of the attribute. It must not be {@code null}.
+     *
+     * @return the value of the attribute, or {@code null} if missing
+     */
+    Object getAttribute(S source, String name);
+
+    /**
+     * Sets the value of the attribute.
+     *
+     * @param consumer
+     *            the store. It must not be {@code null}.
+     * @param name
+     *            the name of the attribute. It must not be {@code null}.
+     * @param value
+     *            the value to set. If {@code null}, the attribute shall be
+     *            removed.
+     */
+    void setAttribute(S consumer, String name, Object value);
+
+    /**
+     * Removes the attribute.
+     *
+     * @param consumer
+     *            the store. It must not be {@code null}.
+     * @param name
+     *            the name of the attribute. It must not be {@code null}.
+     */
+    void removeAttribute(S consumer, String name);
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * Saves and restores the values of a fixed set of request attributes, e.g.,
+ * around {@link RequestDispatcher#include(ServletRequest, ServletResponse)}.
+ *
+ * <p>
+ * An instance assigns each of its symbols an ordinal, which is the position of
+ * the symbol in the set, and a snapshot is just an array of the raw values
+ * indexed by the ordinals. Restoring a snapshot writes only the attributes
+ * whose values are not identical to the saved ones, so that an include which
+ * leaves the attributes intact costs no writes at all.
+ *
+ * <p>
+ * Instances of this class are immutable and thread-safe, while the snapshots
+ * are confined to the caller.
+ */
+public final class AttributeSnapshot {
+
+    /** Names of the attributes indexed by the ordinals. */
+    private final String[] attributes;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param symbols
+     *            the symbols of the attributes to save, in the order of their
+     *            ordinals. It must not be {@code null}.
+     */
+    public AttributeSnapshot(Collection<? extends ServletRequestSymbol<?>> symbols) {
+        final List<String> names = new ArrayList<>(symbols.size());
+        symbols.forEach(symbol -> names.add(symbol.attribute()));
+        attributes = names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("AttributeSnapshot[size=%d]", attributes.length);
+    }
+
+    /**
+     * Returns the number of the attributes, which is the length of the
+     * snapshots.
+     *
+     * @return the number of the attributes
+     */
+    public int size() {
+        return attributes.length;
+    }
+
+    /**
+     * Returns the ordinal of the given symbol.
+     *
+     * @param symbol
+     *            the symbol to find. It must not be {@code null}.
+     *
+     * @return the ordinal of the symbol, or -1 if the symbol is not included
+     */
+    public int ordinal(ServletRequestSymbol<?> symbol) {
+        final String attribute = symbol.attribute();
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i].equals(attribute)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Saves the values of the attributes.
+     *
+     * @param source
+     *            the request to save. It must not be {@code null}.
+     *
+     * @return the snapshot
+     */
+    public Object[] save(ServletRequest source) {
+        final Object[] result = new Object[attributes.length];
+        save(source, result);
+        return result;
+    }
+
+    /**
+     * Saves the values of the attributes in the given snapshot array, so that
+     * the caller can reuse it.
+     *
+     * @param source
+     *            the request to save. It must not be {@code null}.
+     * @param snapshot
+     *            the array to fill, which must be at least {@link #size()}
+     *            long. It must not be {@code null}.
+     */
+    public void save(ServletRequest source, Object[] snapshot) {
+        for (int i = 0; i < attributes.length; i++) {
+            snapshot[i] = source.getAttribute(attributes[i]);
+        }
+    }
+
+    /**
+     * Restores the values of the attributes.
+     *
+     * @param consumer
+     *            the request to restore. It must not be {@code null}.
+     * @param snapshot
+     *            the snapshot to restore. It must not be {@code null}.
+     */
+    public void restore(ServletRequest consumer, Object[] snapshot) {
+        for (int i = 0; i < attributes.length; i++) {
+            final String attribute = attributes[i];
+            final Object value = snapshot[i];
+            if (consumer.getAttribute(attribute) != value) {
+                consumer.setAttribute(attribute, value);
+            }
+        }
+    }
+
+    /**
+     * Includes a resource, restoring the values of the attributes afterwards.
+     *
+     * @param dispatcher
+     *            the dispatcher to use. It must not be {@code null}.
+     * @param request
+     *            the request to pass. It must not be {@code null}.
+     * @param response
+     *            the response to pass. It must not be {@code null}.
+     *
+     * @throws ServletException
+     *             if the included resource throws this exception
+     * @throws IOException
+     *             if the included resource throws this exception
+     */
+    public void include(RequestDispatcher dispatcher, ServletRequest request, ServletResponse response) throws ServletException, IOException {
+        final Object[] snapshot = save(request);
+        try {
+            dispatcher.include(request, response);
+        } finally {
+            restore(request, snapshot);
+        }
+    }
+
+    /**
+     * Forwards to a resource, restoring the values of the attributes
+     * afterwards, which is useful when the forwarding code continues with the
+     * request processing.
+     *
+     * @param dispatcher
+     *            the dispatcher to use. It must not be {@code null}.
+     * @param request
+     *            the request to pass. It must not be {@code null}.
+     * @param response
+     *            the response to pass. It must not be {@code null}.
+     *
+     * @throws ServletException
+     *             if the target resource throws this exception
+     * @throws IOException
+     *             if the target resource throws this exception
+     */
+    public void forward(RequestDispatcher dispatcher, ServletRequest request, ServletResponse response) throws ServletException, IOException {
+        final Object[] snapshot = save(request);
+        try {
+            dispatcher.forward(request, response);
+        } finally {
+            restore(request, snapshot);
+        }
+    }
+}
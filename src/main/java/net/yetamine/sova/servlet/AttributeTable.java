@@ -0,0 +1,493 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable perfect hash table over a closed set of attribute names, which
+ * assigns each name an ordinal.
+ *
+ * <p>
+ * The table uses a two-level hash: the hash code of a name selects a seed and
+ * the seed mixed with the hash code selects a slot, which is the ordinal. The
+ * seeds are chosen at construction, so that no two names share a slot. Finding
+ * a name therefore costs one hash (which strings cache) and one comparison,
+ * without any chaining or probing. Names with equal hash codes can't be told
+ * apart by the seed, so their bucket uses a secondary hash of the characters
+ * instead, which costs more, but only for the names falling in such a bucket.
+ *
+ * <p>
+ * Code that knows its symbols in advance should get their {@link Slot}s, which
+ * carry the ordinals resolved once, and access the values of an
+ * {@link AttributeTableRequest} through them without any lookup.
+ *
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class AttributeTable {
+
+    /** Multiplier for mixing the hash codes. */
+    private static final int MULTIPLIER = 0x9E3779B9;
+    /** Number of seeds to try for a bucket before growing the table. */
+    private static final int ATTEMPTS = 1 << 12;
+    /** Maximal number of the slot bits, so that the slot count is an int. */
+    private static final int MAX_BITS = 30;
+    /** Number of times the table may double beyond its initial size. */
+    private static final int MAX_GROWTH = 3;
+    /** Result of a failed seed search. */
+    private static final int NO_SEED = Integer.MIN_VALUE;
+
+    /** Names of the attributes indexed by the ordinals. */
+    private final String[] names;
+    /** Seeds for the buckets. */
+    private final int[] seeds;
+    /** Shift for taking the slot from a mixed hash code. */
+    private final int shift;
+    /** Number of the names. */
+    private final int size;
+    /** Slots of the symbols resolved at construction. */
+    private final Map<ServletAttributeSymbol<?>, Slot<?>> slots;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributes
+     *            the names of the attributes. It must not be {@code null} and
+     *            it must not contain {@code null} elements; duplicates are
+     *            ignored.
+     *
+     * @throws IllegalStateException
+     *             if the names could not be placed in a table with at most 16
+     *             times as many slots as names, which is very unlikely
+     */
+    public AttributeTable(Collection<String> attributes) {
+        this(attributes, Collections.emptyList());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributes
+     *            the names of the attributes. It must not be {@code null} and
+     *            it must not contain {@code null} elements; duplicates are
+     *            ignored.
+     * @param symbols
+     *            the symbols to resolve the slots for. It must not be
+     *            {@code null} and their attributes must be included.
+     */
+    private AttributeTable(Collection<String> attributes, Collection<? extends ServletAttributeSymbol<?>> symbols) {
+        final Set<String> unique = new LinkedHashSet<>(attributes);
+        if (unique.contains(null)) {
+            throw new NullPointerException();
+        }
+
+        final String[] keys = unique.toArray(new String[unique.size()]);
+        final int buckets = capacity(keys.length);
+        seeds = new int[buckets];
+        size = keys.length;
+
+        // Start with twice as many slots as names and grow up to 16 times as many
+        int bits = Math.min(Integer.numberOfTrailingZeros(buckets) + 1, MAX_BITS);
+        final int limit = Math.min(bits + MAX_GROWTH, MAX_BITS);
+        String[] table;
+        while ((table = place(keys, seeds, bits)) == null) {
+            if (++bits > limit) {
+                final String f = "Could not build the table for %d names within %d slots.";
+                throw new IllegalStateException(String.format(f, keys.length, 1 << limit));
+            }
+        }
+
+        names = table;
+        shift = Integer.SIZE - bits;
+
+        final Map<ServletAttributeSymbol<?>, Slot<?>> resolved = new IdentityHashMap<>();
+        symbols.forEach(symbol -> resolved.put(symbol, resolve(symbol)));
+        slots = resolved;
+    }
+
+    /**
+     * Creates a new instance and resolves the slots of the given symbols.
+     *
+     * @param symbols
+     *            the symbols of the attributes. It must not be {@code null}.
+     *
+     * @return the new instance
+     */
+    public static AttributeTable of(Collection<? extends ServletAttributeSymbol<?>> symbols) {
+        final List<String> attributes = new ArrayList<>(symbols.size());
+        symbols.forEach(symbol -> attributes.add(symbol.attribute()));
+        return new AttributeTable(attributes, symbols);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("AttributeTable[size=%d, capacity=%d]", size, names.length);
+    }
+
+    /**
+     * Returns the number of the names.
+     *
+     * @return the number of the names
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the upper bound of the ordinals, which is the length of arrays
+     * indexed by the ordinals.
+     *
+     * @return the upper bound of the ordinals
+     */
+    public int capacity() {
+        return names.length;
+    }
+
+    /**
+     * Returns the names of the attributes.
+     *
+     * @return the names of the attributes
+     */
+    public Set<String> attributes() {
+        final Set<String> result = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name != null) {
+                result.add(name);
+            }
+        }
+
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Returns the ordinal of the given name.
+     *
+     * @param attribute
+     *            the name to find. It must not be {@code null}.
+     *
+     * @return the ordinal of the name, or -1 if the name is not included
+     */
+    public int ordinal(String attribute) {
+        final int hash = attribute.hashCode();
+        final int seed = seeds[hash & (seeds.length - 1)];
+        final int result = (seed >= 0) ? slot(hash, seed, shift) : slot(secondary(attribute, ~seed), 0, shift);
+        return attribute.equals(names[result]) ? result : -1;
+    }
+
+    /**
+     * Returns the ordinal of the given symbol.
+     *
+     * @param symbol
+     *            the symbol to find. It must not be {@code null}.
+     *
+     * @return the ordinal of the symbol, or -1 if the symbol is not included
+     */
+    public int ordinal(ServletAttributeSymbol<?> symbol) {
+        return ordinal(symbol.attribute());
+    }
+
+    /**
+     * Returns the slot of the given symbol.
+     *
+     * <p>
+     * The slots of the symbols given to {@link #of(Collection)} are resolved
+     * when the table is built, other symbols are resolved on demand. In either
+     * case, the caller should keep the slot and use it rather than repeating
+     * this lookup.
+     *
+     * @param <T>
+     *            the type of the symbol values
+     * @param symbol
+     *            the symbol to find. It must not be {@code null}.
+     *
+     * @return the slot of the symbol
+     *
+     * @throws IllegalArgumentException
+     *             if the symbol is not included
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Slot<T> slot(ServletAttributeSymbol<T> symbol) {
+        final Slot<?> result = slots.get(symbol);
+        return (result != null) ? (Slot<T>) result : resolve(symbol);
+    }
+
+    /**
+     * Returns the name for the given ordinal.
+     *
+     * @param ordinal
+     *            the ordinal. It must be less than {@link #capacity()} and not
+     *            negative.
+     *
+     * @return the name, or {@code null} if the ordinal is not assigned
+     */
+    public String attribute(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * Resolves the slot of the given symbol.
+     *
+     * @param <T>
+     *            the type of the symbol values
+     * @param symbol
+     *            the symbol to find. It must not be {@code null}.
+     *
+     * @return the slot of the symbol
+     *
+     * @throws IllegalArgumentException
+     *             if the symbol is not included
+     */
+    private <T> Slot<T> resolve(ServletAttributeSymbol<T> symbol) {
+        final int ordinal = ordinal(symbol);
+        if (ordinal == -1) {
+            final String f = "Attribute '%s' is not included in the table.";
+            throw new IllegalArgumentException(String.format(f, symbol.attribute()));
+        }
+
+        return new Slot<>(this, symbol, ordinal);
+    }
+
+    /**
+     * Computes the slot for a hash code.
+     *
+     * @param hash
+     *            the hash code
+     * @param seed
+     *            the seed of the bucket
+     * @param shift
+     *            the shift to take the slot bits
+     *
+     * @return the slot
+     */
+    private static int slot(int hash, int seed, int shift) {
+        return ((hash ^ seed) * MULTIPLIER) >>> shift;
+    }
+
+    /**
+     * Computes the secondary hash of a name, which depends on all characters
+     * and on the seed, so that a seed may separate names with equal hash codes.
+     *
+     * @param name
+     *            the name. It must not be {@code null}.
+     * @param seed
+     *            the seed
+     *
+     * @return the secondary hash
+     */
+    private static int secondary(String name, int seed) {
+        int result = 0x811C9DC5 ^ (seed * MULTIPLIER); // FNV-1a with a seeded basis
+        for (int i = 0; i < name.length(); i++) {
+            result = (result ^ name.charAt(i)) * 0x01000193;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of the buckets for the given number of names.
+     *
+     * @param count
+     *            the number of names
+     *
+     * @return the number of the buckets, which is a power of two
+     */
+    private static int capacity(int count) {
+        return (count > 1) ? Integer.highestOneBit(count - 1) << 1 : 1;
+    }
+
+    /**
+     * Places the names in a table with the given number of slot bits, finding
+     * the seeds for the buckets.
+     *
+     * @param keys
+     *            the names to place. It must not be {@code null}.
+     * @param seeds
+     *            the array to fill with the seeds. It must not be
+     *            {@code null}.
+     * @param bits
+     *            the number of the slot bits
+     *
+     * @return the names indexed by the slots, or {@code null} if some bucket
+     *         could not be placed
+     */
+    private static String[] place(String[] keys, int[] seeds, int bits) {
+        final int mask = seeds.length - 1;
+        final List<List<String>> buckets = new ArrayList<>(seeds.length);
+        for (int i = 0; i < seeds.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        for (String key : keys) {
+            buckets.get(key.hashCode() & mask).add(key);
+        }
+
+        // Place the largest buckets first while the table is rather empty
+        final Integer[] order = new Integer[seeds.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        final int shift = Integer.SIZE - bits;
+        final String[] result = new String[1 << bits];
+        final int[] slots = new int[keys.length];
+        for (Integer index : order) {
+            final List<String> bucket = buckets.get(index);
+            if (bucket.isEmpty()) {
+                break;
+            }
+
+            final int seed = seed(bucket, result, slots, shift);
+            if (seed == NO_SEED) {
+                return null;
+            }
+
+            seeds[index] = seed;
+
+            for (int i = 0; i < bucket.size(); i++) {
+                result[slots[i]] = bucket.get(i);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds a seed that places all names of a bucket into free slots.
+     *
+     * <p>
+     * If the bucket contains names with equal hash codes, the seed applies on
+     * the secondary hash and it is returned complemented, hence negative.
+     *
+     * @param bucket
+     *            the names of the bucket. It must not be {@code null}.
+     * @param table
+     *            the table with the occupied slots. It must not be
+     *            {@code null}.
+     * @param slots
+     *            the array to receive the slots of the names. It must not be
+     *            {@code null}.
+     * @param shift
+     *            the shift to take the slot bits
+     *
+     * @return the seed, or {@link #NO_SEED} if no seed found
+     */
+    private static int seed(List<String> bucket, String[] table, int[] slots, int shift) {
+        final boolean colliding = bucket.stream().mapToInt(String::hashCode).distinct().count() < bucket.size();
+
+        search: for (int seed = 0; seed < ATTEMPTS; seed++) {
+            for (int i = 0; i < bucket.size(); i++) {
+                final String name = bucket.get(i);
+                final int slot = colliding ? slot(secondary(name, seed), 0, shift) : slot(name.hashCode(), seed, shift);
+                if (table[slot] != null) {
+                    continue search;
+                }
+
+                for (int j = 0; j < i; j++) {
+                    if (slots[j] == slot) {
+                        continue search;
+                    }
+                }
+
+                slots[i] = slot;
+            }
+
+            return colliding ? ~seed : seed;
+        }
+
+        return NO_SEED;
+    }
+
+    /**
+     * A symbol bound to its ordinal in a table, so that the values of the
+     * symbol in an {@link AttributeTableRequest} of the table can be accessed
+     * without looking the name up.
+     *
+     * @param <T>
+     *            the type of the symbol values
+     */
+    public static final class Slot<T> {
+
+        /** Table of the slot. */
+        private final AttributeTable table;
+        /** Symbol of the slot. */
+        private final ServletAttributeSymbol<T> symbol;
+        /** Ordinal of the symbol. */
+        private final int ordinal;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param owner
+         *            the table of the slot. It must not be {@code null}.
+         * @param attribute
+         *            the symbol of the slot. It must not be {@code null}.
+         * @param index
+         *            the ordinal of the symbol
+         */
+        Slot(AttributeTable owner, ServletAttributeSymbol<T> attribute, int index) {
+            table = owner;
+            symbol = attribute;
+            ordinal = index;
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("Slot[attribute=%s, ordinal=%d]", symbol.attribute(), ordinal);
+        }
+
+        /**
+         * Returns the table of the slot.
+         *
+         * @return the table of the slot
+         */
+        public AttributeTable table() {
+            return table;
+        }
+
+        /**
+         * Returns the symbol of the slot.
+         *
+         * @return the symbol of the slot
+         */
+        public ServletAttributeSymbol<T> symbol() {
+            return symbol;
+        }
+
+        /**
+         * Returns the ordinal of the symbol.
+         *
+         * @return the ordinal of the symbol
+         */
+        public int ordinal() {
+            return ordinal;
+        }
+    }
+}
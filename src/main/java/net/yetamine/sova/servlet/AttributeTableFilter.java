@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A filter that wraps HTTP requests in {@link AttributeTableRequest}, so that
+ * the attributes of a closed set are kept in an array, and publishes them to
+ * the wrapped request when the rest of the chain returns.
+ */
+public final class AttributeTableFilter implements Filter {
+
+    /** Table of the attributes. */
+    private final AttributeTable table;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributes
+     *            the table of the attributes to keep. It must not be
+     *            {@code null}.
+     */
+    public AttributeTableFilter(AttributeTable attributes) {
+        table = Objects.requireNonNull(attributes);
+    }
+
+    /**
+     * Returns the table of the attributes.
+     *
+     * @return the table of the attributes
+     */
+    public AttributeTable table() {
+        return table;
+    }
+
+    /**
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    /**
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || (request instanceof AttributeTableRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final AttributeTableRequest wrapper = new AttributeTableRequest((HttpServletRequest) request, table);
+        try {
+            chain.doFilter(wrapper, response);
+        } finally {
+            wrapper.publish();
+        }
+    }
+
+    /**
+     * @see javax.servlet.Filter#destroy()
+     */
+    public void destroy() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * A request wrapper that keeps the attributes of an {@link AttributeTable} in
+ * an array indexed by the ordinals of the table, while other attributes are
+ * stored in the wrapped request.
+ *
+ * <p>
+ * Any code, including the code that does not use symbols, gets the attributes
+ * of the table for one hash and one comparison, and the code that keeps the
+ * {@link AttributeTable.Slot}s of its symbols may use {@link #get(AttributeTable.Slot)}
+ * and {@link #put(AttributeTable.Slot, Object)}, or the ordinals directly, to
+ * skip the lookup.
+ * The attributes of the table are not visible to the wrapped request though,
+ * therefore:
+ *
+ * <ul>
+ * <li>the container fires no attribute events for them,</li>
+ * <li>the table should not contain the attributes that the container sets
+ * itself, like the dispatch attributes,</li>
+ * <li>and they are written to the wrapped request when {@link #publish()} is
+ * invoked, which {@link AttributeTableFilter} does when the request completes
+ * and which occurs when an asynchronous processing starts or when a dispatcher
+ * obtained from this request forwards or includes, disabling the table for the
+ * rest of the request.</li>
+ * </ul>
+ *
+ * <p>
+ * Instances of this class are confined to the request processing thread.
+ */
+public final class AttributeTableRequest extends HttpServletRequestWrapper {
+
+    /** Table of the attributes. */
+    private final AttributeTable table;
+    /** Values indexed by the ordinals, or {@code null} if disabled. */
+    private Object[] values;
+
+    /**
+     * Creates a new instance.
+     *
+     * <p>
+     * The attributes of the table that the wrapped request contains already
+     * are copied to this instance.
+     *
+     * @param request
+     *            the request to wrap. It must not be {@code null}.
+     * @param attributes
+     *            the table of the attributes to keep. It must not be
+     *            {@code null}.
+     */
+    public AttributeTableRequest(HttpServletRequest request, AttributeTable attributes) {
+        super(request);
+        table = Objects.requireNonNull(attributes);
+        values = new Object[attributes.capacity()];
+
+        for (int i = 0; i < values.length; i++) {
+            final String name = attributes.attribute(i);
+            if (name != null) {
+                values[i] = request.getAttribute(name);
+            }
+        }
+    }
+
+    /**
+     * Finds an instance of this class in the chain of the wrappers of the given
+     * request.
+     *
+     * <p>
+     * Other filters may wrap the request again, so that the request passed to
+     * the code below them is not an instance of this class, although it still
+     * forwards the attribute access to it.
+     *
+     * @param request
+     *            the request to search. It must not be {@code null}.
+     *
+     * @return the instance found in the chain
+     */
+    public static Optional<AttributeTableRequest> find(ServletRequest request) {
+        for (ServletRequest current = request;; current = ((ServletRequestWrapper) current).getRequest()) {
+            if (current instanceof AttributeTableRequest) {
+                return Optional.of((AttributeTableRequest) current);
+            }
+
+            if (!(current instanceof ServletRequestWrapper)) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Returns the table of the attributes.
+     *
+     * @return the table of the attributes
+     */
+    public AttributeTable table() {
+        return table;
+    }
+
+    /**
+     * Returns the value of an attribute of the table.
+     *
+     * @param ordinal
+     *            the ordinal of the attribute
+     *
+     * @return the value of the attribute
+     */
+    public Object get(int ordinal) {
+        final Object[] current = values;
+        return (current != null) ? current[ordinal] : super.getAttribute(table.attribute(ordinal));
+    }
+
+    /**
+     * Sets the value of an attribute of the table.
+     *
+     * @param ordinal
+     *            the ordinal of the attribute
+     * @param value
+     *            the value to set; {@code null} removes the attribute
+     */
+    public void set(int ordinal, Object value) {
+        final Object[] current = values;
+        if (current != null) {
+            current[ordinal] = value;
+        } else {
+            super.setAttribute(table.attribute(ordinal), value);
+        }
+    }
+
+    /**
+     * Returns the adapted value of the symbol of a slot.
+     *
+     * @param <T>
+     *            the type of the symbol values
+     * @param slot
+     *            the slot of the symbol. It must belong to the table of this
+     *            request.
+     *
+     * @return the adapted value, or {@code null} if not possible
+     */
+    public <T> T get(AttributeTable.Slot<T> slot) {
+        return slot.symbol().derive(get(ordinal(slot)));
+    }
+
+    /**
+     * Puts the adapted value of the symbol of a slot, or removes the value if
+     * the given value could not be adapted.
+     *
+     * @param slot
+     *            the slot of the symbol. It must belong to the table of this
+     *            request.
+     * @param value
+     *            the value to adapt and set
+     */
+    public void put(AttributeTable.Slot<?> slot, Object value) {
+        set(ordinal(slot), slot.symbol().derive(value));
+    }
+
+    /**
+     * Writes the attributes of the table to the wrapped request and disables
+     * the table, so that all attributes are stored in the wrapped request
+     * since then.
+     */
+    public void publish() {
+        final Object[] current = values;
+        if (current == null) {
+            return;
+        }
+
+        values = null;
+        final ServletRequest request = getRequest();
+        for (int i = 0; i < current.length; i++) {
+            final String name = table.attribute(i);
+            if (name == null) {
+                continue;
+            }
+
+            final Object value = current[i];
+            if (value != request.getAttribute(name)) {
+                request.setAttribute(name, value);
+            }
+        }
+    }
+
+    // Attribute access
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+     */
+    @Override
+    public Object getAttribute(String name) {
+        final Object[] current = values;
+        if (current != null) {
+            final int ordinal = table.ordinal(name);
+            if (ordinal != -1) {
+                return current[ordinal];
+            }
+        }
+
+        return super.getAttribute(name);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#getAttributeNames()
+     */
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        final Object[] current = values;
+        if (current == null) {
+            return super.getAttributeNames();
+        }
+
+        final List<String> result = new ArrayList<>();
+        for (Enumeration<String> names = super.getAttributeNames(); names.hasMoreElements();) {
+            final String name = names.nextElement();
+            if (table.ordinal(name) == -1) {
+                result.add(name);
+            }
+        }
+
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != null) {
+                result.add(table.attribute(i));
+            }
+        }
+
+        return Collections.enumeration(result);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#setAttribute(java.lang.String,
+     *      java.lang.Object)
+     */
+    @Override
+    public void setAttribute(String name, Object o) {
+        final Object[] current = values;
+        if (current != null) {
+            final int ordinal = table.ordinal(name);
+            if (ordinal != -1) {
+                current[ordinal] = o;
+                return;
+            }
+        }
+
+        super.setAttribute(name, o);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#removeAttribute(java.lang.String)
+     */
+    @Override
+    public void removeAttribute(String name) {
+        final Object[] current = values;
+        if (current != null) {
+            final int ordinal = table.ordinal(name);
+            if (ordinal != -1) {
+                current[ordinal] = null;
+                return;
+            }
+        }
+
+        super.removeAttribute(name);
+    }
+
+    // Dispatching
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#getRequestDispatcher(java.lang.String)
+     */
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        final RequestDispatcher dispatcher = super.getRequestDispatcher(path);
+        return (dispatcher != null) ? new PublishingDispatcher(dispatcher) : null;
+    }
+
+    // Asynchronous processing
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#startAsync()
+     */
+    @Override
+    public AsyncContext startAsync() {
+        publish();
+        return super.startAsync();
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#startAsync(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse)
+     */
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        publish();
+        return super.startAsync(servletRequest, servletResponse);
+    }
+
+    /**
+     * Returns the ordinal of a slot.
+     *
+     * @param slot
+     *            the slot. It must not be {@code null}.
+     *
+     * @return the ordinal of the slot
+     *
+     * @throws IllegalArgumentException
+     *             if the slot belongs to another table
+     */
+    private int ordinal(AttributeTable.Slot<?> slot) {
+        if (slot.table() != table) {
+            throw new IllegalArgumentException("Slot of another table.");
+        }
+
+        return slot.ordinal();
+    }
+
+    /**
+     * A dispatcher publishing the attributes before dispatching, since the
+     * dispatch target may get a request that does not reach this instance.
+     */
+    private final class PublishingDispatcher implements RequestDispatcher {
+
+        /** Actual dispatcher. */
+        private final RequestDispatcher dispatcher;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param target
+         *            the actual dispatcher. It must not be {@code null}.
+         */
+        PublishingDispatcher(RequestDispatcher target) {
+            dispatcher = target;
+        }
+
+        /**
+         * @see javax.servlet.RequestDispatcher#forward(javax.servlet.ServletRequest,
+         *      javax.servlet.ServletResponse)
+         */
+        public void forward(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+            publish();
+            dispatcher.forward(request, response);
+        }
+
+        /**
+         * @see javax.servlet.RequestDispatcher#include(javax.servlet.ServletRequest,
+         *      javax.servlet.ServletResponse)
+         */
+        public void include(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+            publish();
+            dispatcher.include(request, response);
+        }
+    }
+}
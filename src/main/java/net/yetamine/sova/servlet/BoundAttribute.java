@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a setter that an {@link AttributeBinder} shall invoke with the value of
+ * the given attribute.
+ *
+ * <p>
+ * The setter must be public and it must take exactly one parameter; its return
+ * value, if any, is ignored. The attribute value is adapted by downcasting to
+ * the (boxed) parameter type and the setter is not invoked when no adaptable
+ * value is present, so that the default of the field remains.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BoundAttribute {
+
+    /**
+     * Returns the name of the attribute to bind.
+     *
+     * @return the name of the attribute to bind
+     */
+    String value();
+
+    /**
+     * Returns the scope to take the attribute from.
+     *
+     * @return the scope to take the attribute from
+     */
+    Scope scope() default Scope.REQUEST;
+
+    /**
+     * Scopes of bound attributes.
+     */
+    enum Scope {
+
+        /** Take the attribute from the request only. */
+        REQUEST,
+
+        /** Take the attribute from the request's context only. */
+        CONTEXT,
+
+        /**
+         * Take the attribute from the request, falling back to the request's
+         * context like {@link ServletSymbol} does.
+         */
+        ANY
+    }
+}
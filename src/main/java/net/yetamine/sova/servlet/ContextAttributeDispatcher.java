@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextAttributeEvent;
+import javax.servlet.ServletContextAttributeListener;
+
+/**
+ * A listener dispatching changes of context attributes to the subscribers of
+ * the respective symbols.
+ *
+ * <p>
+ * A single instance serves all subscriptions of a context. It looks up the
+ * subscribers by the attribute name, which is a constant-time operation, and
+ * delivers the current adapted value of the attribute to them; a removed or
+ * a not adaptable value is delivered as {@code null}. The delivery runs on the
+ * executor given to the instance, which allows asynchronous fan-out, but then
+ * the deliveries may be reordered.
+ *
+ * <p>
+ * An instance is registered on the first subscription, which must happen during
+ * the context initialization, e.g., in a {@link javax.servlet.ServletContextListener},
+ * since the container does not accept listeners later. An instance with an
+ * executor may be registered explicitly instead, see {@link #install(ServletContext)}.
+ * The instance is just an attribute listener, because the container accepts a
+ * context listener added programmatically only from an initializer; dropping
+ * the subscriptions when the context is destroyed is therefore done by
+ * {@link ContextCleanupListener}, if declared.
+ */
+public final class ContextAttributeDispatcher implements ServletContextAttributeListener {
+
+    /** Name of the attribute holding the installed instance. */
+    private static final String ATTRIBUTE = ServletAttributeSymbol.name(ContextAttributeDispatcher.class, "instance");
+
+    /** Subscribers by the attribute names (copy-on-write arrays). */
+    private final ConcurrentMap<String, Subscriber<?>[]> subscribers = new ConcurrentHashMap<>();
+    /** Executor for deliveries. */
+    private final Executor executor;
+    /** Context which this instance is installed in. */
+    private volatile ServletContext context;
+
+    /**
+     * Creates a new instance that delivers in the thread which changes the
+     * attribute.
+     */
+    public ContextAttributeDispatcher() {
+        this(Runnable::run);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param deliveryExecutor
+     *            the executor for deliveries. It must not be {@code null}.
+     */
+    public ContextAttributeDispatcher(Executor deliveryExecutor) {
+        executor = Objects.requireNonNull(deliveryExecutor);
+    }
+
+    /**
+     * Returns the instance installed in the given context, or registers a new
+     * one with the default delivery.
+     *
+     * <p>
+     * The installation is atomic, using the context itself as the lock, so
+     * that concurrent callers get the same instance.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     *
+     * @return the instance installed in the given context
+     *
+     * @throws IllegalStateException
+     *             if the context does not accept new listeners anymore
+     */
+    public static ContextAttributeDispatcher of(ServletContext context) {
+        synchronized (context) {
+            final Object current = context.getAttribute(ATTRIBUTE);
+            if (current instanceof ContextAttributeDispatcher) {
+                return (ContextAttributeDispatcher) current;
+            }
+
+            final ContextAttributeDispatcher result = new ContextAttributeDispatcher();
+
+            try {
+                context.addListener(result);
+            } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+                final String f = "Could not register %s. Subscribe during the context initialization.";
+                throw new IllegalStateException(String.format(f, ContextAttributeDispatcher.class.getName()), e);
+            }
+
+            result.install(context);
+            return result;
+        }
+    }
+
+    /**
+     * Installs this instance in the given context, so that the subscriptions
+     * can find it, and registers dropping the subscriptions when the context
+     * is destroyed.
+     *
+     * <p>
+     * This method is useful when registering the instance programmatically
+     * with a specific executor: the instance must be added as a listener of
+     * the context and installed then.
+     *
+     * @param servletContext
+     *            the context to install in. It must not be {@code null}.
+     */
+    public void install(ServletContext servletContext) {
+        synchronized (servletContext) {
+            servletContext.setAttribute(ATTRIBUTE, this);
+            context = servletContext;
+        }
+
+        ContextCleanupListener.register(servletContext, this::uninstall);
+    }
+
+    /**
+     * Subscribes for changes of the attribute of the given symbol.
+     *
+     * <p>
+     * The consumer receives the current value of the attribute immediately,
+     * so that no change could be missed between reading the attribute and the
+     * subscription.
+     *
+     * @param <T>
+     *            the type of the value
+     * @param symbol
+     *            the symbol of the attribute. It must not be {@code null}.
+     * @param consumer
+     *            the consumer of the adapted values. It must not be
+     *            {@code null}.
+     *
+     * @return the subscription
+     *
+     * @throws IllegalStateException
+     *             if this instance is not installed in any context
+     */
+    public <T> Subscription subscribe(ServletContextSymbol<T> symbol, Consumer<? super T> consumer) {
+        final ServletContext servletContext = context;
+        if (servletContext == null) {
+            throw new IllegalStateException("Not installed in any context.");
+        }
+
+        final Subscriber<T> subscriber = new Subscriber<>(symbol, consumer);
+
+        subscribers.merge(symbol.attribute(), new Subscriber<?>[] { subscriber }, (current, added) -> {
+            final Subscriber<?>[] result = Arrays.copyOf(current, current.length + 1);
+            result[current.length] = added[0];
+            return result;
+        });
+
+        deliver(servletContext, subscriber);
+        return () -> unsubscribe(subscriber);
+    }
+
+    /**
+     * @see javax.servlet.ServletContextAttributeListener#attributeAdded(javax.servlet.ServletContextAttributeEvent)
+     */
+    public void attributeAdded(ServletContextAttributeEvent event) {
+        dispatch(event);
+    }
+
+    /**
+     * @see javax.servlet.ServletContextAttributeListener#attributeRemoved(javax.servlet.ServletContextAttributeEvent)
+     */
+    public void attributeRemoved(ServletContextAttributeEvent event) {
+        dispatch(event);
+    }
+
+    /**
+     * @see javax.servlet.ServletContextAttributeListener#attributeReplaced(javax.servlet.ServletContextAttributeEvent)
+     */
+    public void attributeReplaced(ServletContextAttributeEvent event) {
+        dispatch(event);
+    }
+
+    /**
+     * Dispatches the event to the subscribers.
+     *
+     * @param event
+     *            the event to dispatch. It must not be {@code null}.
+     */
+    private void dispatch(ServletContextAttributeEvent event) {
+        final Subscriber<?>[] targets = subscribers.get(event.getName());
+        if (targets == null) {
+            return;
+        }
+
+        final ServletContext servletContext = event.getServletContext();
+        for (Subscriber<?> subscriber : targets) {
+            deliver(servletContext, subscriber);
+        }
+    }
+
+    /**
+     * Delivers the current value to the subscriber.
+     *
+     * @param servletContext
+     *            the context to read the value from. It must not be
+     *            {@code null}.
+     * @param subscriber
+     *            the subscriber. It must not be {@code null}.
+     */
+    private void deliver(ServletContext servletContext, Subscriber<?> subscriber) {
+        executor.execute(() -> subscriber.deliver(servletContext));
+    }
+
+    /**
+     * Drops the subscriptions and uninstalls this instance from its context.
+     */
+    private void uninstall() {
+        final ServletContext servletContext = context;
+        if (servletContext == null) {
+            return;
+        }
+
+        synchronized (servletContext) {
+            if (servletContext.getAttribute(ATTRIBUTE) == this) {
+                servletContext.removeAttribute(ATTRIBUTE);
+            }
+        }
+
+        subscribers.clear();
+        context = null;
+    }
+
+    /**
+     * Removes the subscriber.
+     *
+     * @param subscriber
+     *            the subscriber to remove. It must not be {@code null}.
+     */
+    private void unsubscribe(Subscriber<?> subscriber) {
+        subscribers.computeIfPresent(subscriber.symbol.attribute(), (name, current) -> {
+            final Subscriber<?>[] result = Arrays.stream(current).filter(s -> s != subscriber).toArray(Subscriber<?>[]::new);
+            return (result.length != 0) ? result : null;
+        });
+    }
+
+    /**
+     * A subscription for attribute changes.
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+
+        /**
+         * Cancels the subscription; no more deliveries are made then, except
+         * for the deliveries that the executor accepted already.
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        void close();
+    }
+
+    /**
+     * A subscriber of a symbol.
+     *
+     * @param <T>
+     *            the type of the value
+     */
+    private static final class Subscriber<T> {
+
+        /** Symbol of the attribute. */
+        final ServletContextSymbol<T> symbol;
+        /** Consumer of the values. */
+        final Consumer<? super T> consumer;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param attributeSymbol
+         *            the symbol of the attribute. It must not be {@code null}.
+         * @param valueConsumer
+         *            the consumer of the values. It must not be {@code null}.
+         */
+        public Subscriber(ServletContextSymbol<T> attributeSymbol, Consumer<? super T> valueConsumer) {
+            symbol = Objects.requireNonNull(attributeSymbol);
+            consumer = Objects.requireNonNull(valueConsumer);
+        }
+
+        /**
+         * Delivers the current value.
+         *
+         * @param context
+         *            the context to read the value from. It must not be
+         *            {@code null}.
+         */
+        public void deliver(ServletContext context) {
+            consumer.accept(symbol.get(context));
+        }
+    }
+}
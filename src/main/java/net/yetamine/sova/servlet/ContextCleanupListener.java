@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * A listener running the cleanup actions registered for a context when the
+ * context is destroyed.
+ *
+ * <p>
+ * The container accepts a {@link ServletContextListener} added programmatically
+ * only from a {@link javax.servlet.ServletContainerInitializer}, therefore the
+ * components of this library, which are often installed later, register their
+ * cleanup with {@link #register(ServletContext, Runnable)} rather than adding
+ * themselves as listeners. This listener should be declared in the deployment
+ * descriptor (or added by an initializer) then; otherwise the registered
+ * actions never run and just vanish with the context.
+ *
+ * <p>
+ * The actions run in the reverse order of the registration and a failing
+ * action is reported in the log of the context without preventing the others.
+ */
+public final class ContextCleanupListener implements ServletContextListener {
+
+    /** Name of the attribute holding the registered actions. */
+    private static final String ATTRIBUTE = ServletAttributeSymbol.name(ContextCleanupListener.class, "actions");
+
+    /**
+     * Creates a new instance.
+     */
+    public ContextCleanupListener() {
+        // Default constructor
+    }
+
+    /**
+     * Registers an action to run when the context is destroyed.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     * @param action
+     *            the action to run. It must not be {@code null}.
+     */
+    public static void register(ServletContext context, Runnable action) {
+        synchronized (context) { // Serialize with other installations for the context
+            final Object current = context.getAttribute(ATTRIBUTE);
+            if (current instanceof Actions) {
+                ((Actions) current).add(action);
+                return;
+            }
+
+            final Actions actions = new Actions();
+            actions.add(action);
+            context.setAttribute(ATTRIBUTE, actions);
+        }
+    }
+
+    /**
+     * @see javax.servlet.ServletContextListener#contextInitialized(javax.servlet.ServletContextEvent)
+     */
+    public void contextInitialized(ServletContextEvent sce) {
+        // Nothing to do, the actions are registered later
+    }
+
+    /**
+     * @see javax.servlet.ServletContextListener#contextDestroyed(javax.servlet.ServletContextEvent)
+     */
+    public void contextDestroyed(ServletContextEvent sce) {
+        final ServletContext context = sce.getServletContext();
+
+        final List<Runnable> actions;
+        synchronized (context) {
+            final Object current = context.getAttribute(ATTRIBUTE);
+            if (!(current instanceof Actions)) {
+                return;
+            }
+
+            context.removeAttribute(ATTRIBUTE);
+            actions = new ArrayList<>((Actions) current);
+        }
+
+        for (int i = actions.size(); i-- > 0;) {
+            try {
+                actions.get(i).run();
+            } catch (RuntimeException e) {
+                context.log("Cleanup action failed.", e);
+            }
+        }
+    }
+
+    /**
+     * A list of the actions, distinguishable from other attribute values.
+     */
+    private static final class Actions extends ArrayList<Runnable> {
+
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new instance.
+         */
+        public Actions() {
+            // Default constructor
+        }
+    }
+}
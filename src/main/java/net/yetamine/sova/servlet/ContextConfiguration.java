@@ -0,0 +1,284 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import javax.servlet.ServletContext;
+
+/**
+ * A group of context symbols whose values are published atomically.
+ *
+ * <p>
+ * Reading several context attributes, while another thread updates them one
+ * by one, may mix old and new values. This class keeps the values of all its
+ * members in an immutable {@link Snapshot} stored in a single attribute, so a
+ * reader gets a consistent view with a single attribute lookup, i.e., with a
+ * single volatile read in common containers, and needs no lock. Writers make
+ * an updated copy of the snapshot and replace it; concurrent writers of the
+ * same instance are serialized, therefore no update is lost.
+ *
+ * <p>
+ * The values of the members are not visible as individual attributes, hence
+ * the members should be read from a snapshot.
+ */
+public final class ContextConfiguration {
+
+    /** Name of the attribute holding the snapshot. */
+    private final String attribute;
+    /** Names of the member attributes. */
+    private final Set<String> members;
+    /** Empty snapshot. */
+    private final Snapshot empty;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeName
+     *            the name of the attribute to hold the snapshots. It must not
+     *            be {@code null}.
+     * @param symbols
+     *            the symbols of the members. It must not be {@code null}.
+     */
+    public ContextConfiguration(String attributeName, ServletContextSymbol<?>... symbols) {
+        attribute = Objects.requireNonNull(attributeName);
+        final Set<String> names = new HashSet<>();
+        Arrays.stream(symbols).map(ServletContextSymbol::attribute).forEach(names::add);
+        members = Collections.unmodifiableSet(names);
+        empty = new Snapshot(this, Collections.emptyMap(), 0);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ContextConfiguration[attribute=%s, members=%s]", attribute, members);
+    }
+
+    /**
+     * Returns the name of the attribute holding the snapshots.
+     *
+     * @return the name of the attribute holding the snapshots
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * Returns the names of the member attributes.
+     *
+     * @return the names of the member attributes
+     */
+    public Set<String> members() {
+        return members;
+    }
+
+    /**
+     * Returns the current snapshot.
+     *
+     * @param source
+     *            the context to read. It must not be {@code null}.
+     *
+     * @return the current snapshot, or an empty snapshot if there is none
+     */
+    public Snapshot snapshot(ServletContext source) {
+        final Object result = source.getAttribute(attribute);
+        return (result instanceof Snapshot) && (((Snapshot) result).configuration == this) ? (Snapshot) result : empty;
+    }
+
+    /**
+     * Updates the current snapshot atomically.
+     *
+     * @param target
+     *            the context to update. It must not be {@code null}.
+     * @param update
+     *            the function to make the new snapshot from the current one.
+     *            It must not be {@code null} and it must return a snapshot of
+     *            this instance.
+     *
+     * @return the published snapshot
+     */
+    public Snapshot update(ServletContext target, UnaryOperator<Snapshot> update) {
+        synchronized (this) {
+            final Snapshot current = snapshot(target);
+            final Snapshot result = update.apply(current);
+
+            if (result.configuration != this) {
+                throw new IllegalArgumentException("Snapshot of a different configuration.");
+            }
+
+            if (result != current) {
+                target.setAttribute(attribute, new Snapshot(this, result.values, current.version + 1));
+            }
+
+            return snapshot(target);
+        }
+    }
+
+    /**
+     * Removes the current snapshot.
+     *
+     * @param target
+     *            the context to update. It must not be {@code null}.
+     */
+    public void clear(ServletContext target) {
+        synchronized (this) {
+            target.removeAttribute(attribute);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the member values.
+     */
+    public static final class Snapshot {
+
+        /** Configuration which this instance belongs to. */
+        final ContextConfiguration configuration;
+        /** Values of the members. */
+        final Map<String, Object> values;
+        /** Version of the snapshot. */
+        final long version;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param owner
+         *            the owning configuration. It must not be {@code null}.
+         * @param memberValues
+         *            the values of the members. It must not be {@code null}.
+         * @param snapshotVersion
+         *            the version of the snapshot
+         */
+        Snapshot(ContextConfiguration owner, Map<String, Object> memberValues, long snapshotVersion) {
+            configuration = owner;
+            values = memberValues;
+            version = snapshotVersion;
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("Snapshot[version=%d, values=%s]", version, values);
+        }
+
+        /**
+         * Returns the version of the snapshot, which increases with every
+         * published update; an empty snapshot of a fresh context has version
+         * zero.
+         *
+         * @return the version of the snapshot
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Returns the raw values of the members.
+         *
+         * @return the raw values of the members
+         */
+        public Map<String, Object> values() {
+            return values;
+        }
+
+        /**
+         * Returns the adapted value of the given member.
+         *
+         * @param <T>
+         *            the type of the value
+         * @param symbol
+         *            the symbol of the member. It must not be {@code null}.
+         *
+         * @return the adapted value, or {@code null} if not possible
+         */
+        public <T> T get(ServletContextSymbol<T> symbol) {
+            return symbol.derive(values.get(symbol.attribute()));
+        }
+
+        /**
+         * Returns the adapted value of the given member as an {@link Optional}.
+         *
+         * @param <T>
+         *            the type of the value
+         * @param symbol
+         *            the symbol of the member. It must not be {@code null}.
+         *
+         * @return the adapted value as an {@link Optional}
+         */
+        public <T> Optional<T> find(ServletContextSymbol<T> symbol) {
+            return Optional.ofNullable(get(symbol));
+        }
+
+        /**
+         * Returns a snapshot with the given member value.
+         *
+         * @param <T>
+         *            the type of the value
+         * @param symbol
+         *            the symbol of the member. It must not be {@code null}.
+         * @param value
+         *            the value to set, {@code null} to remove the value
+         *
+         * @return a snapshot with the given member value
+         *
+         * @throws IllegalArgumentException
+         *             if the symbol is not a member of the configuration
+         */
+        public <T> Snapshot with(ServletContextSymbol<T> symbol, T value) {
+            final String name = symbol.attribute();
+            if (!configuration.members.contains(name)) {
+                throw new IllegalArgumentException("Not a member: " + name);
+            }
+
+            if (Objects.equals(values.get(name), value)) {
+                return this;
+            }
+
+            final Map<String, Object> update = new HashMap<>(values);
+            if (value != null) {
+                update.put(name, value);
+            } else {
+                update.remove(name);
+            }
+
+            return new Snapshot(configuration, Collections.unmodifiableMap(update), version);
+        }
+
+        /**
+         * Returns a snapshot without the given member value.
+         *
+         * @param symbol
+         *            the symbol of the member. It must not be {@code null}.
+         *
+         * @return a snapshot without the given member value
+         */
+        public Snapshot without(ServletContextSymbol<?> symbol) {
+            return with(symbol, null);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * A filter that copies the context values of a set of {@link ServletSymbol}
+ * instances into each request at its entry.
+ *
+ * <p>
+ * When a {@link ServletSymbol} falls through to the context, it must get the
+ * context of the request and look the attribute up once more. Hoisting the
+ * values lets the symbols find them in the request instead: the context value
+ * is copied to the request attribute of the symbol, unless the request has a
+ * value already. Any code reading the request attributes sees the value then,
+ * as if the request defined it, and removing the attribute from the request
+ * removes the hoisted value as well, so that the symbol falls back to the
+ * context again.
+ *
+ * <p>
+ * The hoisted values reflect the context at the request entry, so this filter
+ * suits the context attributes that do not change while serving requests, like
+ * configuration. A context attribute missing at the entry is not hoisted, so
+ * that the symbols look it up in the context later.
+ *
+ * <p>
+ * Only the requests passing this filter are affected; the symbols themselves
+ * know nothing about hoisting and read the request and the context as usual.
+ */
+public final class ContextHoistingFilter implements Filter {
+
+    /** Hoisted symbols. */
+    private final ServletSymbol<?>[] symbols;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param hoistedSymbols
+     *            the symbols to hoist. It must not be {@code null}.
+     */
+    public ContextHoistingFilter(Collection<? extends ServletSymbol<?>> hoistedSymbols) {
+        final List<ServletSymbol<?>> list = new ArrayList<>(hoistedSymbols);
+        symbols = list.toArray(new ServletSymbol<?>[list.size()]);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ContextHoistingFilter[symbols=%d]", symbols.length);
+    }
+
+    /**
+     * Hoists the context values into the given request.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     */
+    public void hoist(ServletRequest request) {
+        final ServletContext context = request.getServletContext();
+
+        for (ServletSymbol<?> symbol : symbols) {
+            final ServletRequestSymbol<?> requestSymbol = symbol.forRequest();
+            if (requestSymbol.pull(request) == null) {
+                final Object value = symbol.forContext().pull(context);
+                if (value != null) {
+                    request.setAttribute(requestSymbol.attribute(), value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    /**
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        hoist(request);
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * @see javax.servlet.Filter#destroy()
+     */
+    public void destroy() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import net.yetamine.sova.AdaptationResult;
+
+/**
+ * A symbol reading an attribute from the context of another web application,
+ * which {@link ServletContext#getContext(String)} resolves.
+ *
+ * <p>
+ * Resolving the foreign context may be slow, therefore an instance resolves it
+ * once for each local context and caches the handle, so that an instance shared
+ * by several web applications, e.g., through a common class loader, keeps a
+ * handle for each of them. The cache is a small copy-on-write array, which is
+ * fine for the few local contexts an instance may see. A cached handle is:
+ *
+ * <ul>
+ * <li>revalidated on the first lookup after the revalidation period elapses,
+ * so that a redeployed foreign application, or a foreign context that could
+ * not be resolved before, is found within the period without resolving the
+ * context on every lookup; revalidating a handle that has not changed just
+ * renews it without allocating anything,</li>
+ * <li>discarded on {@link #invalidate()},</li>
+ * <li>and discarded when the garbage collector reclaims the local or the
+ * foreign context, since the handles are referenced weakly, so that a
+ * long-lived instance does not keep an undeployed application reachable.</li>
+ * </ul>
+ *
+ * <p>
+ * The operations taking a request use the request's context as the local one.
+ * When the foreign context can't be resolved, e.g., because the container does
+ * not allow the cross-context access, the attribute appears missing.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class CrossContextSymbol<T> implements ServletRequestValue<T> {
+
+    /** Default revalidation period. */
+    private static final Duration REVALIDATION = Duration.ofSeconds(1);
+
+    /** Path of the foreign context. */
+    private final String uripath;
+    /** Symbol for the attribute in the foreign context. */
+    private final ServletContextSymbol<T> symbol;
+    /** Revalidation period in nanoseconds. */
+    private final long revalidation;
+    /** Source of the current time in nanoseconds. */
+    private final LongSupplier clock;
+    /** Factory of the references to the contexts. */
+    private final Function<? super ServletContext, ? extends Reference<ServletContext>> references;
+    /** Lock for updating the cached resolutions. */
+    private final Object lock = new Object();
+    /** Cached resolutions for the local contexts; replaced on updates. */
+    private volatile Resolution[] resolutions = new Resolution[0];
+
+    /**
+     * Creates a new instance with the default revalidation period.
+     *
+     * @param foreignPath
+     *            the path of the foreign context. It must not be {@code null}.
+     * @param foreignSymbol
+     *            the symbol for the attribute in the foreign context. It must
+     *            not be {@code null}.
+     */
+    public CrossContextSymbol(String foreignPath, ServletContextSymbol<T> foreignSymbol) {
+        this(foreignPath, foreignSymbol, REVALIDATION);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param foreignPath
+     *            the path of the foreign context. It must not be {@code null}.
+     * @param foreignSymbol
+     *            the symbol for the attribute in the foreign context. It must
+     *            not be {@code null}.
+     * @param revalidationPeriod
+     *            the period after which a lookup resolves the foreign context
+     *            again. It must not be negative.
+     */
+    public CrossContextSymbol(String foreignPath, ServletContextSymbol<T> foreignSymbol, Duration revalidationPeriod) {
+        this(foreignPath, foreignSymbol, revalidationPeriod, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param foreignPath
+     *            the path of the foreign context. It must not be {@code null}.
+     * @param foreignSymbol
+     *            the symbol for the attribute in the foreign context. It must
+     *            not be {@code null}.
+     * @param revalidationPeriod
+     *            the period after which a lookup resolves the foreign context
+     *            again. It must not be negative.
+     * @param nanoClock
+     *            the source of the current time in nanoseconds. It must not be
+     *            {@code null}.
+     */
+    CrossContextSymbol(String foreignPath, ServletContextSymbol<T> foreignSymbol, Duration revalidationPeriod, LongSupplier nanoClock) {
+        this(foreignPath, foreignSymbol, revalidationPeriod, nanoClock, WeakReference::new);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param foreignPath
+     *            the path of the foreign context. It must not be {@code null}.
+     * @param foreignSymbol
+     *            the symbol for the attribute in the foreign context. It must
+     *            not be {@code null}.
+     * @param revalidationPeriod
+     *            the period after which a lookup resolves the foreign context
+     *            again. It must not be negative.
+     * @param nanoClock
+     *            the source of the current time in nanoseconds. It must not be
+     *            {@code null}.
+     * @param referenceFactory
+     *            the factory of the references to the contexts, which should
+     *            make weak references. It must not be {@code null}.
+     */
+    CrossContextSymbol(String foreignPath, ServletContextSymbol<T> foreignSymbol, Duration revalidationPeriod, LongSupplier nanoClock, Function<? super ServletContext, ? extends Reference<ServletContext>> referenceFactory) {
+        if (revalidationPeriod.isNegative()) {
+            throw new IllegalArgumentException("Revalidation period must not be negative: " + revalidationPeriod);
+        }
+
+        uripath = Objects.requireNonNull(foreignPath);
+        symbol = Objects.requireNonNull(foreignSymbol);
+        clock = Objects.requireNonNull(nanoClock);
+        references = Objects.requireNonNull(referenceFactory);
+        revalidation = revalidationPeriod.toNanos();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("CrossContextSymbol[context=%s, attribute=%s]", uripath, symbol.attribute());
+    }
+
+    /**
+     * Returns the path of the foreign context.
+     *
+     * @return the path of the foreign context
+     */
+    public String uripath() {
+        return uripath;
+    }
+
+    /**
+     * Returns the symbol for the attribute in the foreign context.
+     *
+     * @return the symbol for the attribute in the foreign context
+     */
+    public ServletContextSymbol<T> symbol() {
+        return symbol;
+    }
+
+    /**
+     * Returns the foreign context.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return the foreign context, or an empty container if it can't be
+     *         resolved
+     */
+    public Optional<ServletContext> context(ServletContext local) {
+        return Optional.ofNullable(resolve(local));
+    }
+
+    /**
+     * Discards the cached foreign contexts.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            resolutions = new Resolution[0];
+        }
+    }
+
+    // Operations with the local context
+
+    /**
+     * Returns the attribute value from the foreign context without any
+     * adaptation.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return the attribute value without any adaptation
+     */
+    public Object pull(ServletContext local) {
+        final ServletContext foreign = resolve(local);
+        return (foreign != null) ? symbol.pull(foreign) : null;
+    }
+
+    /**
+     * Returns an adapted value from the foreign context.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     */
+    public T get(ServletContext local) {
+        return symbol.adapted(pull(local));
+    }
+
+    /**
+     * Returns an adapted value from the foreign context, or the default.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return the result of the adaptation, or the default
+     */
+    public T give(ServletContext local) {
+        final T result = get(local);
+        return (result != null) ? result : symbol.fallback().get();
+    }
+
+    /**
+     * Returns an adapted value from the foreign context as an {@link Optional}.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return an adapted value as an {@link Optional}
+     */
+    public Optional<T> find(ServletContext local) {
+        return Optional.ofNullable(get(local));
+    }
+
+    /**
+     * Returns a representation of an adapted value from the foreign context.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return the result of the adaptation
+     */
+    public AdaptationResult<T> yield(ServletContext local) {
+        return symbol.adaptedResult(pull(local));
+    }
+
+    /**
+     * Returns a value from the foreign context if it can supply a valid result,
+     * otherwise stores a surrogate value in the foreign context and returns it
+     * instead.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     * @param surrogate
+     *            the surrogate supplier. It must not be {@code null}.
+     *
+     * @return the original or surrogate value; {@code null} may be returned if
+     *         the surrogate does not pass the adaptation, and the surrogate is
+     *         not stored if the foreign context can't be resolved
+     */
+    public T supply(ServletContext local, Supplier<? extends T> surrogate) {
+        final T current = get(local);
+        if (current != null) {
+            return current;
+        }
+
+        final ServletContext foreign = resolve(local);
+        return (foreign != null) ? symbol.supply(foreign, surrogate) : symbol.derive(surrogate.get());
+    }
+
+    // Operations with a request
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#pull(javax.servlet.ServletRequest)
+     */
+    public Object pull(ServletRequest source) {
+        return pull(source.getServletContext());
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#get(javax.servlet.ServletRequest)
+     */
+    public T get(ServletRequest source) {
+        return get(source.getServletContext());
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#give(javax.servlet.ServletRequest)
+     */
+    public T give(ServletRequest source) {
+        return give(source.getServletContext());
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#find(javax.servlet.ServletRequest)
+     */
+    public Optional<T> find(ServletRequest source) {
+        return find(source.getServletContext());
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#yield(javax.servlet.ServletRequest)
+     */
+    public AdaptationResult<T> yield(ServletRequest source) {
+        return this.yield(source.getServletContext());
+    }
+
+    /**
+     * Returns the foreign context for the given local context, resolving it if
+     * the cached resolution is not valid.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     *
+     * @return the foreign context, or {@code null} if it can't be resolved
+     */
+    private ServletContext resolve(ServletContext local) {
+        final long now = clock.getAsLong();
+
+        Resolution current = null;
+        for (Resolution resolution : resolutions) {
+            if (resolution.local.get() == local) {
+                current = resolution;
+                break;
+            }
+        }
+
+        if (current != null) {
+            if (now - current.resolved < revalidation) {
+                if (current.foreign == null) { // Not resolvable until the revalidation
+                    return null;
+                }
+
+                final ServletContext result = current.foreign.get();
+                if (result != null) {
+                    return result;
+                }
+            }
+
+            final ServletContext result = local.getContext(uripath);
+            if (current.holds(result)) { // Unchanged, just renew
+                current.resolved = now;
+                return result;
+            }
+
+            update(local, new Resolution(references.apply(local), (result != null) ? references.apply(result) : null, now));
+            return result;
+        }
+
+        final ServletContext result = local.getContext(uripath);
+        update(local, new Resolution(references.apply(local), (result != null) ? references.apply(result) : null, now));
+        return result;
+    }
+
+    /**
+     * Stores the resolution for the given local context, replacing the former
+     * one and discarding the resolutions of the reclaimed contexts.
+     *
+     * @param local
+     *            the local context. It must not be {@code null}.
+     * @param resolution
+     *            the resolution to store. It must not be {@code null}.
+     */
+    private void update(ServletContext local, Resolution resolution) {
+        synchronized (lock) {
+            final List<Resolution> result = new ArrayList<>(resolutions.length + 1);
+            for (Resolution current : resolutions) {
+                final ServletContext context = current.local.get();
+                if ((context != null) && (context != local)) {
+                    result.add(current);
+                }
+            }
+
+            result.add(resolution);
+            resolutions = result.toArray(new Resolution[result.size()]);
+        }
+    }
+
+    /**
+     * A resolved foreign context.
+     */
+    private static final class Resolution {
+
+        /** Local context. */
+        final Reference<ServletContext> local;
+        /** Foreign context, or {@code null} if not resolved. */
+        final Reference<ServletContext> foreign;
+        /** Time of the resolution, renewed by revalidations. */
+        volatile long resolved;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param localContext
+         *            the reference to the local context. It must not be
+         *            {@code null}.
+         * @param foreignContext
+         *            the reference to the foreign context, or {@code null}
+         * @param resolutionTime
+         *            the time of the resolution
+         */
+        Resolution(Reference<ServletContext> localContext, Reference<ServletContext> foreignContext, long resolutionTime) {
+            local = localContext;
+            foreign = foreignContext;
+            resolved = resolutionTime;
+        }
+
+        /**
+         * Tests if this instance holds the given foreign context.
+         *
+         * @param context
+         *            the context to test
+         *
+         * @return {@code true} if this instance holds the given foreign
+         *         context, or holds none and the context is {@code null}
+         */
+        boolean holds(ServletContext context) {
+            return (foreign == null) ? (context == null) : ((context != null) && (foreign.get() == context));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.servlet.ServletRequest;
+
+import net.yetamine.sova.AdaptationResult;
+
+/**
+ * A request value computed from a request at most once per request.
+ *
+ * <p>
+ * An instance memoizes the result of the computation, including {@code null},
+ * in a map keyed by the instance itself, which all instances share in a single
+ * hidden request attribute, therefore it should be defined as a constant
+ * rather than created on demand, just like a symbol. The memoized result is
+ * not updated when the values, which it was derived from, change; use
+ * {@link #reset(ServletRequest)} if needed. A derived value has no fallback,
+ * hence {@link #give(ServletRequest)} returns the same as
+ * {@link #get(ServletRequest)}.
+ *
+ * <p>
+ * The shared map is not synchronized: like the request itself, it must be
+ * accessed by a single thread at a time. This holds for the usual request
+ * processing, including asynchronous processing that hands the request over
+ * between threads, but an application which accesses the request from several
+ * threads concurrently must synchronize the access to the derived values as
+ * well.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class DerivedRequestValue<T> implements ServletRequestValue<T> {
+
+    /** Symbol of the attribute holding the memoized results. */
+    private static final ServletRequestSymbol<Object> MEMO = new ServletRequestSymbol<>(ServletAttributeSymbol.name(DerivedRequestValue.class, "memo"), Object.class);
+    /** Marker of a memoized {@code null} result. */
+    private static final Object NONE = new Object();
+
+    /** Computation of the value. */
+    private final Function<? super ServletRequest, ? extends T> computation;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param valueComputation
+     *            the computation of the value. It must not be {@code null}.
+     */
+    private DerivedRequestValue(Function<? super ServletRequest, ? extends T> valueComputation) {
+        computation = Objects.requireNonNull(valueComputation);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param <T>
+     *            the type of resulting values
+     * @param computation
+     *            the computation of the value. It must not be {@code null}.
+     *
+     * @return the new instance
+     */
+    public static <T> DerivedRequestValue<T> of(Function<? super ServletRequest, ? extends T> computation) {
+        return new DerivedRequestValue<>(computation);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("DerivedRequestValue[computation=%s]", computation);
+    }
+
+    /**
+     * Returns the name of the attribute holding the memoized results of all
+     * instances.
+     *
+     * @return the name of the attribute holding the memoized results
+     */
+    public String attribute() {
+        return MEMO.attribute();
+    }
+
+    /**
+     * Discards the memoized result, so that the next request for the value
+     * computes it again.
+     *
+     * @param source
+     *            the request to reset. It must not be {@code null}.
+     */
+    public void reset(ServletRequest source) {
+        final Memo memo = memo(source);
+        if (memo != null) {
+            memo.remove(this);
+        }
+    }
+
+    /**
+     * Returns the value, computing it if not computed yet for the request.
+     *
+     * @see net.yetamine.sova.servlet.ServletRequestValue#pull(javax.servlet.ServletRequest)
+     */
+    public Object pull(ServletRequest source) {
+        final Memo memo = memo(source);
+        if (memo != null) {
+            final Object current = memo.get(this);
+            if (current != null) {
+                return (current != NONE) ? current : null;
+            }
+        }
+
+        final T result = computation.apply(source);
+        Memo target = memo(source); // The computation may have made it
+        if (target == null) {
+            target = new Memo();
+            MEMO.push(source, target);
+        }
+
+        target.put(this, (result != null) ? result : NONE);
+        return result;
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#get(javax.servlet.ServletRequest)
+     */
+    @SuppressWarnings("unchecked")
+    public T get(ServletRequest source) {
+        return (T) pull(source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#give(javax.servlet.ServletRequest)
+     */
+    public T give(ServletRequest source) {
+        return get(source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#find(javax.servlet.ServletRequest)
+     */
+    public Optional<T> find(ServletRequest source) {
+        return Optional.ofNullable(get(source));
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#yieldInto(javax.servlet.ServletRequest,
+     *      net.yetamine.sova.servlet.ResultHolder)
+     */
+    public boolean yieldInto(ServletRequest source, ResultHolder<? super T> holder) {
+        final T value = get(source);
+        return holder.set(value, value);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#yield(javax.servlet.ServletRequest)
+     */
+    @SuppressWarnings("unchecked")
+    public AdaptationResult<T> yield(ServletRequest source) {
+        // The memo symbol adapts to Object, while the values are surely T
+        return (AdaptationResult<T>) (AdaptationResult<?>) MEMO.deriveResult(pull(source));
+    }
+
+    /**
+     * Returns the memoized results of the request.
+     *
+     * @param source
+     *            the request. It must not be {@code null}.
+     *
+     * @return the memoized results, or {@code null} if none
+     */
+    private static Memo memo(ServletRequest source) {
+        final Object result = MEMO.pull(source);
+        return (result instanceof Memo) ? (Memo) result : null;
+    }
+
+    /**
+     * Memoized results of a request, confined to the thread processing the
+     * request, hence not synchronized.
+     */
+    private static final class Memo extends IdentityHashMap<DerivedRequestValue<?>, Object> {
+
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new instance.
+         */
+        public Memo() {
+            // Default constructor
+        }
+    }
+}
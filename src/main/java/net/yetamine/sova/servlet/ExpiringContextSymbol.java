@@ -0,0 +1,461 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.servlet.ServletContext;
+
+/**
+ * A context attribute whose values expire and get refreshed ahead.
+ *
+ * <p>
+ * This class is useful for remote-derived data, like feature flags or keys,
+ * that should be reloaded periodically. A value carries its expiration time.
+ * When a reader finds an expired value, it starts an asynchronous refresh on
+ * the executor of this instance and returns the stale value meanwhile. At most
+ * one refresh runs for a context at a time. Readers therefore never block once
+ * an initial value exists; the initial value is loaded synchronously by the
+ * first reader, while concurrent first readers wait for it.
+ *
+ * <p>
+ * If the refresh fails, i.e., the loader throws an exception or returns
+ * {@code null}, the stale value stays for another period and the failure is
+ * reported in the log of the context.
+ *
+ * <p>
+ * The attribute holds an internal holder rather than the value itself, hence
+ * the value can be accessed only through an instance of this class. If the
+ * attribute holds another value, the operations fail with an
+ * {@link IllegalStateException} rather than replacing it.
+ *
+ * @param <T>
+ *            the type of the values
+ */
+public final class ExpiringContextSymbol<T> {
+
+    /** Name of the attribute. */
+    private final String attribute;
+    /** Loader of the values. */
+    private final Function<? super ServletContext, ? extends T> loader;
+    /** Default time to live in nanoseconds. */
+    private final long timeToLive;
+    /** Executor for refreshing. */
+    private final Executor executor;
+    /** Source of the current time in nanoseconds. */
+    private final LongSupplier clock;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeName
+     *            the name of the attribute. It must not be {@code null}.
+     * @param valueLoader
+     *            the loader of the values. It must not be {@code null}.
+     * @param ttl
+     *            the time to live of the loaded values. It must be positive.
+     * @param refreshExecutor
+     *            the executor for refreshing. It must not be {@code null}.
+     */
+    public ExpiringContextSymbol(String attributeName, Function<? super ServletContext, ? extends T> valueLoader, Duration ttl, Executor refreshExecutor) {
+        this(attributeName, valueLoader, ttl, refreshExecutor, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeName
+     *            the name of the attribute. It must not be {@code null}.
+     * @param valueLoader
+     *            the loader of the values. It must not be {@code null}.
+     * @param ttl
+     *            the time to live of the loaded values. It must be positive.
+     * @param refreshExecutor
+     *            the executor for refreshing. It must not be {@code null}.
+     * @param nanoClock
+     *            the source of the current time in nanoseconds. It must not be
+     *            {@code null}.
+     */
+    ExpiringContextSymbol(String attributeName, Function<? super ServletContext, ? extends T> valueLoader, Duration ttl, Executor refreshExecutor, LongSupplier nanoClock) {
+        attribute = Objects.requireNonNull(attributeName);
+        loader = Objects.requireNonNull(valueLoader);
+        executor = Objects.requireNonNull(refreshExecutor);
+        clock = Objects.requireNonNull(nanoClock);
+        timeToLive = positive(ttl);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ExpiringContextSymbol[attribute=%s, ttl=%s]", attribute, Duration.ofNanos(timeToLive));
+    }
+
+    /**
+     * Returns the name of the attribute.
+     *
+     * @return the name of the attribute
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * Returns the current value, loading it if there is none, and starts the
+     * refresh if the value expired.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the current value, or {@code null} if no value could be loaded
+     */
+    public T get(ServletContext source) {
+        final Holder<T> holder = holder(source);
+        final Entry<T> entry = holder.entry;
+
+        if (entry == null) {
+            return load(source, holder);
+        }
+
+        if (clock.getAsLong() - entry.expiration >= 0) {
+            refresh(source, holder);
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Returns the current value as an {@link Optional}; see
+     * {@link #get(ServletContext)}.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the current value as an {@link Optional}
+     */
+    public Optional<T> find(ServletContext source) {
+        return Optional.ofNullable(get(source));
+    }
+
+    /**
+     * Returns the current value without loading or refreshing it.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the current value, possibly expired, or {@code null} if there is
+     *         none
+     */
+    public T peek(ServletContext source) {
+        final Object current = source.getAttribute(attribute);
+
+        if (current instanceof Holder<?>) {
+            @SuppressWarnings("unchecked")
+            final Entry<T> entry = ((Holder<T>) current).entry;
+            return (entry != null) ? entry.value : null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets the value with the default time to live.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     * @param value
+     *            the value to set. It must not be {@code null}.
+     */
+    public void put(ServletContext target, T value) {
+        put(target, value, timeToLive);
+    }
+
+    /**
+     * Sets the value with the given time to live.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     * @param value
+     *            the value to set. It must not be {@code null}.
+     * @param ttl
+     *            the time to live of the value. It must be positive.
+     */
+    public void put(ServletContext target, T value, Duration ttl) {
+        put(target, value, positive(ttl));
+    }
+
+    /**
+     * Makes the current value expired, so that the next reading starts the
+     * refresh.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     */
+    public void invalidate(ServletContext target) {
+        final Holder<T> holder = holder(target);
+
+        final Entry<T> entry = holder.entry;
+        if (entry != null) {
+            holder.entry = new Entry<>(entry.value, clock.getAsLong());
+        }
+    }
+
+    /**
+     * Removes the value and the attribute.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     */
+    public void remove(ServletContext target) {
+        target.removeAttribute(attribute);
+    }
+
+    /**
+     * Starts the refresh if none runs.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return {@code true} if the refresh started
+     */
+    public boolean refresh(ServletContext target) {
+        return refresh(target, holder(target));
+    }
+
+    /**
+     * Sets the value with the given time to live.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     * @param value
+     *            the value to set. It must not be {@code null}.
+     * @param ttl
+     *            the time to live in nanoseconds
+     */
+    private void put(ServletContext target, T value, long ttl) {
+        holder(target).entry = new Entry<>(Objects.requireNonNull(value), clock.getAsLong() + ttl);
+    }
+
+    /**
+     * Returns the holder for the context, creating it if missing.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     *
+     * @return the holder
+     *
+     * @throws IllegalStateException
+     *             if the attribute holds a value which is not a holder
+     */
+    @SuppressWarnings("unchecked")
+    private Holder<T> holder(ServletContext context) {
+        final Object current = context.getAttribute(attribute);
+        if (current instanceof Holder<?>) {
+            return (Holder<T>) current;
+        }
+
+        synchronized (this) { // Avoid racing with other threads of this instance
+            final Object present = context.getAttribute(attribute);
+            if (present instanceof Holder<?>) {
+                return (Holder<T>) present;
+            }
+
+            if (present != null) { // Do not replace a value that does not belong here
+                throw new IllegalStateException(String.format("Attribute '%s' holds an unexpected value: %s", attribute, present.getClass().getName()));
+            }
+
+            final Holder<T> result = new Holder<>();
+            context.setAttribute(attribute, result);
+            return result;
+        }
+    }
+
+    /**
+     * Loads the initial value.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     * @param holder
+     *            the holder to update. It must not be {@code null}.
+     *
+     * @return the loaded value, or {@code null} if none could be loaded
+     */
+    private T load(ServletContext context, Holder<T> holder) {
+        synchronized (holder) {
+            final Entry<T> current = holder.entry;
+            if (current != null) { // Loaded by another thread
+                return current.value;
+            }
+
+            final T result = loader.apply(context);
+            if (result != null) {
+                holder.entry = new Entry<>(result, clock.getAsLong() + timeToLive);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Starts the refresh if none runs.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     * @param holder
+     *            the holder to update. It must not be {@code null}.
+     *
+     * @return {@code true} if the refresh started
+     */
+    private boolean refresh(ServletContext context, Holder<T> holder) {
+        if (!holder.refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> reload(context, holder));
+            return true;
+        } catch (RejectedExecutionException e) {
+            holder.refreshing.set(false);
+            context.log(String.format("Could not refresh attribute '%s'.", attribute), e);
+            return false;
+        }
+    }
+
+    /**
+     * Reloads the value.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     * @param holder
+     *            the holder to update. It must not be {@code null}.
+     */
+    private void reload(ServletContext context, Holder<T> holder) {
+        try {
+            final T result = loader.apply(context);
+
+            if (result != null) {
+                holder.entry = new Entry<>(result, clock.getAsLong() + timeToLive);
+                return;
+            }
+
+            context.log(String.format("Could not refresh attribute '%s': no value loaded.", attribute));
+            postpone(holder);
+        } catch (RuntimeException e) {
+            context.log(String.format("Could not refresh attribute '%s'.", attribute), e);
+            postpone(holder);
+        } finally {
+            holder.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Postpones the expiration of the current value.
+     *
+     * @param holder
+     *            the holder to update. It must not be {@code null}.
+     */
+    private void postpone(Holder<T> holder) {
+        final Entry<T> entry = holder.entry;
+        if (entry != null) {
+            holder.entry = new Entry<>(entry.value, clock.getAsLong() + timeToLive);
+        }
+    }
+
+    /**
+     * Converts the duration to nanoseconds.
+     *
+     * @param duration
+     *            the duration. It must not be {@code null}.
+     *
+     * @return the duration in nanoseconds
+     *
+     * @throws IllegalArgumentException
+     *             if the duration is not positive
+     */
+    private static long positive(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive: " + duration);
+        }
+
+        return duration.toNanos();
+    }
+
+    /**
+     * An immutable value with its expiration time.
+     *
+     * @param <T>
+     *            the type of the value
+     */
+    private static final class Entry<T> {
+
+        /** Value. */
+        final T value;
+        /** Expiration time in nanoseconds. */
+        final long expiration;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param entryValue
+         *            the value
+         * @param expirationTime
+         *            the expiration time in nanoseconds
+         */
+        public Entry(T entryValue, long expirationTime) {
+            value = entryValue;
+            expiration = expirationTime;
+        }
+    }
+
+    /**
+     * A holder of the current entry stored in the attribute.
+     *
+     * @param <T>
+     *            the type of the value
+     */
+    private static final class Holder<T> {
+
+        /** Current entry. */
+        volatile Entry<T> entry;
+        /** Indicates a running refresh. */
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Creates a new instance.
+         */
+        public Holder() {
+            // Default constructor
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            final Entry<T> current = entry;
+            return String.format("Expiring[%s]", (current != null) ? current.value : null);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An estimator of the heap footprint of attribute values.
+ */
+@FunctionalInterface
+public interface FootprintEstimator {
+
+    /**
+     * Estimates the retained size of the given value.
+     *
+     * @param value
+     *            the value to estimate
+     *
+     * @return the estimated number of bytes, zero for {@code null}
+     */
+    long estimate(Object value);
+
+    /**
+     * Returns an estimator using rough, but cheap heuristics for common types.
+     *
+     * <p>
+     * The estimator counts strings, boxed primitives and arrays with typical
+     * sizes of a 64-bit virtual machine with compressed references. Elements of
+     * arrays, collections and maps are sampled: at most a few of them are
+     * estimated and the average is extrapolated, while the nesting is limited
+     * as well, so that the cost of an estimate stays bounded. Other objects are
+     * counted as small objects of a fixed size of two object headers without
+     * walking their fields, hence an object wrapping a large structure, like a
+     * domain object holding a table, is underestimated badly; use
+     * {@link #standard(Map)} to estimate such types properly.
+     *
+     * @return the standard estimator
+     */
+    static FootprintEstimator standard() {
+        return value -> StandardFootprintEstimator.estimate(value, 0, Collections.emptyMap());
+    }
+
+    /**
+     * Returns an estimator like {@link #standard()}, which uses the given
+     * estimators for the values of the given classes, including the elements
+     * of sampled containers.
+     *
+     * @param estimators
+     *            the estimators for the values of the exact classes. It must
+     *            not be {@code null}.
+     *
+     * @return the standard estimator with the given estimators
+     */
+    static FootprintEstimator standard(Map<Class<?>, ? extends FootprintEstimator> estimators) {
+        final Map<Class<?>, FootprintEstimator> custom = new HashMap<>(estimators);
+        return value -> StandardFootprintEstimator.estimate(value, 0, custom);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Map;
+
+/**
+ * An {@link AttributeScope} for {@link Map} stores.
+ */
+final class MapAttributeScope implements AttributeScope<Map<String, Object>> {
+
+    /** Sole instance of this class. */
+    static final MapAttributeScope INSTANCE = new MapAttributeScope();
+
+    /**
+     * Creates a new instance.
+     */
+    private MapAttributeScope() {
+        // Default constructor
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "AttributeScope[map]";
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.AttributeScope#getAttribute(java.lang.Object,
+     *      java.lang.String)
+     */
+    public Object getAttribute(Map<String, Object> source, String name) {
+        return source.get(name);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.AttributeScope#setAttribute(java.lang.Object,
+     *      java.lang.String, java.lang.Object)
+     */
+    public void setAttribute(Map<String, Object> consumer, String name, Object value) {
+        if (value == null) {
+            consumer.remove(name);
+            return;
+        }
+
+        consumer.put(name, value);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.AttributeScope#removeAttribute(java.lang.Object,
+     *      java.lang.String)
+     */
+    public void removeAttribute(Map<String, Object> consumer, String name) {
+        consumer.remove(name);
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+
+import net.yetamine.sova.AdaptationResult;
+
+/**
+ * A request value which supplies missing values from a pool and returns them
+ * back to the pool when the request is destroyed.
+ *
+ * <p>
+ * This class is useful for per-request scratch objects, like buffers, builders
+ * or parsers, which would be allocated for each request otherwise. The pool is
+ * a bounded array of slots shared by all threads, which are taken and returned
+ * with atomic operations, and returning a value happens in
+ * {@link #requestDestroyed(ServletRequestEvent)}, therefore an instance must be
+ * registered as a listener of the servlet context, which {@link #install(ServletContext)}
+ * does. A value should not be used after the request ends then.
+ *
+ * <p>
+ * The pool holds no per-thread state, so that container threads, which outlive
+ * the web application, do not keep the pooled values and their class loader.
+ * The pool is cleared when the context is destroyed, provided that
+ * {@link ContextCleanupListener} is declared; the values taken, but never
+ * returned, e.g., due to a missing listener registration, are reported then as
+ * leaked in the log of the context and counted in {@link #leaked()}.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class PooledRequestSymbol<T> implements ServletRequestValue<T>, ServletRequestListener {
+
+    /** Symbol for accessing the attribute with the value. */
+    private final ServletRequestSymbol<T> symbol;
+    /** Name of the attribute holding the lease. */
+    private final String leaseAttribute;
+    /** Factory for new values. */
+    private final Supplier<? extends T> factory;
+    /** Recycling action for returned values. */
+    private final Consumer<? super T> recycler;
+    /** Slots of the pool, {@code null} for an empty slot. */
+    private final AtomicReferenceArray<T> pool;
+
+    /** Number of created values. */
+    private final LongAdder created = new LongAdder();
+    /** Number of reused values. */
+    private final LongAdder reused = new LongAdder();
+    /** Number of returned values. */
+    private final LongAdder returned = new LongAdder();
+    /** Number of leaked values. */
+    private final LongAdder leaked = new LongAdder();
+    /** Number of values taken, but not returned. */
+    private final LongAdder outstanding = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param requestSymbol
+     *            the symbol for the attribute to hold the values. It must not
+     *            be {@code null}.
+     * @param valueFactory
+     *            the factory for new values. It must not be {@code null} and
+     *            it must not return {@code null}.
+     * @param valueRecycler
+     *            the action to clear a value before returning it to the pool.
+     *            It must not be {@code null}.
+     * @param poolCapacity
+     *            the maximal number of values kept in the pool. It must not be
+     *            negative.
+     */
+    public PooledRequestSymbol(ServletRequestSymbol<T> requestSymbol, Supplier<? extends T> valueFactory, Consumer<? super T> valueRecycler, int poolCapacity) {
+        if (poolCapacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + poolCapacity);
+        }
+
+        symbol = Objects.requireNonNull(requestSymbol);
+        factory = Objects.requireNonNull(valueFactory);
+        recycler = Objects.requireNonNull(valueRecycler);
+        leaseAttribute = ServletAttributeSymbol.name(PooledRequestSymbol.class, symbol.attribute());
+        pool = new AtomicReferenceArray<>(poolCapacity);
+    }
+
+    /**
+     * Creates a new instance with no recycling action.
+     *
+     * @param requestSymbol
+     *            the symbol for the attribute to hold the values. It must not
+     *            be {@code null}.
+     * @param valueFactory
+     *            the factory for new values. It must not be {@code null} and
+     *            it must not return {@code null}.
+     * @param poolCapacity
+     *            the maximal number of values kept in the pool. It must not be
+     *            negative.
+     */
+    public PooledRequestSymbol(ServletRequestSymbol<T> requestSymbol, Supplier<? extends T> valueFactory, int poolCapacity) {
+        this(requestSymbol, valueFactory, value -> {
+            // Nothing to recycle
+        }, poolCapacity);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("PooledRequestSymbol[symbol=%s, created=%d, reused=%d, returned=%d, leaked=%d]", symbol, created(), reused(), returned(), leaked());
+    }
+
+    /**
+     * Registers this instance as a listener of the given context, so that the
+     * values are returned when the requests end, and registers clearing the
+     * pool when the context is destroyed.
+     *
+     * <p>
+     * This method must be invoked during the context initialization, since the
+     * container does not accept listeners later.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     */
+    public void install(ServletContext context) {
+        context.addListener(this);
+        ContextCleanupListener.register(context, () -> clear(context));
+    }
+
+    /**
+     * Returns the symbol for accessing the attribute.
+     *
+     * @return the symbol for accessing the attribute
+     */
+    public ServletRequestSymbol<T> symbol() {
+        return symbol;
+    }
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#pull(javax.servlet.ServletRequest)
+     */
+    public Object pull(ServletRequest source) {
+        return symbol.pull(source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#get(javax.servlet.ServletRequest)
+     */
+    public T get(ServletRequest source) {
+        return symbol.get(source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#give(javax.servlet.ServletRequest)
+     */
+    public T give(ServletRequest source) {
+        return symbol.give(source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#find(javax.servlet.ServletRequest)
+     */
+    public Optional<T> find(ServletRequest source) {
+        return symbol.find(source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#yield(javax.servlet.ServletRequest)
+     */
+    public AdaptationResult<T> yield(ServletRequest source) {
+        return symbol.yield(source);
+    }
+
+    /**
+     * Returns a value from the source if present, otherwise takes a value from
+     * the pool, or creates a new one if the pool is empty, and stores it in the
+     * source.
+     *
+     * @param source
+     *            the source to provide or accept the value. It must not be
+     *            {@code null}.
+     *
+     * @return the value present in the source
+     */
+    public T supply(ServletRequest source) {
+        final T current = symbol.get(source);
+        if (current != null) {
+            return current;
+        }
+
+        final T result = acquire();
+        outstanding.increment();
+        source.setAttribute(leaseAttribute, new Lease<>(result));
+        symbol.push(source, result);
+        return result;
+    }
+
+    /**
+     * Returns the value taken from the pool for the given request back to the
+     * pool and removes it from the request. If the request has no such value,
+     * nothing happens.
+     *
+     * @param source
+     *            the request to release. It must not be {@code null}.
+     */
+    public void release(ServletRequest source) {
+        final Object lease = source.getAttribute(leaseAttribute);
+        if (!(lease instanceof Lease<?>)) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        final Lease<T> current = (Lease<T>) lease;
+        source.removeAttribute(leaseAttribute);
+        if (symbol.pull(source) == current.value) {
+            source.removeAttribute(symbol.attribute());
+        }
+
+        outstanding.decrement();
+        recycle(current.value);
+    }
+
+    /**
+     * Drops the pooled values and reports the values that were taken, but not
+     * returned, as leaked.
+     *
+     * @param context
+     *            the context for reporting the leaks. It may be {@code null}
+     *            if no reporting is possible.
+     *
+     * @return the number of leaks detected by this invocation
+     */
+    public int clear(ServletContext context) {
+        for (int i = 0; i < pool.length(); i++) {
+            pool.set(i, null);
+        }
+
+        final int result = (int) outstanding.sumThenReset();
+        if (result == 0) {
+            return 0;
+        }
+
+        leaked.add(result);
+        if (context != null) {
+            final String f = "Leaked %d pooled value(s) of attribute '%s': requests ended without returning them.";
+            context.log(String.format(f, result, symbol.attribute()));
+        }
+
+        return result;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestListener#requestInitialized(javax.servlet.ServletRequestEvent)
+     */
+    public void requestInitialized(ServletRequestEvent sre) {
+        // Nothing to do, values are taken lazily
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestListener#requestDestroyed(javax.servlet.ServletRequestEvent)
+     */
+    public void requestDestroyed(ServletRequestEvent sre) {
+        release(sre.getServletRequest());
+    }
+
+    /**
+     * Returns the number of values created by the factory.
+     *
+     * @return the number of values created by the factory
+     */
+    public long created() {
+        return created.sum();
+    }
+
+    /**
+     * Returns the number of values reused from the pool.
+     *
+     * @return the number of values reused from the pool
+     */
+    public long reused() {
+        return reused.sum();
+    }
+
+    /**
+     * Returns the number of values returned to the pool.
+     *
+     * @return the number of values returned to the pool
+     */
+    public long returned() {
+        return returned.sum();
+    }
+
+    /**
+     * Returns the number of leaked values detected so far.
+     *
+     * @return the number of leaked values detected so far
+     */
+    public long leaked() {
+        return leaked.sum();
+    }
+
+    /**
+     * Returns the number of values taken, but not returned nor known as leaked
+     * yet.
+     *
+     * @return the number of values taken, but not returned yet
+     */
+    public int outstanding() {
+        return (int) outstanding.sum();
+    }
+
+    /**
+     * Returns the slot where a thread should start searching the pool, so that
+     * the threads rather do not compete for the same slots.
+     *
+     * @return the starting slot
+     */
+    private int start() {
+        return (int) (Thread.currentThread().getId() % pool.length());
+    }
+
+    /**
+     * Takes a value from the pool or creates a new one.
+     *
+     * @return the value
+     */
+    private T acquire() {
+        final int length = pool.length();
+        if (length != 0) {
+            for (int i = 0, slot = start(); i < length; i++, slot = (slot + 1) % length) {
+                final T result = pool.get(slot);
+                if ((result != null) && pool.compareAndSet(slot, result, null)) {
+                    reused.increment();
+                    return result;
+                }
+            }
+        }
+
+        created.increment();
+        return Objects.requireNonNull(factory.get());
+    }
+
+    /**
+     * Recycles the value and returns it to the pool if there is space.
+     *
+     * @param value
+     *            the value to return. It must not be {@code null}.
+     */
+    private void recycle(T value) {
+        returned.increment();
+        recycler.accept(value);
+
+        final int length = pool.length();
+        if (length != 0) {
+            for (int i = 0, slot = start(); i < length; i++, slot = (slot + 1) % length) {
+                if ((pool.get(slot) == null) && pool.compareAndSet(slot, null, value)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A lease of a value, which marks the value as taken from the pool.
+     *
+     * @param <T>
+     *            the type of the value
+     */
+    private static final class Lease<T> {
+
+        /** Leased value. */
+        final T value;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param leased
+         *            the leased value. It must not be {@code null}.
+         */
+        public Lease(T leased) {
+            value = leased;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A filter that takes a token from a {@link RateLimitSymbol} for each HTTP
+ * request and rejects the request with the status 429 (Too Many Requests) and
+ * the {@code Retry-After} header when no token is available.
+ *
+ * <p>
+ * The requests take the tokens from the shared bucket, unless the filter has a
+ * key function, which selects the keyed bucket for each request; a request for
+ * which the function returns {@code null} uses the shared bucket.
+ */
+public final class RateLimitFilter implements Filter {
+
+    /** Status code for rejected requests, missing in the older API. */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /** Buckets to use. */
+    private final RateLimitSymbol symbol;
+    /** Key of a request, or {@code null} for the shared bucket only. */
+    private final Function<? super HttpServletRequest, String> key;
+    /** Number of accepted requests. */
+    private final LongAdder accepted = new LongAdder();
+    /** Number of rejected requests. */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new instance using the shared bucket.
+     *
+     * @param rateLimit
+     *            the buckets to use. It must not be {@code null}.
+     */
+    public RateLimitFilter(RateLimitSymbol rateLimit) {
+        symbol = Objects.requireNonNull(rateLimit);
+        key = null;
+    }
+
+    /**
+     * Creates a new instance using the keyed buckets.
+     *
+     * @param rateLimit
+     *            the buckets to use. It must not be {@code null}.
+     * @param keyFunction
+     *            the function to get the key of a request, e.g.,
+     *            {@link HttpServletRequest#getRemoteAddr()}. It must not be
+     *            {@code null}.
+     */
+    public RateLimitFilter(RateLimitSymbol rateLimit, Function<? super HttpServletRequest, String> keyFunction) {
+        symbol = Objects.requireNonNull(rateLimit);
+        key = Objects.requireNonNull(keyFunction);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("RateLimitFilter[symbol=%s, accepted=%d, rejected=%d]", symbol, accepted(), rejected());
+    }
+
+    /**
+     * Returns the number of accepted requests.
+     *
+     * @return the number of accepted requests
+     */
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * Returns the number of rejected requests.
+     *
+     * @return the number of rejected requests
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    /**
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final HttpServletRequest httpRequest = (HttpServletRequest) request;
+        final String requestKey = (key != null) ? key.apply(httpRequest) : null;
+        final ServletContext context = request.getServletContext();
+
+        final TokenBucket refused = (requestKey != null) ? symbol.acquire(context, requestKey) : symbol.acquire(context);
+        if (refused == null) {
+            accepted.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        rejected.increment();
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setHeader("Retry-After", Long.toString(seconds(refused.delay(1))));
+        httpResponse.sendError(SC_TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * @see javax.servlet.Filter#destroy()
+     */
+    public void destroy() {
+        // Nothing to release
+    }
+
+    /**
+     * Returns the whole number of seconds, rounded up, of the given duration,
+     * but at least one second.
+     *
+     * @param duration
+     *            the duration. It must not be {@code null}.
+     *
+     * @return the number of seconds
+     */
+    private static long seconds(Duration duration) {
+        final long nanos = duration.toNanos();
+        return Math.max((nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1), 1);
+    }
+}
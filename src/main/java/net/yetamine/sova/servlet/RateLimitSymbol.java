@@ -0,0 +1,383 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import javax.servlet.ServletContext;
+
+/**
+ * A context attribute holding {@link TokenBucket}s for rate limiting.
+ *
+ * <p>
+ * The attribute holds a shared bucket and, optionally, buckets for keys like
+ * client addresses or user names. The keyed buckets live in a concurrent map
+ * bounded by the given number of keys, which concurrent insertions may exceed
+ * slightly. When the map is full, the excessive keys share an overflow bucket
+ * and every {@code maxKeys}-th of them sweeps the map to drop the full buckets,
+ * which are equivalent to new ones, so that the sweeps cost a constant amount
+ * of work per key on average. Acquiring tokens therefore takes no locks: the
+ * keyed buckets spread the state across the keys and each bucket is updated
+ * with a single CAS.
+ *
+ * <p>
+ * A sweep removes a bucket only if it is still mapped to its key and puts it
+ * back if it got used meanwhile. Therefore {@link #acquire(ServletContext,
+ * String)} never loses a token taken from a bucket evicted concurrently, while
+ * a bucket obtained with {@link #bucket(ServletContext, String)} may become
+ * detached from the map if it fills up again before being used.
+ *
+ * <p>
+ * The attribute holds an internal holder rather than the buckets themselves,
+ * hence the buckets can be accessed only through an instance of this class. If
+ * the attribute holds another value, the operations fail with an
+ * {@link IllegalStateException} rather than replacing it.
+ */
+public final class RateLimitSymbol {
+
+    /** Name of the attribute. */
+    private final String attribute;
+    /** Capacity of the buckets. */
+    private final long capacity;
+    /** Refill period of the buckets. */
+    private final Duration refillPeriod;
+    /** Maximal number of keyed buckets. */
+    private final int maxKeys;
+    /** Source of the current time in nanoseconds. */
+    private final LongSupplier clock;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeName
+     *            the name of the attribute. It must not be {@code null}.
+     * @param bucketCapacity
+     *            the capacity of the buckets. It must be positive.
+     * @param bucketRefill
+     *            the time to regain a token. It must be positive.
+     * @param keyLimit
+     *            the maximal number of keyed buckets. It must not be negative;
+     *            zero makes all keys share the overflow bucket.
+     */
+    public RateLimitSymbol(String attributeName, long bucketCapacity, Duration bucketRefill, int keyLimit) {
+        this(attributeName, bucketCapacity, bucketRefill, keyLimit, System::nanoTime);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeName
+     *            the name of the attribute. It must not be {@code null}.
+     * @param bucketCapacity
+     *            the capacity of the buckets. It must be positive.
+     * @param bucketRefill
+     *            the time to regain a token. It must be positive.
+     * @param keyLimit
+     *            the maximal number of keyed buckets. It must not be negative;
+     *            zero makes all keys share the overflow bucket.
+     * @param nanoClock
+     *            the source of the current time in nanoseconds. It must not be
+     *            {@code null}.
+     */
+    RateLimitSymbol(String attributeName, long bucketCapacity, Duration bucketRefill, int keyLimit, LongSupplier nanoClock) {
+        if (keyLimit < 0) {
+            throw new IllegalArgumentException("Key limit must not be negative: " + keyLimit);
+        }
+
+        attribute = Objects.requireNonNull(attributeName);
+        clock = Objects.requireNonNull(nanoClock);
+        refillPeriod = Objects.requireNonNull(bucketRefill);
+        capacity = bucketCapacity;
+        maxKeys = keyLimit;
+
+        new TokenBucket(capacity, refillPeriod, clock); // Validate the arguments
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("RateLimitSymbol[attribute=%s, capacity=%d, refill=%s, keys=%d]", attribute, capacity, refillPeriod, maxKeys);
+    }
+
+    /**
+     * Returns the name of the attribute.
+     *
+     * @return the name of the attribute
+     */
+    public String attribute() {
+        return attribute;
+    }
+
+    /**
+     * Returns the shared bucket.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the shared bucket
+     */
+    public TokenBucket bucket(ServletContext source) {
+        return holder(source).shared;
+    }
+
+    /**
+     * Returns the bucket for the given key.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     * @param key
+     *            the key. It must not be {@code null}.
+     *
+     * @return the bucket for the key, which might be the overflow bucket if
+     *         there are too many keys
+     */
+    public TokenBucket bucket(ServletContext source, String key) {
+        return bucket(holder(source), key);
+    }
+
+    /**
+     * Acquires a token from the shared bucket.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return {@code true} if the token was acquired
+     */
+    public boolean tryAcquire(ServletContext source) {
+        return (acquire(source) == null);
+    }
+
+    /**
+     * Acquires a token from the bucket for the given key.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     * @param key
+     *            the key. It must not be {@code null}.
+     *
+     * @return {@code true} if the token was acquired
+     */
+    public boolean tryAcquire(ServletContext source, String key) {
+        return (acquire(source, key) == null);
+    }
+
+    /**
+     * Acquires a token from the shared bucket and returns the bucket if it has
+     * no token available.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return {@code null} if the token was acquired, otherwise the bucket that
+     *         refused it, e.g., for estimating the delay
+     */
+    public TokenBucket acquire(ServletContext source) {
+        final TokenBucket result = bucket(source);
+        return result.tryAcquire() ? null : result;
+    }
+
+    /**
+     * Acquires a token from the bucket for the given key and returns the bucket
+     * if it has no token available.
+     *
+     * <p>
+     * Unlike calling {@link #bucket(ServletContext, String)} after a refusal,
+     * which might return another bucket, e.g., a new one when the refusing one
+     * was the overflow bucket, this method returns the very bucket which the
+     * acquisition used.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     * @param key
+     *            the key. It must not be {@code null}.
+     *
+     * @return {@code null} if the token was acquired, otherwise the bucket that
+     *         refused it, e.g., for estimating the delay
+     */
+    public TokenBucket acquire(ServletContext source, String key) {
+        final Holder holder = holder(source);
+        final TokenBucket bucket = bucket(holder, key);
+        if (!bucket.tryAcquire()) {
+            return bucket;
+        }
+
+        if ((bucket != holder.overflow) && (holder.keyed.get(key) != bucket)) {
+            restore(holder, key, bucket); // Evicted meanwhile, keep the debit
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of keyed buckets.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the number of keyed buckets
+     */
+    public int keys(ServletContext source) {
+        return holder(source).keyed.size();
+    }
+
+    /**
+     * Removes the buckets from the context.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     */
+    public void remove(ServletContext target) {
+        target.removeAttribute(attribute);
+    }
+
+    /**
+     * Returns the bucket for the given key.
+     *
+     * @param holder
+     *            the holder of the buckets. It must not be {@code null}.
+     * @param key
+     *            the key. It must not be {@code null}.
+     *
+     * @return the bucket for the key, which might be the overflow bucket if
+     *         there are too many keys
+     */
+    private TokenBucket bucket(Holder holder, String key) {
+        final TokenBucket current = holder.keyed.get(key);
+        if (current != null) {
+            return current;
+        }
+
+        if (holder.keyed.size() >= maxKeys) {
+            if (Math.floorMod(holder.misses.getAndIncrement(), Math.max(maxKeys, 1)) != 0) {
+                return holder.overflow;
+            }
+
+            sweep(holder);
+            if (holder.keyed.size() >= maxKeys) {
+                return holder.overflow;
+            }
+        }
+
+        return holder.keyed.computeIfAbsent(key, k -> new TokenBucket(capacity, refillPeriod, clock));
+    }
+
+    /**
+     * Removes the full buckets from the holder.
+     *
+     * @param holder
+     *            the holder of the buckets. It must not be {@code null}.
+     */
+    private static void sweep(Holder holder) {
+        holder.keyed.forEach((key, bucket) -> {
+            if (bucket.isFull() && holder.keyed.remove(key, bucket) && !bucket.isFull()) {
+                restore(holder, key, bucket); // Used meanwhile, keep the debit
+            }
+        });
+    }
+
+    /**
+     * Puts back a bucket that was evicted although it was debited.
+     *
+     * @param holder
+     *            the holder of the buckets. It must not be {@code null}.
+     * @param key
+     *            the key of the bucket. It must not be {@code null}.
+     * @param bucket
+     *            the bucket to put back. It must not be {@code null}.
+     */
+    private static void restore(Holder holder, String key, TokenBucket bucket) {
+        final TokenBucket present = holder.keyed.putIfAbsent(key, bucket);
+        if ((present != null) && (present != bucket)) {
+            present.tryAcquire(); // Transfer the debit to the replacement
+        }
+    }
+
+    /**
+     * Returns the holder for the context, creating it if missing.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     *
+     * @return the holder
+     *
+     * @throws IllegalStateException
+     *             if the attribute holds a value which is not a holder
+     */
+    private Holder holder(ServletContext context) {
+        final Object current = context.getAttribute(attribute);
+        if (current instanceof Holder) {
+            return (Holder) current;
+        }
+
+        synchronized (context) { // Avoid racing with other users of the context
+            final Object present = context.getAttribute(attribute);
+            if (present instanceof Holder) {
+                return (Holder) present;
+            }
+
+            if (present != null) { // Do not replace a value that does not belong here
+                throw new IllegalStateException(String.format("Attribute '%s' holds an unexpected value: %s", attribute, present.getClass().getName()));
+            }
+
+            final Holder result = new Holder(this);
+            context.setAttribute(attribute, result);
+            return result;
+        }
+    }
+
+    /**
+     * A holder of the buckets stored in the attribute.
+     */
+    private static final class Holder {
+
+        /** Shared bucket. */
+        final TokenBucket shared;
+        /** Bucket for the keys exceeding the limit. */
+        final TokenBucket overflow;
+        /** Buckets of the keys. */
+        final ConcurrentMap<String, TokenBucket> keyed = new ConcurrentHashMap<>();
+        /** Number of the keys that found the map full. */
+        final AtomicInteger misses = new AtomicInteger();
+
+        /**
+         * Creates a new instance.
+         *
+         * @param symbol
+         *            the symbol providing the configuration. It must not be
+         *            {@code null}.
+         */
+        public Holder(RateLimitSymbol symbol) {
+            shared = new TokenBucket(symbol.capacity, symbol.refillPeriod, symbol.clock);
+            overflow = new TokenBucket(symbol.capacity, symbol.refillPeriod, symbol.clock);
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("RateLimit[shared=%s, keys=%d]", shared, keyed.size());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.servlet.ServletContext;
+
+import net.yetamine.sova.AdaptationResult;
+
+/**
+ * A context attribute whose value the garbage collector may reclaim and which
+ * is recomputed on demand then.
+ *
+ * <p>
+ * This class is useful for large, yet recomputable values, like lookup tables,
+ * which should rather cost some CPU than cause an out-of-memory error. The
+ * attribute holds the value behind a {@link SoftReference}, or possibly behind
+ * a {@link WeakReference}, and when the value is needed, but the reference was
+ * cleared, the value is recomputed. Concurrent readers of a reclaimed value
+ * wait for a single recomputation, while readers of a live value never block.
+ *
+ * <p>
+ * The reading operations adapt the value in the same way as the underlying
+ * symbol does, so they keep the semantics of the respective operations of
+ * {@link ServletContextSymbol} with the reclaimed value transparently replaced
+ * by the recomputed one. The attribute holds an internal holder rather than
+ * the value itself, hence the value can be accessed only through an instance
+ * of this class. If the attribute holds another value, the operations fail
+ * with an {@link IllegalStateException} rather than replacing it.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class ReclaimableContextSymbol<T> {
+
+    /** Symbol for the attribute and adaptation. */
+    private final ServletContextSymbol<T> symbol;
+    /** Computation of the value. */
+    private final Function<? super ServletContext, ?> computation;
+    /** Indicates weak references instead of soft references. */
+    private final boolean weak;
+
+    /** Number of computations. */
+    private final LongAdder computed = new LongAdder();
+    /** Number of reclaimed values found. */
+    private final LongAdder reclaimed = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeSymbol
+     *            the symbol for the attribute. It must not be {@code null}.
+     * @param valueComputation
+     *            the computation of the value. It must not be {@code null}.
+     * @param weakReferences
+     *            {@code true} to use weak references
+     */
+    private ReclaimableContextSymbol(ServletContextSymbol<T> attributeSymbol, Function<? super ServletContext, ?> valueComputation, boolean weakReferences) {
+        symbol = Objects.requireNonNull(attributeSymbol);
+        computation = Objects.requireNonNull(valueComputation);
+        weak = weakReferences;
+    }
+
+    /**
+     * Creates a new instance using soft references, which are cleared when the
+     * memory is short.
+     *
+     * @param <T>
+     *            the type of resulting values
+     * @param symbol
+     *            the symbol for the attribute. It must not be {@code null}.
+     * @param computation
+     *            the computation of the raw value, which is adapted then. It
+     *            must not be {@code null}.
+     *
+     * @return the new instance
+     */
+    public static <T> ReclaimableContextSymbol<T> soft(ServletContextSymbol<T> symbol, Function<? super ServletContext, ?> computation) {
+        return new ReclaimableContextSymbol<>(symbol, computation, false);
+    }
+
+    /**
+     * Creates a new instance using weak references, which are cleared when the
+     * value is not strongly reachable.
+     *
+     * @param <T>
+     *            the type of resulting values
+     * @param symbol
+     *            the symbol for the attribute. It must not be {@code null}.
+     * @param computation
+     *            the computation of the raw value, which is adapted then. It
+     *            must not be {@code null}.
+     *
+     * @return the new instance
+     */
+    public static <T> ReclaimableContextSymbol<T> weak(ServletContextSymbol<T> symbol, Function<? super ServletContext, ?> computation) {
+        return new ReclaimableContextSymbol<>(symbol, computation, true);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final String f = "ReclaimableContextSymbol[symbol=%s, weak=%s, computed=%d, reclaimed=%d]";
+        return String.format(f, symbol, weak, computed(), reclaimed());
+    }
+
+    /**
+     * Returns the symbol for the attribute.
+     *
+     * @return the symbol for the attribute
+     */
+    public ServletContextSymbol<T> symbol() {
+        return symbol;
+    }
+
+    /**
+     * Returns the raw value, computing it if missing or reclaimed.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the raw value, or {@code null} if the computation provided none,
+     *         which leads to computing again on the next invocation
+     */
+    public Object pull(ServletContext source) {
+        final Holder holder = holder(source);
+
+        final Object result = holder.reference.get();
+        return (result != null) ? result : compute(source, holder);
+    }
+
+    /**
+     * Returns the adapted value; see {@link ServletContextSymbol#get(ServletContext)}.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     */
+    public T get(ServletContext source) {
+        return symbol.derive(pull(source));
+    }
+
+    /**
+     * Returns the adapted value as an {@link Optional}; see
+     * {@link ServletContextSymbol#find(ServletContext)}.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the adapted value as an {@link Optional}
+     */
+    public Optional<T> find(ServletContext source) {
+        return Optional.ofNullable(get(source));
+    }
+
+    /**
+     * Returns the representation of the adapted value; see
+     * {@link ServletContextSymbol#yield(ServletContext)}.
+     *
+     * @param source
+     *            the context to use. It must not be {@code null}.
+     *
+     * @return the result of the adaptation
+     */
+    public AdaptationResult<T> yield(ServletContext source) {
+        return symbol.adaptedResult(pull(source));
+    }
+
+    /**
+     * Sets the value, which may be reclaimed and recomputed then.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     * @param value
+     *            the value to set. It must not be {@code null}.
+     */
+    public void put(ServletContext target, T value) {
+        holder(target).reference = reference(Objects.requireNonNull(value));
+    }
+
+    /**
+     * Removes the value and the attribute.
+     *
+     * @param target
+     *            the context to use. It must not be {@code null}.
+     */
+    public void remove(ServletContext target) {
+        target.removeAttribute(symbol.attribute());
+    }
+
+    /**
+     * Returns the number of the value computations, including the initial
+     * ones.
+     *
+     * @return the number of the value computations
+     */
+    public long computed() {
+        return computed.sum();
+    }
+
+    /**
+     * Returns the number of reclaimed values that had to be recomputed.
+     *
+     * @return the number of reclaimed values that had to be recomputed
+     */
+    public long reclaimed() {
+        return reclaimed.sum();
+    }
+
+    /**
+     * Computes the value if needed.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     * @param holder
+     *            the holder to update. It must not be {@code null}.
+     *
+     * @return the value
+     */
+    private Object compute(ServletContext context, Holder holder) {
+        synchronized (holder) {
+            final Reference<Object> current = holder.reference;
+
+            final Object present = current.get();
+            if (present != null) { // Computed by another thread meanwhile
+                return present;
+            }
+
+            if (current != Holder.EMPTY) {
+                reclaimed.increment();
+            }
+
+            final Object result = computation.apply(context);
+            computed.increment();
+            holder.reference = (result != null) ? reference(result) : Holder.EMPTY;
+            return result;
+        }
+    }
+
+    /**
+     * Makes a reference of the configured strength.
+     *
+     * @param value
+     *            the referent. It must not be {@code null}.
+     *
+     * @return the reference
+     */
+    private Reference<Object> reference(Object value) {
+        return weak ? new WeakReference<>(value) : new SoftReference<>(value);
+    }
+
+    /**
+     * Returns the holder for the context, creating it if missing.
+     *
+     * @param context
+     *            the context. It must not be {@code null}.
+     *
+     * @return the holder
+     *
+     * @throws IllegalStateException
+     *             if the attribute holds a value which is not a holder
+     */
+    private Holder holder(ServletContext context) {
+        final String attribute = symbol.attribute();
+
+        final Object current = context.getAttribute(attribute);
+        if (current instanceof Holder) {
+            return (Holder) current;
+        }
+
+        synchronized (this) { // Avoid racing with other threads of this instance
+            final Object present = context.getAttribute(attribute);
+            if (present instanceof Holder) {
+                return (Holder) present;
+            }
+
+            if (present != null) { // Do not replace a value that does not belong here
+                throw new IllegalStateException(String.format("Attribute '%s' holds an unexpected value: %s", attribute, present.getClass().getName()));
+            }
+
+            final Holder result = new Holder();
+            context.setAttribute(attribute, result);
+            return result;
+        }
+    }
+
+    /**
+     * A holder of the reference stored in the attribute.
+     */
+    private static final class Holder {
+
+        /** Reference for no value. */
+        static final Reference<Object> EMPTY = new WeakReference<>(null);
+
+        /** Current reference. */
+        volatile Reference<Object> reference = EMPTY;
+
+        /**
+         * Creates a new instance.
+         */
+        public Holder() {
+            // Default constructor
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("Reclaimable[%s]", reference.get());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+/**
+ * A mutable holder of an adaptation outcome.
+ *
+ * <p>
+ * This class provides the same information as an
+ * {@link net.yetamine.sova.AdaptationResult} does, but a caller may reuse an
+ * instance for any number of adaptations, so that loops which need both the
+ * argument and the adapted value do not allocate. Instances of this class
+ * are not thread-safe and they are supposed to be confined to the caller.
+ *
+ * @param <T>
+ *            the type of the adapted values
+ */
+public final class ResultHolder<T> {
+
+    /** Raw argument of the adaptation. */
+    private Object argument;
+    /** Adapted value. */
+    private T value;
+
+    /**
+     * Creates a new empty instance.
+     */
+    public ResultHolder() {
+        // Default constructor
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("ResultHolder[argument=%s, value=%s]", argument, value);
+    }
+
+    /**
+     * Sets the outcome of an adaptation.
+     *
+     * @param rawArgument
+     *            the argument of the adaptation
+     * @param adaptedValue
+     *            the adapted value, or {@code null} if the adaptation failed
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    public boolean set(Object rawArgument, T adaptedValue) {
+        argument = rawArgument;
+        value = adaptedValue;
+        return (adaptedValue != null);
+    }
+
+    /**
+     * Clears the outcome, so that the instance does not retain the values.
+     */
+    public void clear() {
+        argument = null;
+        value = null;
+    }
+
+    /**
+     * Returns the argument of the adaptation.
+     *
+     * @return the argument of the adaptation
+     */
+    public Object argument() {
+        return argument;
+    }
+
+    /**
+     * Returns the adapted value.
+     *
+     * @return the adapted value, or {@code null} if not present
+     */
+    public T get() {
+        return value;
+    }
+
+    /**
+     * Indicates whether the adapted value is present.
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    public boolean isPresent() {
+        return (value != null);
+    }
+}
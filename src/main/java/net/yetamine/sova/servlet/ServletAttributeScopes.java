@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * The {@link AttributeScope} singletons of the servlet stores.
+ */
+final class ServletAttributeScopes {
+
+    /** Scope of {@link ServletRequest} attributes. */
+    static final AttributeScope<ServletRequest> REQUEST = new RequestScope();
+    /** Scope of {@link ServletContext} attributes. */
+    static final AttributeScope<ServletContext> CONTEXT = new ContextScope();
+    /** Scope of {@link HttpSession} attributes. */
+    static final AttributeScope<HttpSession> SESSION = new SessionScope();
+
+    /**
+     * Prevents creating instances of this class.
+     */
+    private ServletAttributeScopes() {
+        throw new AssertionError();
+    }
+
+    /**
+     * An {@link AttributeScope} for {@link ServletRequest} stores.
+     */
+    private static final class RequestScope implements AttributeScope<ServletRequest> {
+
+        /**
+         * Creates a new instance.
+         */
+        RequestScope() {
+            // Default constructor
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "AttributeScope[request]";
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#getAttribute(java.lang.Object,
+         *      java.lang.String)
+         */
+        public Object getAttribute(ServletRequest source, String name) {
+            return source.getAttribute(name);
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#setAttribute(java.lang.Object,
+         *      java.lang.String, java.lang.Object)
+         */
+        public void setAttribute(ServletRequest consumer, String name, Object value) {
+            consumer.setAttribute(name, value);
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#removeAttribute(java.lang.Object,
+         *      java.lang.String)
+         */
+        public void removeAttribute(ServletRequest consumer, String name) {
+            consumer.removeAttribute(name);
+        }
+    }
+
+    /**
+     * An {@link AttributeScope} for {@link ServletContext} stores.
+     */
+    private static final class ContextScope implements AttributeScope<ServletContext> {
+
+        /**
+         * Creates a new instance.
+         */
+        ContextScope() {
+            // Default constructor
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "AttributeScope[context]";
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#getAttribute(java.lang.Object,
+         *      java.lang.String)
+         */
+        public Object getAttribute(ServletContext source, String name) {
+            return source.getAttribute(name);
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#setAttribute(java.lang.Object,
+         *      java.lang.String, java.lang.Object)
+         */
+        public void setAttribute(ServletContext consumer, String name, Object value) {
+            consumer.setAttribute(name, value);
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#removeAttribute(java.lang.Object,
+         *      java.lang.String)
+         */
+        public void removeAttribute(ServletContext consumer, String name) {
+            consumer.removeAttribute(name);
+        }
+    }
+
+    /**
+     * An {@link AttributeScope} for {@link HttpSession} stores.
+     */
+    private static final class SessionScope implements AttributeScope<HttpSession> {
+
+        /**
+         * Creates a new instance.
+         */
+        SessionScope() {
+            // Default constructor
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "AttributeScope[session]";
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#getAttribute(java.lang.Object,
+         *      java.lang.String)
+         */
+        public Object getAttribute(HttpSession source, String name) {
+            return source.getAttribute(name);
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#setAttribute(java.lang.Object,
+         *      java.lang.String, java.lang.Object)
+         */
+        public void setAttribute(HttpSession consumer, String name, Object value) {
+            consumer.setAttribute(name, value);
+        }
+
+        /**
+         * @see net.yetamine.sova.servlet.AttributeScope#removeAttribute(java.lang.Object,
+         *      java.lang.String)
+         */
+        public void removeAttribute(HttpSession consumer, String name) {
+            consumer.removeAttribute(name);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package net.yetamine.sova.servlet;
 import java.util.Objects;
 
 import net.yetamine.sova.AdaptationProvider;
+import net.yetamine.sova.AdaptationResult;
 import net.yetamine.sova.Mappable;
 import net.yetamine.sova.Substitutable;
 import net.yetamine.sova.symbols.DelegatingSymbol;
@@ -27,6 +28,12 @@ import net.yetamine.sova.symbols.DelegatingSymbol;
  * A symbol base for implementing symbols for various servlet-related attributes
  * that have unique string names.
  *
+ * <p>
+ * Each instance gets an {@link #id()} at construction, which is the same for
+ * all instances with the same attribute name, so that the subclasses compare
+ * and hash their instances with integer operations and the identifiers may
+ * index arrays or {@link SymbolSet}s.
+ *
  * @param <T>
  *            the type of resulting values
  */
@@ -34,6 +41,10 @@ public abstract class ServletAttributeSymbol<T> extends DelegatingSymbol<T> impl
 
     /** Name of the attribute. */
     private final String attribute;
+    /** Identifier of the attribute name. */
+    private final int id;
+    /** Adaptation pipeline to apply on raw values, or {@code null}. */
+    private final AdaptationPipeline<T> pipeline;
     /** Cached {@link #substitute()}. */
     private Mappable<String, T> substitute;
 
@@ -50,6 +61,25 @@ public abstract class ServletAttributeSymbol<T> extends DelegatingSymbol<T> impl
     protected ServletAttributeSymbol(String attributeName, AdaptationProvider<T> adaptation) {
         super(adaptation);
         attribute = Objects.requireNonNull(attributeName);
+        id = AttributeIds.id(attributeName);
+        pipeline = null;
+    }
+
+    /**
+     * Prepares a new instance with an adaptation pipeline.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param adaptation
+     *            the adaptation pipeline for the attribute value. It must not be
+     *            {@code null}.
+     */
+    protected ServletAttributeSymbol(String attributeName, AdaptationPipeline<T> adaptation) {
+        super(adaptation.adaptation());
+        attribute = Objects.requireNonNull(attributeName);
+        id = AttributeIds.id(attributeName);
+        pipeline = adaptation;
     }
 
     /**
@@ -91,6 +121,113 @@ public abstract class ServletAttributeSymbol<T> extends DelegatingSymbol<T> impl
         return attribute;
     }
 
+    /**
+     * Adapts a raw value of the attribute in the same way as the operations
+     * reading the attribute from a source do.
+     *
+     * @param value
+     *            the value to adapt
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     */
+    public final T derive(Object value) {
+        return (pipeline != null) ? pipeline.apply(value) : nullable(value);
+    }
+
+    /**
+     * Returns the identifier of the attribute name.
+     *
+     * <p>
+     * The identifier is a small non-negative integer, which is stable for the
+     * lifetime of the class loader of this library and the same for all
+     * instances with an equal attribute name.
+     *
+     * @return the identifier of the attribute name
+     */
+    public final int id() {
+        return id;
+    }
+
+    /**
+     * Adapts a raw value read from a store.
+     *
+     * <p>
+     * The operations returning the adapted value of the attribute from a store
+     * use this method, so that a subclass can cache the outcomes.
+     *
+     * @param value
+     *            the value to adapt
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     */
+    T adapted(Object value) {
+        return derive(value);
+    }
+
+    /**
+     * Adapts a raw value of the attribute in the same way as the operations
+     * yielding the adaptation result from a source do.
+     *
+     * @param value
+     *            the value to adapt
+     *
+     * @return the result of the adaptation
+     */
+    public final AdaptationResult<T> deriveResult(Object value) {
+        return adapt(convert(value));
+    }
+
+    /**
+     * Adapts a raw value read from a store like {@link #deriveResult(Object)},
+     * but using {@link #adapted(Object)}, so that the outcome may come from the
+     * cache of a subclass.
+     *
+     * @param value
+     *            the value to adapt
+     *
+     * @return the result of the adaptation
+     */
+    final AdaptationResult<T> adaptedResult(Object value) {
+        final T result = adapted(value);
+        // The pipeline result is the argument of the adaptation, which is typed already
+        return new AdaptationResult<>((pipeline != null) ? result : value, result, fallback());
+    }
+
+    /**
+     * Adapts a raw value read from a store like {@link #adaptedResult(Object)},
+     * but fills the given holder instead of allocating the result.
+     *
+     * @param value
+     *            the value to adapt
+     * @param holder
+     *            the holder to fill with the argument and the result of the
+     *            adaptation, where the argument is the converted value like
+     *            {@link #deriveResult(Object)} reports. It must not be
+     *            {@code null}.
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    final boolean adaptedInto(Object value, ResultHolder<? super T> holder) {
+        final T result = adapted(value);
+        return holder.set((pipeline != null) ? result : value, result);
+    }
+
+    /**
+     * Converts a raw value with the adaptation pipeline if this instance has
+     * any, so that the inherited adaptation just downcasts the result; the
+     * operations returning the adapted value directly use the result of the
+     * pipeline without downcasting it again.
+     *
+     * @param value
+     *            the value to convert
+     *
+     * @return the converted value, or the given value if this instance has no
+     *         adaptation pipeline
+     */
+    protected final Object convert(Object value) {
+        return (pipeline != null) ? pipeline.apply(value) : value;
+    }
+
     /**
      * @see net.yetamine.sova.symbols.PublicSymbol#substitute()
      */
@@ -16,8 +16,10 @@
 
 package net.yetamine.sova.servlet;
 
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import javax.servlet.ServletContext;
@@ -30,11 +32,33 @@ import net.yetamine.sova.Downcasting;
  * A symbol implementation designed specifically for dealing with instances of
  * {@link ServletContext}.
  *
+ * <p>
+ * Context attributes tend to keep the same values for a long time, therefore
+ * an instance remembers the last raw value that could not be adapted, so that
+ * reading it again costs just an identity comparison instead of repeating the
+ * failing adaptation. A different value replacing the attribute invalidates
+ * the cache naturally. This optimization assumes that the adaptation of the
+ * same instance always yields the same outcome, which holds unless the value
+ * is mutable and the adaptation depends on its state. The value is referenced
+ * weakly, so that a long-lived symbol does not keep it, and possibly the class
+ * loader of another web application, reachable.
+ *
+ * <p>
+ * An instance has a single slot for the rejected value, which all contexts
+ * share. When a symbol, e.g., loaded by a common class loader, reads the
+ * attribute from several contexts holding different non-adaptable values,
+ * the contexts keep replacing the remembered value and the cache helps little,
+ * but it never yields a wrong outcome, since it compares the identity of the
+ * values rather than the contexts.
+ *
  * @param <T>
  *            the type of resulting values
  */
 public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
 
+    /** Last raw value that could not be adapted. */
+    private volatile WeakReference<Object> rejected;
+
     /**
      * Creates a new instance.
      *
@@ -63,6 +87,20 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
         this(attributeName, Downcasting.to(type));
     }
 
+    /**
+     * Creates a new instance using an adaptation pipeline.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param adaptation
+     *            the adaptation pipeline for the attribute value. It must not be
+     *            {@code null}.
+     */
+    public ServletContextSymbol(String attributeName, AdaptationPipeline<T> adaptation) {
+        super(attributeName, adaptation);
+    }
+
     /**
      * @see java.lang.Object#equals(java.lang.Object)
      */
@@ -73,7 +111,7 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
         }
 
         if (obj instanceof ServletContextSymbol<?>) {
-            return attribute().equals(((ServletContextSymbol<?>) obj).attribute());
+            return (id() == ((ServletContextSymbol<?>) obj).id());
         }
 
         return false;
@@ -84,21 +122,21 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      */
     @Override
     public int hashCode() {
-        return attribute().hashCode();
+        return id();
     }
 
-    // Mappable-like methods
+    // Store primitives
 
     /**
-     * Get the attribute value from the request without any adaptation.
+     * Get the attribute value from the store without any adaptation.
      *
      * @param source
      *            the source to use. It must not be {@code null}.
      *
-     * @return the attribute value from the request without any adaptation
+     * @return the attribute value from the store without any adaptation
      */
     public Object pull(ServletContext source) {
-        return source.getAttribute(attribute());
+        return AttributeOperations.pull(this, ServletAttributeScopes.CONTEXT, source);
     }
 
     /**
@@ -111,9 +149,21 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      *            the value to transfer
      */
     public void push(ServletContext consumer, T value) {
-        consumer.setAttribute(attribute(), value);
+        AttributeOperations.push(this, ServletAttributeScopes.CONTEXT, consumer, value);
+    }
+
+    /**
+     * Removes the attribute from the given consumer.
+     *
+     * @param consumer
+     *            the consumer to update. It must not be {@code null}.
+     */
+    public void remove(ServletContext consumer) {
+        AttributeOperations.remove(this, ServletAttributeScopes.CONTEXT, consumer);
     }
 
+    // Mappable-like methods
+
     /**
      * Returns an adapted value from the source.
      *
@@ -124,7 +174,7 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      * @return the result of the adaptation, or {@code null} if not possible
      */
     public T get(ServletContext source) {
-        return nullable(pull(source));
+        return AttributeOperations.get(this, ServletAttributeScopes.CONTEXT, source);
     }
 
     /**
@@ -137,7 +187,7 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      * @return the result of the adaptation, or the default
      */
     public T give(ServletContext source) {
-        return surrogate(pull(source));
+        return AttributeOperations.give(this, ServletAttributeScopes.CONTEXT, source);
     }
 
     /**
@@ -150,7 +200,7 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      * @return an adapted value from the source as an {@link Optional}
      */
     public Optional<T> find(ServletContext source) {
-        return optional(pull(source));
+        return AttributeOperations.find(this, ServletAttributeScopes.CONTEXT, source);
     }
 
     /**
@@ -163,42 +213,52 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      * @return the result of the adaptation
      */
     public AdaptationResult<T> yield(ServletContext source) {
-        return adapt(pull(source));
+        return AttributeOperations.yield(this, ServletAttributeScopes.CONTEXT, source);
+    }
+
+    /**
+     * Fills the given holder with the argument and the adapted value, so
+     * that the caller can reuse the holder rather than getting a new
+     * {@link AdaptationResult} for each call.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     * @param holder
+     *            the holder to fill. It must not be {@code null}.
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    public boolean yieldInto(ServletContext source, ResultHolder<? super T> holder) {
+        return AttributeOperations.yieldInto(this, ServletAttributeScopes.CONTEXT, source, holder);
     }
 
     /**
-     * Puts the adapted value to the given map.
+     * Puts the adapted value to the given store.
      *
      * @param consumer
-     *            the map to accept the {@link #remap()} result and the adapted
-     *            value. It must not be {@code null}.
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
      * @param value
      *            the value to adapt and transfer
      */
     public void put(ServletContext consumer, Object value) {
-        push(consumer, nullable(value));
+        AttributeOperations.put(this, ServletAttributeScopes.CONTEXT, consumer, value);
     }
 
     /**
-     * Puts the specified value to the given map, or removes the existing value
-     * from the map if the specified value could not be adapted to a valid
-     * object.
+     * Puts the specified value to the given store, or removes the existing
+     * value from the store if the specified value could not be adapted to a
+     * valid object.
      *
      * @param consumer
-     *            the map to accept the {@link #remap()} result and the adapted
-     *            value. It must not be {@code null}.
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
      * @param value
      *            the value to adapt and transfer
      */
     public void let(ServletContext consumer, Object value) {
-        final T result = nullable(value);
-
-        if (result == null) { // Null or non-adaptable
-            consumer.removeAttribute(attribute());
-            return;
-        }
-
-        push(consumer, result);
+        AttributeOperations.let(this, ServletAttributeScopes.CONTEXT, consumer, value);
     }
 
     /**
@@ -206,17 +266,15 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      * adapted to a valid object.
      *
      * @param consumer
-     *            the consumer to accept the {@link #remap()} result and the
-     *            adapted value. It must not be {@code null}.
+     *            the consumer to accept the adapted value. It must not be
+     *            {@code null}.
      * @param value
      *            the value to adapt and transfer
      *
      * @return the result of the adaptation
      */
     public Optional<T> have(ServletContext consumer, Object value) {
-        final Optional<T> result = optional(value);
-        result.ifPresent(v -> push(consumer, v));
-        return result;
+        return AttributeOperations.have(this, ServletAttributeScopes.CONTEXT, consumer, value);
     }
 
     /**
@@ -235,19 +293,7 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      *         adaptation
      */
     public T supply(ServletContext source, Supplier<? extends T> surrogate) {
-        final T current = get(source);
-        if (current != null) {
-            return current;
-        }
-
-        final T result = nullable(surrogate.get());
-        if (result == null) { // Null or non-adaptable
-            source.removeAttribute(attribute());
-            return null;
-        }
-
-        push(source, result);
-        return result;
+        return AttributeOperations.supply(this, ServletAttributeScopes.CONTEXT, source, surrogate);
     }
 
     /**
@@ -278,17 +324,69 @@ public final class ServletContextSymbol<T> extends ServletAttributeSymbol<T> {
      *         provided
      */
     public Optional<T> have(ServletContext source) {
-        final Object current = pull(source);
+        return AttributeOperations.have(this, ServletAttributeScopes.CONTEXT, source);
+    }
 
-        if (current != null) { // If present, try to use it
-            return optional(current);
+    /**
+     * Adapts a raw value, remembering the last value that could not be adapted.
+     *
+     * <p>
+     * All operations that read the attribute from the context adapt the value
+     * with this method, including {@link #yield(ServletContext)} and
+     * {@link #yieldInto(ServletContext, ResultHolder)}. The operations that
+     * adapt a value given by the caller, like {@link #put(ServletContext, Object)},
+     * do not use the cache.
+     *
+     * @param value
+     *            the value to adapt
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     *
+     * @see net.yetamine.sova.servlet.ServletAttributeSymbol#adapted(java.lang.Object)
+     */
+    @Override
+    T adapted(Object value) {
+        if (value == null) { // A missing value is not adaptable
+            return null;
+        }
+
+        final WeakReference<Object> last = rejected;
+        if ((last != null) && (last.get() == value)) {
+            return null;
+        }
+
+        final T result = derive(value);
+        if (result == null) { // Concurrent rejections may replace each other, which is harmless
+            rejected = new WeakReference<>(value);
         }
 
-        final Optional<T> result = Optional.ofNullable(fallback().get());
-        result.ifPresent(value -> push(source, value));
         return result;
     }
 
+    /**
+     * Subscribes for changes of the attribute in the given context.
+     *
+     * <p>
+     * The subscription uses the {@link ContextAttributeDispatcher} of the
+     * context, which gets registered if the context has none yet; see the
+     * dispatcher documentation for the details.
+     *
+     * @param source
+     *            the context to watch. It must not be {@code null}.
+     * @param consumer
+     *            the consumer of the adapted values, which receives the current
+     *            value at once. It must not be {@code null}.
+     *
+     * @return the subscription
+     *
+     * @throws IllegalStateException
+     *             if the context does not accept new listeners anymore and no
+     *             dispatcher is installed
+     */
+    public ContextAttributeDispatcher.Subscription subscribe(ServletContext source, Consumer<? super T> consumer) {
+        return ContextAttributeDispatcher.of(source).subscribe(this, consumer);
+    }
+
     /**
      * @see net.yetamine.sova.symbols.ExpansiveSymbol#introspect(java.util.Map)
      */
@@ -63,6 +63,20 @@ public final class ServletRequestSymbol<T> extends ServletAttributeSymbol<T> imp
         this(attributeName, Downcasting.to(type));
     }
 
+    /**
+     * Creates a new instance using an adaptation pipeline.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param adaptation
+     *            the adaptation pipeline for the attribute value. It must not be
+     *            {@code null}.
+     */
+    public ServletRequestSymbol(String attributeName, AdaptationPipeline<T> adaptation) {
+        super(attributeName, adaptation);
+    }
+
     /**
      * @see java.lang.Object#equals(java.lang.Object)
      */
@@ -73,7 +87,7 @@ public final class ServletRequestSymbol<T> extends ServletAttributeSymbol<T> imp
         }
 
         if (obj instanceof ServletRequestSymbol<?>) {
-            return attribute().equals(((ServletRequestSymbol<?>) obj).attribute());
+            return (id() == ((ServletRequestSymbol<?>) obj).id());
         }
 
         return false;
@@ -84,92 +98,105 @@ public final class ServletRequestSymbol<T> extends ServletAttributeSymbol<T> imp
      */
     @Override
     public int hashCode() {
-        return attribute().hashCode();
+        return id();
     }
 
-    // Mappable-like methods
+    // Store primitives
 
     /**
      * @see net.yetamine.sova.servlet.ServletRequestValue#pull(javax.servlet.ServletRequest)
      */
     public Object pull(ServletRequest source) {
-        return source.getAttribute(attribute());
+        return AttributeOperations.pull(this, ServletAttributeScopes.REQUEST, source);
     }
 
     /**
      * Transfers the given value to the given consumer.
      *
      * @param consumer
-     *            the consumer to accept the {@link #remap()} result and the
-     *            given value. It must not be {@code null}.
+     *            the consumer to accept the attribute. It must not be
+     *            {@code null}.
      * @param value
      *            the value to transfer
      */
     public void push(ServletRequest consumer, T value) {
-        consumer.setAttribute(attribute(), value);
+        AttributeOperations.push(this, ServletAttributeScopes.REQUEST, consumer, value);
+    }
+
+    /**
+     * Removes the attribute from the given consumer.
+     *
+     * @param consumer
+     *            the consumer to update. It must not be {@code null}.
+     */
+    public void remove(ServletRequest consumer) {
+        AttributeOperations.remove(this, ServletAttributeScopes.REQUEST, consumer);
     }
 
+    // Mappable-like methods
+
     /**
      * @see net.yetamine.sova.servlet.ServletRequestValue#get(javax.servlet.ServletRequest)
      */
     public T get(ServletRequest source) {
-        return nullable(pull(source));
+        return AttributeOperations.get(this, ServletAttributeScopes.REQUEST, source);
     }
 
     /**
      * @see net.yetamine.sova.servlet.ServletRequestValue#give(javax.servlet.ServletRequest)
      */
     public T give(ServletRequest source) {
-        return surrogate(pull(source));
+        return AttributeOperations.give(this, ServletAttributeScopes.REQUEST, source);
     }
 
     /**
      * @see net.yetamine.sova.servlet.ServletRequestValue#find(javax.servlet.ServletRequest)
      */
     public Optional<T> find(ServletRequest source) {
-        return optional(pull(source));
+        return AttributeOperations.find(this, ServletAttributeScopes.REQUEST, source);
     }
 
     /**
      * @see net.yetamine.sova.servlet.ServletRequestValue#yield(javax.servlet.ServletRequest)
      */
     public AdaptationResult<T> yield(ServletRequest source) {
-        return adapt(pull(source));
+        return AttributeOperations.yield(this, ServletAttributeScopes.REQUEST, source);
+    }
+
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#yieldInto(javax.servlet.ServletRequest,
+     *      net.yetamine.sova.servlet.ResultHolder)
+     */
+    public boolean yieldInto(ServletRequest source, ResultHolder<? super T> holder) {
+        return AttributeOperations.yieldInto(this, ServletAttributeScopes.REQUEST, source, holder);
     }
 
     /**
-     * Puts the adapted value to the given map.
+     * Puts the adapted value to the given store.
      *
      * @param consumer
-     *            the map to accept the {@link #remap()} result and the adapted
-     *            value. It must not be {@code null}.
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
      * @param value
      *            the value to adapt and transfer
      */
     public void put(ServletRequest consumer, Object value) {
-        push(consumer, nullable(value));
+        AttributeOperations.put(this, ServletAttributeScopes.REQUEST, consumer, value);
     }
 
     /**
-     * Puts the specified value to the given map, or removes the existing value
-     * from the map if the specified value could not be adapted to a valid
-     * object.
+     * Puts the specified value to the given store, or removes the existing
+     * value from the store if the specified value could not be adapted to a
+     * valid object.
      *
      * @param consumer
-     *            the map to accept the {@link #remap()} result and the adapted
-     *            value. It must not be {@code null}.
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
      * @param value
      *            the value to adapt and transfer
      */
     public void let(ServletRequest consumer, Object value) {
-        final T result = nullable(value);
-
-        if (result == null) { // Null or non-adaptable
-            consumer.removeAttribute(attribute());
-            return;
-        }
-
-        push(consumer, result);
+        AttributeOperations.let(this, ServletAttributeScopes.REQUEST, consumer, value);
     }
 
     /**
@@ -177,17 +204,15 @@ public final class ServletRequestSymbol<T> extends ServletAttributeSymbol<T> imp
      * adapted to a valid object.
      *
      * @param consumer
-     *            the consumer to accept the {@link #remap()} result and the
-     *            adapted value. It must not be {@code null}.
+     *            the consumer to accept the adapted value. It must not be
+     *            {@code null}.
      * @param value
      *            the value to adapt and transfer
      *
      * @return the result of the adaptation
      */
     public Optional<T> have(ServletRequest consumer, Object value) {
-        final Optional<T> result = optional(value);
-        result.ifPresent(v -> push(consumer, v));
-        return result;
+        return AttributeOperations.have(this, ServletAttributeScopes.REQUEST, consumer, value);
     }
 
     /**
@@ -206,19 +231,7 @@ public final class ServletRequestSymbol<T> extends ServletAttributeSymbol<T> imp
      *         adaptation
      */
     public T supply(ServletRequest source, Supplier<? extends T> surrogate) {
-        final T current = get(source);
-        if (current != null) {
-            return current;
-        }
-
-        final T result = nullable(surrogate.get());
-        if (result == null) { // Null or non-adaptable
-            source.removeAttribute(attribute());
-            return null;
-        }
-
-        push(source, result);
-        return result;
+        return AttributeOperations.supply(this, ServletAttributeScopes.REQUEST, source, surrogate);
     }
 
     /**
@@ -249,15 +262,7 @@ public final class ServletRequestSymbol<T> extends ServletAttributeSymbol<T> imp
      *         provided
      */
     public Optional<T> have(ServletRequest source) {
-        final Object current = pull(source);
-
-        if (current != null) { // If present, try to use it
-            return optional(current);
-        }
-
-        final Optional<T> result = Optional.ofNullable(fallback().get());
-        result.ifPresent(value -> push(source, value));
-        return result;
+        return AttributeOperations.have(this, ServletAttributeScopes.REQUEST, source);
     }
 
     /**
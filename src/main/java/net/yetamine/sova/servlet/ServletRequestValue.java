@@ -16,7 +16,10 @@
 
 package net.yetamine.sova.servlet;
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import javax.servlet.ServletRequest;
 
@@ -28,6 +31,13 @@ import net.yetamine.sova.Mappable;
  * resembles the {@link Mappable} interface, so that it can be seamlessly merged
  * with it.
  *
+ * <p>
+ * The combinators of this interface produce {@link DerivedRequestValue}s, which
+ * compute their results at most once per request. Because the derived values
+ * memoize their results keyed by their own identity, the combinators should be
+ * used for defining constants, just like symbols, rather than invoked for each
+ * request.
+ *
  * @param <T>
  *            the type of resulting values
  */
@@ -86,4 +96,121 @@ public interface ServletRequestValue<T> {
      * @return the result of the adaptation
      */
     AdaptationResult<T> yield(ServletRequest source);
+
+    /**
+     * Fills the given holder with the argument and the adapted value, so
+     * that the caller can reuse the holder rather than getting a new
+     * {@link AdaptationResult} for each call.
+     *
+     * <p>
+     * The holder receives the same argument and value as {@link #yield(ServletRequest)}
+     * reports. The default implementation gets them from the result of that
+     * method; implementations should override it to avoid the allocation.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     * @param holder
+     *            the holder to fill. It must not be {@code null}.
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    default boolean yieldInto(ServletRequest source, ResultHolder<? super T> holder) {
+        final AdaptationResult<T> result = this.yield(source);
+        return holder.set(result.argument(), result.get());
+    }
+
+    /**
+     * Returns a value derived by applying the mapping on this value.
+     *
+     * @param <R>
+     *            the type of the derived value
+     * @param mapping
+     *            the mapping to apply on this value if present. It must not be
+     *            {@code null}.
+     *
+     * @return the derived value
+     */
+    default <R> DerivedRequestValue<R> map(Function<? super T, ? extends R> mapping) {
+        Objects.requireNonNull(mapping);
+
+        return DerivedRequestValue.of(request -> {
+            final T value = get(request);
+            return (value != null) ? mapping.apply(value) : null;
+        });
+    }
+
+    /**
+     * Returns a value derived by getting the value that the mapping of this
+     * value selects.
+     *
+     * @param <R>
+     *            the type of the derived value
+     * @param mapping
+     *            the mapping to apply on this value if present. It must not be
+     *            {@code null} and it must not return {@code null}.
+     *
+     * @return the derived value
+     */
+    default <R> DerivedRequestValue<R> flatMap(Function<? super T, ? extends ServletRequestValue<? extends R>> mapping) {
+        Objects.requireNonNull(mapping);
+
+        return DerivedRequestValue.of(request -> {
+            final T value = get(request);
+            return (value != null) ? mapping.apply(value).get(request) : null;
+        });
+    }
+
+    /**
+     * Returns a value derived from this value, or from the other value if this
+     * value is not present.
+     *
+     * @param other
+     *            the alternative value. It must not be {@code null}.
+     *
+     * @return the derived value
+     */
+    default DerivedRequestValue<T> orElse(ServletRequestValue<? extends T> other) {
+        Objects.requireNonNull(other);
+
+        return DerivedRequestValue.of(request -> {
+            final T value = get(request);
+            return (value != null) ? value : other.get(request);
+        });
+    }
+
+    /**
+     * Returns a value derived from a pair of values.
+     *
+     * @param <A>
+     *            the type of the first value
+     * @param <B>
+     *            the type of the second value
+     * @param <R>
+     *            the type of the derived value
+     * @param a
+     *            the first value. It must not be {@code null}.
+     * @param b
+     *            the second value. It must not be {@code null}.
+     * @param combination
+     *            the function to combine both values if present. It must not
+     *            be {@code null}.
+     *
+     * @return the derived value
+     */
+    static <A, B, R> DerivedRequestValue<R> zip(ServletRequestValue<A> a, ServletRequestValue<B> b, BiFunction<? super A, ? super B, ? extends R> combination) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        Objects.requireNonNull(combination);
+
+        return DerivedRequestValue.of(request -> {
+            final A valueA = a.get(request);
+            if (valueA == null) {
+                return null;
+            }
+
+            final B valueB = b.get(request);
+            return (valueB != null) ? combination.apply(valueA, valueB) : null;
+        });
+    }
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpSession;
+
+import net.yetamine.sova.AdaptationProvider;
+import net.yetamine.sova.AdaptationResult;
+import net.yetamine.sova.Downcasting;
+
+/**
+ * A symbol implementation designed specifically for dealing with instances of
+ * {@link HttpSession}.
+ *
+ * <p>
+ * Note that the operations throw {@link IllegalStateException} when invoked on
+ * an invalidated session, as the session itself does.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class ServletSessionSymbol<T> extends ServletAttributeSymbol<T> {
+
+    /**
+     * Creates a new instance.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param adaptation
+     *            the adaptation of the attribute value. It must not be
+     *            {@code null}.
+     */
+    public ServletSessionSymbol(String attributeName, AdaptationProvider<T> adaptation) {
+        super(attributeName, adaptation);
+    }
+
+    /**
+     * Creates a new instance using {@link Downcasting#to(Class)}.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param type
+     *            the desired type of resulting values. It must not be
+     *            {@code null}.
+     */
+    public ServletSessionSymbol(String attributeName, Class<T> type) {
+        this(attributeName, Downcasting.to(type));
+    }
+
+    /**
+     * Creates a new instance using an adaptation pipeline.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param adaptation
+     *            the adaptation pipeline for the attribute value. It must not be
+     *            {@code null}.
+     */
+    public ServletSessionSymbol(String attributeName, AdaptationPipeline<T> adaptation) {
+        super(attributeName, adaptation);
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj instanceof ServletSessionSymbol<?>) {
+            return (id() == ((ServletSessionSymbol<?>) obj).id());
+        }
+
+        return false;
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return id();
+    }
+
+    // Store primitives
+
+    /**
+     * Get the attribute value from the store without any adaptation.
+     *
+     * @param source
+     *            the source to use. It must not be {@code null}.
+     *
+     * @return the attribute value from the store without any adaptation
+     */
+    public Object pull(HttpSession source) {
+        return AttributeOperations.pull(this, ServletAttributeScopes.SESSION, source);
+    }
+
+    /**
+     * Transfers the given value to the given consumer.
+     *
+     * @param consumer
+     *            the consumer to accept the attribute. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to transfer
+     */
+    public void push(HttpSession consumer, T value) {
+        AttributeOperations.push(this, ServletAttributeScopes.SESSION, consumer, value);
+    }
+
+    /**
+     * Removes the attribute from the given consumer.
+     *
+     * @param consumer
+     *            the consumer to update. It must not be {@code null}.
+     */
+    public void remove(HttpSession consumer) {
+        AttributeOperations.remove(this, ServletAttributeScopes.SESSION, consumer);
+    }
+
+    // Mappable-like methods
+
+    /**
+     * Returns an adapted value from the source.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return the result of the adaptation, or {@code null} if not possible
+     */
+    public T get(HttpSession source) {
+        return AttributeOperations.get(this, ServletAttributeScopes.SESSION, source);
+    }
+
+    /**
+     * Returns an adapted value from the source, or the default.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return the result of the adaptation, or the default
+     */
+    public T give(HttpSession source) {
+        return AttributeOperations.give(this, ServletAttributeScopes.SESSION, source);
+    }
+
+    /**
+     * Returns an adapted value from the source as an {@link Optional}.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return an adapted value from the source as an {@link Optional}
+     */
+    public Optional<T> find(HttpSession source) {
+        return AttributeOperations.find(this, ServletAttributeScopes.SESSION, source);
+    }
+
+    /**
+     * Returns a representation of an adapted value from the source.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     *
+     * @return the result of the adaptation
+     */
+    public AdaptationResult<T> yield(HttpSession source) {
+        return AttributeOperations.yield(this, ServletAttributeScopes.SESSION, source);
+    }
+
+    /**
+     * Fills the given holder with the argument and the adapted value, so
+     * that the caller can reuse the holder rather than getting a new
+     * {@link AdaptationResult} for each call.
+     *
+     * @param source
+     *            the source of the argument to adapt. It must not be
+     *            {@code null}.
+     * @param holder
+     *            the holder to fill. It must not be {@code null}.
+     *
+     * @return {@code true} if the adapted value is present
+     */
+    public boolean yieldInto(HttpSession source, ResultHolder<? super T> holder) {
+        return AttributeOperations.yieldInto(this, ServletAttributeScopes.SESSION, source, holder);
+    }
+
+    /**
+     * Puts the adapted value to the given store.
+     *
+     * @param consumer
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to adapt and transfer
+     */
+    public void put(HttpSession consumer, Object value) {
+        AttributeOperations.put(this, ServletAttributeScopes.SESSION, consumer, value);
+    }
+
+    /**
+     * Puts the specified value to the given store, or removes the existing
+     * value from the store if the specified value could not be adapted to a
+     * valid object.
+     *
+     * @param consumer
+     *            the store to accept the adapted value. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to adapt and transfer
+     */
+    public void let(HttpSession consumer, Object value) {
+        AttributeOperations.let(this, ServletAttributeScopes.SESSION, consumer, value);
+    }
+
+    /**
+     * Transfers the adapted value to the given consumer if the value could be
+     * adapted to a valid object.
+     *
+     * @param consumer
+     *            the consumer to accept the adapted value. It must not be
+     *            {@code null}.
+     * @param value
+     *            the value to adapt and transfer
+     *
+     * @return the result of the adaptation
+     */
+    public Optional<T> have(HttpSession consumer, Object value) {
+        return AttributeOperations.have(this, ServletAttributeScopes.SESSION, consumer, value);
+    }
+
+    /**
+     * Returns a value from the source if the source can supply a valid result,
+     * otherwise fixes the source with a surrogate value and returns it instead.
+     * The returned value should be then present in the source in either case.
+     *
+     * @param source
+     *            the source to provide or accept the value. It must not be
+     *            {@code null}.
+     * @param surrogate
+     *            the surrogate supplier. It must not be {@code null}.
+     *
+     * @return the original or surrogate value, which the source contains now;
+     *         {@code null} may be returned if the surrogate does not pass the
+     *         adaptation
+     */
+    public T supply(HttpSession source, Supplier<? extends T> surrogate) {
+        return AttributeOperations.supply(this, ServletAttributeScopes.SESSION, source, surrogate);
+    }
+
+    /**
+     * Puts the default to the source if the attribute does not provide an
+     * adaptable value and returns the adaptation of the value then.
+     *
+     * @param source
+     *            the source of the argument to adapt and to store the result.
+     *            It must not be {@code null}.
+     *
+     * @return the result of adaptation, or the default; {@code null} may be
+     *         returned if the fallback does not return anything better
+     */
+    public T supply(HttpSession source) {
+        return supply(source, fallback());
+    }
+
+    /**
+     * Puts the default to the source if the attribute is absent, otherwise
+     * tries to use the present attribute to get the result.
+     *
+     * @param source
+     *            the source of the result, which might be possibly updated. It
+     *            must not be {@code null}.
+     *
+     * @return the adaptation of the resulting value; an empty container is
+     *         returned if the value could not adapted, or no default is
+     *         provided
+     */
+    public Optional<T> have(HttpSession source) {
+        return AttributeOperations.have(this, ServletAttributeScopes.SESSION, source);
+    }
+
+    /**
+     * @see net.yetamine.sova.symbols.ExpansiveSymbol#introspect(java.util.Map)
+     */
+    @Override
+    protected void introspect(Map<Object, Object> result) {
+        super.introspect(result);
+        result.put("attribute@session", attribute());
+    }
+}
@@ -17,7 +17,6 @@
 package net.yetamine.sova.servlet;
 
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 
 import javax.servlet.ServletContext;
@@ -40,6 +39,11 @@ import net.yetamine.sova.symbols.DelegatingSymbol;
  * default values in the context, while request-specific overriding values in
  * the request.
  *
+ * <p>
+ * Because falling back to the context costs another lookup, the context values
+ * may be hoisted into the request at its entry by {@link ContextHoistingFilter},
+ * so that the lookup in the request finds them.
+ *
  * @param <T>
  *            the type of resulting values
  */
@@ -66,6 +70,22 @@ public final class ServletSymbol<T> extends DelegatingSymbol<T> implements Servl
         contextSymbol = new ServletContextSymbol<>(attributeName, adaptation);
     }
 
+    /**
+     * Creates a new instance using an adaptation pipeline.
+     *
+     * @param attributeName
+     *            the name of the attribute which this instance is bound to. It
+     *            must not be {@code null}.
+     * @param adaptation
+     *            the adaptation pipeline for the attribute value. It must not be
+     *            {@code null}.
+     */
+    public ServletSymbol(String attributeName, AdaptationPipeline<T> adaptation) {
+        super(adaptation.adaptation());
+        requestSymbol = new ServletRequestSymbol<>(attributeName, adaptation);
+        contextSymbol = new ServletContextSymbol<>(attributeName, adaptation);
+    }
+
     /**
      * Creates a new instance for an attribute that has different names for the
      * request and context home.
@@ -97,7 +117,7 @@ public final class ServletSymbol<T> extends DelegatingSymbol<T> implements Servl
 
         if (obj instanceof ServletSymbol<?>) {
             final ServletSymbol<?> o = (ServletSymbol<?>) obj;
-            return requestSymbol.equals(o.requestSymbol) && contextSymbol.equals(o.contextSymbol);
+            return (requestSymbol.id() == o.requestSymbol.id()) && (contextSymbol.id() == o.contextSymbol.id());
         }
 
         return false;
@@ -108,7 +128,7 @@ public final class ServletSymbol<T> extends DelegatingSymbol<T> implements Servl
      */
     @Override
     public int hashCode() {
-        return Objects.hash(requestSymbol, contextSymbol);
+        return requestSymbol.id() * 31 + contextSymbol.id();
     }
 
     /**
@@ -186,6 +206,24 @@ public final class ServletSymbol<T> extends DelegatingSymbol<T> implements Servl
         return (result1.argument() != null) ? result1 : result2;
     }
 
+    /**
+     * @see net.yetamine.sova.servlet.ServletRequestValue#yieldInto(javax.servlet.ServletRequest,
+     *      net.yetamine.sova.servlet.ResultHolder)
+     */
+    public boolean yieldInto(ServletRequest source, ResultHolder<? super T> holder) {
+        if (requestSymbol.yieldInto(source, holder)) {
+            return true;
+        }
+
+        final Object argument = holder.argument();
+        final boolean result = contextSymbol.yieldInto(source.getServletContext(), holder);
+        if (!result && (argument != null)) {
+            holder.set(argument, null); // Prefer the request argument like yield does
+        }
+
+        return result;
+    }
+
     /**
      * @see net.yetamine.sova.symbols.ExpansiveSymbol#introspect(java.util.Map)
      */
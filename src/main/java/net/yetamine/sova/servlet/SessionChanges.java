@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Pending changes of session attributes made during a request.
+ *
+ * <p>
+ * Instances of this class are confined to a request and they are not
+ * thread-safe.
+ */
+final class SessionChanges {
+
+    /** Name of the request attribute holding the instance. */
+    static final String ATTRIBUTE = ServletAttributeSymbol.name(SessionChanges.class, "instance");
+
+    /** Entries of the tracked attributes. */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Creates a new instance.
+     */
+    SessionChanges() {
+        // Default constructor
+    }
+
+    /**
+     * Returns the instance for the given request.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     *
+     * @return the instance for the given request, or {@code null} if the
+     *         request is not tracked
+     */
+    static SessionChanges of(ServletRequest request) {
+        final Object result = request.getAttribute(ATTRIBUTE);
+        return (result instanceof SessionChanges) ? (SessionChanges) result : null;
+    }
+
+    /**
+     * Returns the entry for the given attribute, loading the baseline from the
+     * session if the entry is new.
+     *
+     * @param attribute
+     *            the name of the attribute. It must not be {@code null}.
+     * @param session
+     *            the session, or {@code null} if there is none
+     *
+     * @return the entry
+     */
+    public Entry entry(String attribute, HttpSession session) {
+        Entry result = entries.get(attribute);
+        if (result == null) {
+            result = new Entry((session != null) ? session.getAttribute(attribute) : null);
+            entries.put(attribute, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of tracked attributes.
+     *
+     * @return the number of tracked attributes
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the dirty attributes to the session and discards all entries.
+     *
+     * @param session
+     *            the session, or {@code null} if there is none
+     *
+     * @return the number of written attributes
+     */
+    public int flush(HttpSession session) {
+        int result = 0;
+
+        if (session != null) {
+            for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                final Entry entry = item.getValue();
+                if (!entry.dirty()) {
+                    continue;
+                }
+
+                final Object value = entry.value;
+                if (value != null) {
+                    session.setAttribute(item.getKey(), value);
+                } else {
+                    session.removeAttribute(item.getKey());
+                }
+
+                ++result;
+            }
+        }
+
+        entries.clear();
+        return result;
+    }
+
+    /**
+     * An entry of a tracked attribute.
+     */
+    static final class Entry {
+
+        /** Value read from the session. */
+        private final Object baseline;
+        /** Current value. */
+        Object value;
+        /** Indicates that the value was mutated in place. */
+        boolean touched;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param sessionValue
+         *            the value read from the session
+         */
+        Entry(Object sessionValue) {
+            baseline = sessionValue;
+            value = sessionValue;
+        }
+
+        /**
+         * Indicates whether the value must be written to the session.
+         *
+         * @return {@code true} if the value must be written to the session
+         */
+        public boolean dirty() {
+            return touched || (value != baseline);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A filter that tracks the changes made by {@link TrackedSessionSymbol}s
+ * during a request and writes the dirty attributes to the session when the
+ * rest of the chain returns.
+ *
+ * <p>
+ * The filter should be mapped before any code that uses the tracked symbols.
+ * When the request continues asynchronously, the changes made until the chain
+ * returns are written and the later changes go directly to the session.
+ */
+public final class SessionTrackingFilter implements Filter {
+
+    /** Number of written attributes. */
+    private final LongAdder written = new LongAdder();
+    /** Number of skipped clean attributes. */
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     */
+    public SessionTrackingFilter() {
+        // Default constructor
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("SessionTrackingFilter[written=%d, skipped=%d]", written(), skipped());
+    }
+
+    /**
+     * Returns the number of attributes written to the sessions.
+     *
+     * @return the number of attributes written to the sessions
+     */
+    public long written() {
+        return written.sum();
+    }
+
+    /**
+     * Returns the number of tracked attributes that were not written, because
+     * they were not dirty or the session did not exist anymore.
+     *
+     * @return the number of tracked attributes that were not written
+     */
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    /**
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || (SessionChanges.of(request) != null)) {
+            chain.doFilter(request, response); // Not HTTP, or tracked already by an outer dispatch
+            return;
+        }
+
+        final SessionChanges changes = new SessionChanges();
+        request.setAttribute(SessionChanges.ATTRIBUTE, changes);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            request.removeAttribute(SessionChanges.ATTRIBUTE);
+            flush((HttpServletRequest) request, changes);
+        }
+    }
+
+    /**
+     * @see javax.servlet.Filter#destroy()
+     */
+    public void destroy() {
+        // Nothing to release
+    }
+
+    /**
+     * Writes the changes to the session of the request.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     * @param changes
+     *            the changes to write. It must not be {@code null}.
+     */
+    private void flush(HttpServletRequest request, SessionChanges changes) {
+        final HttpSession session = request.getSession(false);
+        final int tracked = changes.size();
+
+        try {
+            final int count = changes.flush(session);
+            written.add(count);
+            skipped.add(tracked - count);
+        } catch (IllegalStateException e) {
+            // The session was invalidated meanwhile, discard the changes
+        }
+    }
+}
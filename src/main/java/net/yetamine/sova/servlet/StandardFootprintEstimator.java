@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Implements {@link FootprintEstimator#standard()}.
+ */
+final class StandardFootprintEstimator {
+
+    /** Size of an object header. */
+    private static final long HEADER = 16;
+    /** Size of a reference. */
+    private static final long REFERENCE = 4;
+    /** Maximal number of sampled elements. */
+    private static final int SAMPLES = 16;
+    /** Maximal depth of nested containers. */
+    private static final int DEPTH = 3;
+
+    /**
+     * Prevents creating instances of this class.
+     */
+    private StandardFootprintEstimator() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Estimates the retained size of the given value.
+     *
+     * @param value
+     *            the value to estimate
+     * @param depth
+     *            the nesting depth of the value
+     * @param custom
+     *            the estimators for the values of the exact classes. It must
+     *            not be {@code null}.
+     *
+     * @return the estimated number of bytes
+     */
+    static long estimate(Object value, int depth, Map<Class<?>, FootprintEstimator> custom) {
+        if (value == null) {
+            return 0;
+        }
+
+        final FootprintEstimator estimator = custom.get(value.getClass());
+        if (estimator != null) {
+            return estimator.estimate(value);
+        }
+
+        if (value instanceof String) { // Header, hash, array reference and the array
+            return HEADER + 8 + align(HEADER + ((String) value).length());
+        }
+
+        if ((value instanceof Number) || (value instanceof Boolean) || (value instanceof Character)) {
+            return HEADER + 8;
+        }
+
+        final Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return array(value, type.getComponentType(), depth, custom);
+        }
+
+        if (value instanceof Collection<?>) {
+            final Collection<?> collection = (Collection<?>) value;
+            final int size = collection.size();
+            return 3 * HEADER + size * (HEADER + REFERENCE) + sample(collection.iterator(), size, depth, custom);
+        }
+
+        if (value instanceof Map<?, ?>) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            final int size = map.size();
+            final long entries = size * (2 * HEADER + 2 * REFERENCE);
+            return 3 * HEADER + entries + sample(map.keySet().iterator(), size, depth, custom) + sample(map.values().iterator(), size, depth, custom);
+        }
+
+        return 2 * HEADER; // Not walking the fields
+    }
+
+    /**
+     * Estimates an array.
+     *
+     * @param array
+     *            the array. It must not be {@code null}.
+     * @param component
+     *            the component type. It must not be {@code null}.
+     * @param depth
+     *            the nesting depth of the array
+     * @param custom
+     *            the estimators for the values of the exact classes. It must
+     *            not be {@code null}.
+     *
+     * @return the estimated number of bytes
+     */
+    private static long array(Object array, Class<?> component, int depth, Map<Class<?>, FootprintEstimator> custom) {
+        final int length = Array.getLength(array);
+
+        if (!component.isPrimitive()) {
+            final Object[] elements = (Object[]) array;
+            return align(HEADER + length * REFERENCE) + sample(Arrays.asList(elements).iterator(), length, depth, custom);
+        }
+
+        final long element;
+        if ((component == long.class) || (component == double.class)) {
+            element = 8;
+        } else if ((component == int.class) || (component == float.class)) {
+            element = 4;
+        } else if ((component == short.class) || (component == char.class)) {
+            element = 2;
+        } else {
+            element = 1;
+        }
+
+        return align(HEADER + length * element);
+    }
+
+    /**
+     * Estimates the elements by sampling.
+     *
+     * @param elements
+     *            the iterator of the elements. It must not be {@code null}.
+     * @param size
+     *            the number of the elements
+     * @param depth
+     *            the nesting depth of the container
+     * @param custom
+     *            the estimators for the values of the exact classes. It must
+     *            not be {@code null}.
+     *
+     * @return the estimated number of bytes
+     */
+    private static long sample(Iterator<?> elements, int size, int depth, Map<Class<?>, FootprintEstimator> custom) {
+        if ((size == 0) || (depth >= DEPTH)) {
+            return 0;
+        }
+
+        long total = 0;
+        int count = 0;
+        while ((count < SAMPLES) && elements.hasNext()) {
+            total += estimate(elements.next(), depth + 1, custom);
+            ++count;
+        }
+
+        return (count != 0) ? (total / count) * size : 0;
+    }
+
+    /**
+     * Aligns the size to 8 bytes.
+     *
+     * @param size
+     *            the size to align
+     *
+     * @return the aligned size
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A set of attribute names of symbols, e.g., for tracking which attributes a
+ * request has seen.
+ *
+ * <p>
+ * The set keeps the elements as a {@link BitSet} indexed by the identifiers of
+ * the symbols, see {@link ServletAttributeSymbol#id()}, hence adding and testing
+ * a symbol are single bit operations and set operations on the elements, like
+ * {@link #addAll(SymbolSet)} or {@link #retainAll(SymbolSet)}, are operations
+ * on the bit sets. Since the identifiers belong to the attribute names, symbols
+ * of different scopes with the same attribute name are the same element.
+ *
+ * <p>
+ * Instances of this class are not thread-safe.
+ */
+public final class SymbolSet {
+
+    /** Identifiers of the elements. */
+    private final BitSet bits = new BitSet();
+
+    /**
+     * Creates a new empty instance.
+     */
+    public SymbolSet() {
+        // Default constructor
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return attributes().toString();
+    }
+
+    /**
+     * Adds a symbol.
+     *
+     * @param symbol
+     *            the symbol to add. It must not be {@code null}.
+     *
+     * @return {@code true} if the symbol was not present yet
+     */
+    public boolean add(ServletAttributeSymbol<?> symbol) {
+        final int id = symbol.id();
+        if (bits.get(id)) {
+            return false;
+        }
+
+        bits.set(id);
+        return true;
+    }
+
+    /**
+     * Adds all elements of another set.
+     *
+     * @param other
+     *            the set to add. It must not be {@code null}.
+     */
+    public void addAll(SymbolSet other) {
+        bits.or(other.bits);
+    }
+
+    /**
+     * Retains only the elements present in another set.
+     *
+     * @param other
+     *            the set to intersect with. It must not be {@code null}.
+     */
+    public void retainAll(SymbolSet other) {
+        bits.and(other.bits);
+    }
+
+    /**
+     * Removes a symbol.
+     *
+     * @param symbol
+     *            the symbol to remove. It must not be {@code null}.
+     *
+     * @return {@code true} if the symbol was present
+     */
+    public boolean remove(ServletAttributeSymbol<?> symbol) {
+        final int id = symbol.id();
+        if (bits.get(id)) {
+            bits.clear(id);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Tests if a symbol is present.
+     *
+     * @param symbol
+     *            the symbol to test. It must not be {@code null}.
+     *
+     * @return {@code true} if the symbol is present
+     */
+    public boolean contains(ServletAttributeSymbol<?> symbol) {
+        return bits.get(symbol.id());
+    }
+
+    /**
+     * Returns the number of the elements.
+     *
+     * @return the number of the elements
+     */
+    public int size() {
+        return bits.cardinality();
+    }
+
+    /**
+     * Tests if this set is empty.
+     *
+     * @return {@code true} if this set is empty
+     */
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    /**
+     * Removes all elements.
+     */
+    public void clear() {
+        bits.clear();
+    }
+
+    /**
+     * Returns the attribute names of the elements.
+     *
+     * @return the attribute names of the elements, ordered by their identifiers
+     */
+    public Set<String> attributes() {
+        final Set<String> result = new LinkedHashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result.add(AttributeIds.name(i));
+        }
+
+        return Collections.unmodifiableSet(result);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket.
+ *
+ * <p>
+ * The bucket holds at most the given capacity of tokens and regains a token
+ * every refill period. Rather than counting the tokens and refilling them, the
+ * bucket keeps just the time when it becomes full again, so that acquiring
+ * tokens is a single compare-and-set of one {@code long} and no background
+ * task is needed.
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class TokenBucket {
+
+    /** Maximal number of tokens. */
+    private final long capacity;
+    /** Time to regain a token in nanoseconds. */
+    private final long interval;
+    /** Source of the current time in nanoseconds. */
+    private final LongSupplier clock;
+    /** Time when the bucket becomes full. */
+    private final AtomicLong full;
+
+    /**
+     * Creates a new full instance.
+     *
+     * @param bucketCapacity
+     *            the maximal number of tokens. It must be positive.
+     * @param refillPeriod
+     *            the time to regain a token. It must be positive.
+     */
+    public TokenBucket(long bucketCapacity, Duration refillPeriod) {
+        this(bucketCapacity, refillPeriod, System::nanoTime);
+    }
+
+    /**
+     * Creates a new full instance.
+     *
+     * @param bucketCapacity
+     *            the maximal number of tokens. It must be positive.
+     * @param refillPeriod
+     *            the time to regain a token. It must be positive.
+     * @param nanoClock
+     *            the source of the current time in nanoseconds. It must not be
+     *            {@code null}.
+     */
+    TokenBucket(long bucketCapacity, Duration refillPeriod, LongSupplier nanoClock) {
+        if (bucketCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + bucketCapacity);
+        }
+
+        if (refillPeriod.isNegative() || refillPeriod.isZero()) {
+            throw new IllegalArgumentException("Refill period must be positive: " + refillPeriod);
+        }
+
+        interval = refillPeriod.toNanos();
+        if (bucketCapacity > Long.MAX_VALUE / 2 / interval) {
+            throw new IllegalArgumentException("Capacity is too large for the refill period: " + bucketCapacity);
+        }
+
+        capacity = bucketCapacity;
+        clock = Objects.requireNonNull(nanoClock);
+        full = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("TokenBucket[capacity=%d, refill=%s, available=%d]", capacity, Duration.ofNanos(interval), available());
+    }
+
+    /**
+     * Returns the maximal number of tokens.
+     *
+     * @return the maximal number of tokens
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the time to regain a token.
+     *
+     * @return the time to regain a token
+     */
+    public Duration refillPeriod() {
+        return Duration.ofNanos(interval);
+    }
+
+    /**
+     * Returns the number of available tokens.
+     *
+     * @return the number of available tokens
+     */
+    public long available() {
+        final long missing = Math.max(full.get() - clock.getAsLong(), 0);
+        return capacity - (missing + interval - 1) / interval;
+    }
+
+    /**
+     * Tests if the bucket is full, hence equivalent to a new instance.
+     *
+     * @return {@code true} if the bucket is full
+     */
+    public boolean isFull() {
+        return (full.get() - clock.getAsLong() <= 0);
+    }
+
+    /**
+     * Acquires a token if available.
+     *
+     * @return {@code true} if the token was acquired
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Acquires the given number of tokens if available.
+     *
+     * @param tokens
+     *            the number of tokens to acquire. It must not be negative.
+     *
+     * @return {@code true} if the tokens were acquired
+     */
+    public boolean tryAcquire(long tokens) {
+        if (tokens < 0) {
+            throw new IllegalArgumentException("Token count must not be negative: " + tokens);
+        }
+
+        if (tokens > capacity) {
+            return false;
+        }
+
+        final long cost = tokens * interval;
+        final long limit = capacity * interval;
+        for (;;) {
+            final long now = clock.getAsLong();
+            final long current = full.get();
+            final long updated = ((current - now > 0) ? current : now) + cost;
+            if (updated - now > limit) {
+                return false;
+            }
+
+            if (full.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the time until the given number of tokens becomes available.
+     *
+     * @param tokens
+     *            the number of tokens. It must not be negative and it must not
+     *            exceed the capacity.
+     *
+     * @return the time until the tokens become available, which is zero if
+     *         available now
+     */
+    public Duration delay(long tokens) {
+        if ((tokens < 0) || (tokens > capacity)) {
+            throw new IllegalArgumentException("Token count out of range: " + tokens);
+        }
+
+        final long now = clock.getAsLong();
+        final long current = full.get();
+        final long updated = ((current - now > 0) ? current : now) + tokens * interval;
+        return Duration.ofNanos(Math.max(updated - now - capacity * interval, 0));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A session symbol that tracks the changes during a request and writes only
+ * the dirty attributes to the session at the end of the request.
+ *
+ * <p>
+ * Clustered containers replicate a session attribute whenever it is set, no
+ * matter whether the value changed. An instance of this class, when used for
+ * a request passing {@link SessionTrackingFilter}, records the values in the
+ * request instead and the filter writes them back at the end, skipping the
+ * attributes whose value is identical to the value read from the session. An
+ * immutable value therefore needs no care, while a mutable value, which was
+ * modified in place, must be marked with {@link #touch(HttpServletRequest)}.
+ *
+ * <p>
+ * Requests that the filter does not track access the session directly, so
+ * that the symbol remains correct, although without the savings.
+ *
+ * @param <T>
+ *            the type of resulting values
+ */
+public final class TrackedSessionSymbol<T> {
+
+    /** Symbol for the session attribute. */
+    private final ServletSessionSymbol<T> symbol;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sessionSymbol
+     *            the symbol for the session attribute. It must not be
+     *            {@code null}.
+     */
+    public TrackedSessionSymbol(ServletSessionSymbol<T> sessionSymbol) {
+        symbol = Objects.requireNonNull(sessionSymbol);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("TrackedSessionSymbol[attribute=%s]", symbol.attribute());
+    }
+
+    /**
+     * Returns the symbol for the session attribute.
+     *
+     * @return the symbol for the session attribute
+     */
+    public ServletSessionSymbol<T> symbol() {
+        return symbol;
+    }
+
+    /**
+     * Returns the adapted value for the request's session.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     *
+     * @return the adapted value, or {@code null} if not available
+     */
+    public T get(HttpServletRequest request) {
+        final SessionChanges changes = SessionChanges.of(request);
+        final HttpSession session = request.getSession(false);
+
+        if (changes == null) {
+            return (session != null) ? symbol.get(session) : null;
+        }
+
+        return symbol.derive(changes.entry(symbol.attribute(), session).value);
+    }
+
+    /**
+     * Returns the adapted value for the request's session as an
+     * {@link Optional}.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     *
+     * @return the adapted value as an {@link Optional}
+     */
+    public Optional<T> find(HttpServletRequest request) {
+        return Optional.ofNullable(get(request));
+    }
+
+    /**
+     * Sets the value for the request's session, creating the session if
+     * needed.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     * @param value
+     *            the value to set; {@code null} removes the attribute
+     */
+    public void set(HttpServletRequest request, T value) {
+        final HttpSession session = request.getSession(value != null);
+        final SessionChanges changes = SessionChanges.of(request);
+
+        if (changes == null) {
+            if (session != null) {
+                symbol.push(session, value);
+            }
+
+            return;
+        }
+
+        changes.entry(symbol.attribute(), session).value = value;
+    }
+
+    /**
+     * Removes the value from the request's session.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     */
+    public void remove(HttpServletRequest request) {
+        set(request, null);
+    }
+
+    /**
+     * Marks the value as modified in place, so that it is written to the
+     * session although it is the same instance.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     */
+    public void touch(HttpServletRequest request) {
+        final HttpSession session = request.getSession(false);
+        final SessionChanges changes = SessionChanges.of(request);
+
+        if (changes == null) {
+            if (session != null) {
+                final Object value = symbol.pull(session);
+                if (value != null) { // Re-set for the replication
+                    session.setAttribute(symbol.attribute(), value);
+                }
+            }
+
+            return;
+        }
+
+        changes.entry(symbol.attribute(), session).touched = true;
+    }
+
+    /**
+     * Indicates whether the value would be written to the session at the end
+     * of the request.
+     *
+     * @param request
+     *            the request. It must not be {@code null}.
+     *
+     * @return {@code true} if the value is dirty
+     */
+    public boolean isDirty(HttpServletRequest request) {
+        final SessionChanges changes = SessionChanges.of(request);
+        return (changes != null) && changes.entry(symbol.attribute(), request.getSession(false)).dirty();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * A request wrapper that buffers the attribute writes and writes them to the
+ * wrapped request later.
+ *
+ * <p>
+ * Each {@link ServletRequest#setAttribute(String, Object)} of a container may
+ * fire attribute events and take internal locks, while many intermediate values
+ * get overwritten before anyone reads them. This wrapper keeps the writes made
+ * through it in a local buffer and reads from the buffer first, so that any
+ * code using this wrapper, or a wrapper above it, sees the buffered values.
+ * The buffer is flushed, keeping just the last write of each attribute:
+ *
+ * <ul>
+ * <li>when any code lists the attribute names through this wrapper,</li>
+ * <li>before a forward or include through a dispatcher obtained from this
+ * wrapper (dispatchers obtained from the context can't be intercepted, hence
+ * {@link #flush()} should be invoked before using them),</li>
+ * <li>when an asynchronous processing starts, which disables the buffering
+ * for the rest of the request,</li>
+ * <li>and when {@link WriteBehindFilter} completes the request.</li>
+ * </ul>
+ *
+ * <p>
+ * The code that reads the wrapped request directly, rather than through this
+ * wrapper, does not see the buffered writes, and the attribute listeners get
+ * the events when the buffer is flushed.
+ *
+ * <p>
+ * Instances of this class are confined to the request processing thread.
+ */
+public final class WriteBehindRequest extends HttpServletRequestWrapper {
+
+    /** Marker of a buffered removal. */
+    private static final Object REMOVED = new Object();
+
+    /** Buffered writes, or {@code null} if the buffering is disabled. */
+    private Map<String, Object> buffer = new LinkedHashMap<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param request
+     *            the request to wrap. It must not be {@code null}.
+     */
+    public WriteBehindRequest(HttpServletRequest request) {
+        super(request);
+    }
+
+    /**
+     * Returns the number of buffered writes.
+     *
+     * @return the number of buffered writes
+     */
+    public int buffered() {
+        final Map<String, Object> current = buffer;
+        return (current != null) ? current.size() : 0;
+    }
+
+    /**
+     * Writes the buffered values to the wrapped request.
+     */
+    public void flush() {
+        final Map<String, Object> current = buffer;
+        if ((current == null) || current.isEmpty()) {
+            return;
+        }
+
+        final ServletRequest request = getRequest();
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            final Object value = entry.getValue();
+            if (value != REMOVED) {
+                request.setAttribute(entry.getKey(), value);
+            } else {
+                request.removeAttribute(entry.getKey());
+            }
+        }
+
+        current.clear();
+    }
+
+    // Attribute access
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#getAttribute(java.lang.String)
+     */
+    @Override
+    public Object getAttribute(String name) {
+        final Map<String, Object> current = buffer;
+        if (current != null) {
+            final Object result = current.get(name);
+            if (result != null) {
+                return (result != REMOVED) ? result : null;
+            }
+        }
+
+        return super.getAttribute(name);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#getAttributeNames()
+     */
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        flush();
+        return super.getAttributeNames();
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#setAttribute(java.lang.String,
+     *      java.lang.Object)
+     */
+    @Override
+    public void setAttribute(String name, Object o) {
+        write(name, (o != null) ? o : REMOVED);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#removeAttribute(java.lang.String)
+     */
+    @Override
+    public void removeAttribute(String name) {
+        write(name, REMOVED);
+    }
+
+    // Dispatching
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#getRequestDispatcher(java.lang.String)
+     */
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        final RequestDispatcher dispatcher = super.getRequestDispatcher(path);
+        return (dispatcher != null) ? new FlushingDispatcher(dispatcher) : null;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#startAsync()
+     */
+    @Override
+    public AsyncContext startAsync() {
+        disable();
+        return super.startAsync();
+    }
+
+    /**
+     * @see javax.servlet.ServletRequestWrapper#startAsync(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse)
+     */
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        disable();
+        return super.startAsync(servletRequest, servletResponse);
+    }
+
+    /**
+     * Flushes the buffer and disables the buffering.
+     */
+    void disable() {
+        flush();
+        buffer = null;
+    }
+
+    /**
+     * Buffers a write, or writes through if the buffering is disabled.
+     *
+     * @param name
+     *            the name of the attribute. It must not be {@code null}.
+     * @param value
+     *            the value to write, or {@link #REMOVED}
+     */
+    private void write(String name, Object value) {
+        final Map<String, Object> current = buffer;
+        if (current != null) {
+            current.put(name, value);
+        } else if (value != REMOVED) {
+            super.setAttribute(name, value);
+        } else {
+            super.removeAttribute(name);
+        }
+    }
+
+    /**
+     * A dispatcher flushing the buffer before dispatching.
+     */
+    private final class FlushingDispatcher implements RequestDispatcher {
+
+        /** Actual dispatcher. */
+        private final RequestDispatcher dispatcher;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param target
+         *            the actual dispatcher. It must not be {@code null}.
+         */
+        FlushingDispatcher(RequestDispatcher target) {
+            dispatcher = target;
+        }
+
+        /**
+         * @see javax.servlet.RequestDispatcher#forward(javax.servlet.ServletRequest,
+         *      javax.servlet.ServletResponse)
+         */
+        public void forward(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+            flush();
+            dispatcher.forward(request, response);
+        }
+
+        /**
+         * @see javax.servlet.RequestDispatcher#include(javax.servlet.ServletRequest,
+         *      javax.servlet.ServletResponse)
+         */
+        public void include(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+            flush();
+            dispatcher.include(request, response);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet.processing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import net.yetamine.sova.servlet.BoundAttribute;
+
+/**
+ * Describes an attribute of an {@link AttributeSet}.
+ *
+ * <p>
+ * The annotated method must be abstract and it must have no parameters. Its
+ * return type, which must not be parameterized, determines the type of the
+ * attribute value. A primitive return type requires a {@link #fallback()}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Attribute {
+
+    /**
+     * Returns the name of the attribute.
+     *
+     * @return the name of the attribute, or an empty string for the name made
+     *         of the qualifier of the set and of the method name
+     */
+    String value() default "";
+
+    /**
+     * Returns the scope of the attribute, which determines the kind of the
+     * symbol: {@code ServletRequestSymbol}, {@code ServletContextSymbol}, or
+     * {@code ServletSymbol} respectively.
+     *
+     * @return the scope of the attribute
+     */
+    BoundAttribute.Scope scope() default BoundAttribute.Scope.REQUEST;
+
+    /**
+     * Returns the Java expression of the fallback value.
+     *
+     * @return the Java expression of the fallback value, or an empty string if
+     *         no fallback is defined
+     */
+    String fallback() default "";
+}
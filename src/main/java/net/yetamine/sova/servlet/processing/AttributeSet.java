@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet.processing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface describing a set of attributes, for which the annotation
+ * processor shall generate the symbols and the facade.
+ *
+ * <p>
+ * The generated class resides in the package of the interface and it has the
+ * name of the interface with the {@code Symbols} suffix, unless specified by
+ * {@link #name()}. It contains a symbol constant for each attribute, named by
+ * the method in the upper case with underscores, and the {@code facade} method
+ * which returns an implementation of the interface for a request.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface AttributeSet {
+
+    /**
+     * Returns the simple name of the generated class.
+     *
+     * @return the simple name of the generated class, or an empty string for
+     *         the default name
+     */
+    String name() default "";
+
+    /**
+     * Returns the qualifier for the attributes without an explicit name.
+     *
+     * @return the qualifier for the attributes without an explicit name, or an
+     *         empty string for the binary name of the interface
+     */
+    String qualifier() default "";
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compile-time generation of symbol constants and typed facades.
+ *
+ * <p>
+ * An interface annotated with {@link net.yetamine.sova.servlet.processing.AttributeSet}
+ * describes a set of attributes with its abstract methods annotated with
+ * {@link net.yetamine.sova.servlet.processing.Attribute}. The annotation
+ * processor generates a class with symbol constants for the attributes and
+ * with a facade implementing the interface for a request, so that no
+ * reflection or classpath scanning is necessary at the run time and the
+ * attribute name collisions are reported by the compiler.
+ *
+ * <p>
+ * The processor is shipped separately as the artifact with the {@code processor}
+ * classifier, see {@link net.yetamine.sova.servlet.processor}.
+ */
+package net.yetamine.sova.servlet.processing;
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import net.yetamine.sova.servlet.BoundAttribute;
+import net.yetamine.sova.servlet.processing.Attribute;
+import net.yetamine.sova.servlet.processing.AttributeSet;
+
+/**
+ * Generates the symbols and facades for interfaces annotated with
+ * {@link AttributeSet}.
+ *
+ * <p>
+ * Attribute names must be unique within a compilation, otherwise the processor
+ * reports an error for each of the colliding attributes.
+ */
+public final class AttributeSetProcessor extends AbstractProcessor {
+
+    /** Attributes seen in this compilation and their declaring methods. */
+    private final Map<String, Element> attributes = new HashMap<>();
+
+    /**
+     * Creates a new instance.
+     */
+    public AttributeSetProcessor() {
+        // Default constructor
+    }
+
+    /**
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedAnnotationTypes()
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(AttributeSet.class.getName());
+    }
+
+    /**
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+     *      javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(AttributeSet.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@AttributeSet requires an interface.");
+                continue;
+            }
+
+            final TypeElement type = (TypeElement) element;
+            final List<Definition> definitions = definitions(type);
+            if (definitions != null) {
+                generate(type, definitions);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Collects the definitions of the attributes of the given set.
+     *
+     * @param type
+     *            the interface of the set. It must not be {@code null}.
+     *
+     * @return the definitions, or {@code null} if the set is invalid
+     */
+    private List<Definition> definitions(TypeElement type) {
+        final AttributeSet set = type.getAnnotation(AttributeSet.class);
+        final String qualifier = set.qualifier().isEmpty() ? processingEnv.getElementUtils().getBinaryName(type).toString() : set.qualifier();
+        final Map<String, Element> constants = new HashMap<>();
+        final List<Definition> result = new ArrayList<>();
+        boolean valid = true;
+
+        for (Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+            if ((member.getKind() != ElementKind.METHOD) || !member.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+
+            final ExecutableElement method = (ExecutableElement) member;
+            final Attribute attribute = method.getAnnotation(Attribute.class);
+            if (attribute == null) {
+                error(method, "Abstract methods of an attribute set require @Attribute.");
+                valid = false;
+                continue;
+            }
+
+            if (!method.getParameters().isEmpty()) {
+                error(method, "@Attribute requires a method without parameters.");
+                valid = false;
+                continue;
+            }
+
+            final TypeMirror returnType = method.getReturnType();
+            final String valueType = valueType(returnType);
+            if (valueType == null) {
+                error(method, "@Attribute requires a primitive, array or non-parameterized class type.");
+                valid = false;
+                continue;
+            }
+
+            if (returnType.getKind().isPrimitive() && attribute.fallback().isEmpty()) {
+                error(method, "@Attribute with a primitive type requires a fallback.");
+                valid = false;
+                continue;
+            }
+
+            final String identifier = method.getSimpleName().toString();
+            final String constant = constant(identifier);
+            final Element collision = constants.putIfAbsent(constant, method);
+            if (collision != null) {
+                error(method, "Symbol constant " + constant + " collides with " + collision);
+                valid = false;
+                continue;
+            }
+
+            final String name = attribute.value().isEmpty() ? qualifier + ':' + identifier : attribute.value();
+            final Element previous = attributes.putIfAbsent(name, method);
+            if ((previous != null) && (previous != method)) {
+                error(method, "Attribute '" + name + "' collides with " + previous.getEnclosingElement() + '.' + previous);
+                error(previous, "Attribute '" + name + "' collides with " + type + '.' + method);
+                valid = false;
+                continue;
+            }
+
+            result.add(new Definition(method, constant, name, valueType, attribute));
+        }
+
+        return valid ? result : null;
+    }
+
+    /**
+     * Generates the class for the given set.
+     *
+     * @param type
+     *            the interface of the set. It must not be {@code null}.
+     * @param definitions
+     *            the definitions of the attributes. It must not be
+     *            {@code null}.
+     */
+    private void generate(TypeElement type, List<Definition> definitions) {
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        final String configured = type.getAnnotation(AttributeSet.class).name();
+        final String className = configured.isEmpty() ? type.getSimpleName() + "Symbols" : configured;
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + '.' + className;
+        final String typeName = type.getQualifiedName().toString();
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.format("package %s;%n%n", packageName);
+            }
+
+            out.format("/**%n * Symbols and facade for {@link %s}, generated by %s.%n */%n", typeName, getClass().getName());
+            out.format("public final class %s {%n", className);
+
+            for (Definition definition : definitions) {
+                final String adaptation = definition.fallback.isEmpty()
+                        ? String.format("net.yetamine.sova.Downcasting.to(%s.class)", definition.valueType)
+                        : String.format("net.yetamine.sova.Downcasting.withFallbackTo(%s.class, %s)", definition.valueType, definition.fallback);
+
+                out.format("%n    /** Symbol for {@link %s#%s()}. */%n", typeName, definition.method.getSimpleName());
+                out.format("    public static final net.yetamine.sova.servlet.%2$s<%3$s> %1$s = new net.yetamine.sova.servlet.%2$s<>(\"%4$s\", %5$s);%n",
+                        definition.constant, symbolType(definition.scope), definition.valueType, escape(definition.name), adaptation);
+            }
+
+            out.format("%n    private %s() {%n        throw new AssertionError();%n    }%n", className);
+            out.format("%n    /**%n     * Returns a facade for the given request.%n     *%n");
+            out.format("     * @param request%n     *            the request to read. It must not be {@code null}.%n     *%n");
+            out.format("     * @return a facade for the given request%n     */%n");
+            out.format("    public static %s facade(javax.servlet.ServletRequest request) {%n", typeName);
+            out.format("        return new Facade(java.util.Objects.requireNonNull(request));%n    }%n");
+
+            out.format("%n    private static final class Facade implements %s {%n", typeName);
+            out.format("%n        private final javax.servlet.ServletRequest request;%n");
+            out.format("%n        Facade(javax.servlet.ServletRequest source) {%n            request = source;%n        }%n");
+            for (Definition definition : definitions) {
+                final String source = (definition.scope == BoundAttribute.Scope.CONTEXT) ? "request.getServletContext()" : "request";
+                final String access = definition.fallback.isEmpty() ? "get" : "give";
+                out.format("%n        @Override%n        public %s %s() {%n", definition.method.getReturnType(), definition.method.getSimpleName());
+                out.format("            return %s.%s(%s);%n        }%n", definition.constant, access, source);
+            }
+
+            out.format("    }%n}%n");
+        } catch (IOException e) {
+            error(type, "Could not generate " + qualifiedName + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the type of the attribute value for the given return type.
+     *
+     * @param type
+     *            the return type. It must not be {@code null}.
+     *
+     * @return the type of the attribute value, or {@code null} if not
+     *         supported
+     */
+    private String valueType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+
+        if (type.getKind() == TypeKind.ARRAY) {
+            return type.toString().contains("<") ? null : type.toString();
+        }
+
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((DeclaredType) type).getTypeArguments().isEmpty() ? type.toString() : null;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the simple name of the symbol class for the given scope.
+     *
+     * @param scope
+     *            the scope. It must not be {@code null}.
+     *
+     * @return the simple name of the symbol class
+     */
+    private static String symbolType(BoundAttribute.Scope scope) {
+        switch (scope) {
+            case REQUEST:
+                return "ServletRequestSymbol";
+
+            case CONTEXT:
+                return "ServletContextSymbol";
+
+            case ANY:
+                return "ServletSymbol";
+
+            default:
+                throw new AssertionError(scope);
+        }
+    }
+
+    /**
+     * Makes the name of a constant from a method name.
+     *
+     * @param identifier
+     *            the method name. It must not be {@code null}.
+     *
+     * @return the name of the constant
+     */
+    private static String constant(String identifier) {
+        final StringBuilder result = new StringBuilder(identifier.length() + 8);
+        for (int i = 0; i < identifier.length(); i++) {
+            final char c = identifier.charAt(i);
+            if (Character.isUpperCase(c) && (i > 0) && !Character.isUpperCase(identifier.charAt(i - 1))) {
+                result.append('_');
+            }
+
+            result.append(c);
+        }
+
+        return result.toString().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Escapes a string for a Java string literal.
+     *
+     * @param value
+     *            the value to escape. It must not be {@code null}.
+     *
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+        final StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if ((c == '"') || (c == '\\')) {
+                result.append('\\').append(c);
+            } else if ((c < 0x20) || (c > 0x7e)) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Reports an error.
+     *
+     * @param element
+     *            the element to report. It must not be {@code null}.
+     * @param message
+     *            the message. It must not be {@code null}.
+     */
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Definition of a single attribute.
+     */
+    private static final class Definition {
+
+        /** Declaring method. */
+        final ExecutableElement method;
+        /** Name of the symbol constant. */
+        final String constant;
+        /** Name of the attribute. */
+        final String name;
+        /** Type of the attribute value. */
+        final String valueType;
+        /** Scope of the attribute. */
+        final BoundAttribute.Scope scope;
+        /** Expression of the fallback value. */
+        final String fallback;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param declaringMethod
+         *            the declaring method. It must not be {@code null}.
+         * @param constantName
+         *            the name of the symbol constant. It must not be
+         *            {@code null}.
+         * @param attributeName
+         *            the name of the attribute. It must not be {@code null}.
+         * @param type
+         *            the type of the attribute value. It must not be
+         *            {@code null}.
+         * @param attribute
+         *            the annotation. It must not be {@code null}.
+         */
+        Definition(ExecutableElement declaringMethod, String constantName, String attributeName, String type, Attribute attribute) {
+            method = declaringMethod;
+            constant = constantName;
+            name = attributeName;
+            valueType = type;
+            scope = attribute.scope();
+            fallback = attribute.fallback();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * The annotation processor for {@link net.yetamine.sova.servlet.processing}.
+ *
+ * <p>
+ * This package is not a part of the runtime bundle. It is published with its
+ * service registration as the artifact with the {@code processor} classifier,
+ * which should be placed on the annotation processor path of the compilation
+ * (together with the runtime artifact that the processor refers to), so that
+ * the processor is never discovered on a plain compile or runtime classpath.
+ */
+package net.yetamine.sova.servlet.processor;
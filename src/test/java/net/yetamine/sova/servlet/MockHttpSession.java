@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A mock for {@link HttpSession} useful just for attributes holding, which
+ * counts the writes as a replicating container would see them.
+ */
+@SuppressWarnings("deprecation")
+final class MockHttpSession implements HttpSession {
+
+    /** Attribute holder. */
+    private final Map<String, Object> attributes = new HashMap<>();
+    /** Number of attribute writes. */
+    private int writes;
+    /** Invalidation flag. */
+    private boolean invalid;
+
+    /**
+     * Creates a new instance.
+     */
+    public MockHttpSession() {
+        // Default constructor
+    }
+
+    /**
+     * Returns the number of attribute writes, including removals.
+     *
+     * @return the number of attribute writes
+     */
+    public int writes() {
+        return writes;
+    }
+
+    // Methods needed by the implementation
+
+    /**
+     * @see javax.servlet.http.HttpSession#getAttribute(java.lang.String)
+     */
+    public Object getAttribute(String name) {
+        checkValid();
+        return attributes.get(name);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getAttributeNames()
+     */
+    public Enumeration<String> getAttributeNames() {
+        checkValid();
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#setAttribute(java.lang.String,
+     *      java.lang.Object)
+     */
+    public void setAttribute(String name, Object value) {
+        checkValid();
+        ++writes;
+
+        if (value == null) {
+            attributes.remove(name);
+            return;
+        }
+
+        attributes.put(name, value);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#removeAttribute(java.lang.String)
+     */
+    public void removeAttribute(String name) {
+        checkValid();
+        ++writes;
+        attributes.remove(name);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#invalidate()
+     */
+    public void invalidate() {
+        checkValid();
+        attributes.clear();
+        invalid = true;
+    }
+
+    // Methods not important for the tests
+
+    /**
+     * @see javax.servlet.http.HttpSession#getCreationTime()
+     */
+    public long getCreationTime() {
+        return 0;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getId()
+     */
+    public String getId() {
+        return Integer.toHexString(System.identityHashCode(this));
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getLastAccessedTime()
+     */
+    public long getLastAccessedTime() {
+        return 0;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getServletContext()
+     */
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#setMaxInactiveInterval(int)
+     */
+    public void setMaxInactiveInterval(int interval) {
+        // Do nothing
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getMaxInactiveInterval()
+     */
+    public int getMaxInactiveInterval() {
+        return 0;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getSessionContext()
+     */
+    public javax.servlet.http.HttpSessionContext getSessionContext() {
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getValue(java.lang.String)
+     */
+    public Object getValue(String name) {
+        return getAttribute(name);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#getValueNames()
+     */
+    public String[] getValueNames() {
+        return attributes.keySet().toArray(new String[attributes.size()]);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#putValue(java.lang.String,
+     *      java.lang.Object)
+     */
+    public void putValue(String name, Object value) {
+        setAttribute(name, value);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#removeValue(java.lang.String)
+     */
+    public void removeValue(String name) {
+        removeAttribute(name);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpSession#isNew()
+     */
+    public boolean isNew() {
+        return false;
+    }
+
+    /**
+     * Checks that the session has not been invalidated.
+     */
+    private void checkValid() {
+        if (invalid) {
+            throw new IllegalStateException("Session invalidated.");
+        }
+    }
+}
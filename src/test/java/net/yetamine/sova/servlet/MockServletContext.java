@@ -24,13 +24,20 @@ import java.util.Enumeration;
 import java.util.EventListener;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterRegistration;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.Servlet;
 import javax.servlet.ServletContext;
+import javax.servlet.ServletContextAttributeEvent;
+import javax.servlet.ServletContextAttributeListener;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRegistration;
 import javax.servlet.ServletRegistration.Dynamic;
@@ -45,13 +52,33 @@ import javax.servlet.http.HttpServletRequest;
 final class MockServletContext implements ServletContext {
 
     /** Attribute holder. */
-    private final Map<String, Object> attributes = new HashMap<>();
+    private final Map<String, Object> attributes;
+    /** Registered listeners. */
+    private final List<EventListener> listeners = new CopyOnWriteArrayList<>();
+    /** Logged messages. */
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    /** Contexts available via {@link #getContext(String)}. */
+    private final Map<String, ServletContext> contexts = new ConcurrentHashMap<>();
+    /** Number of {@link #getContext(String)} invocations. */
+    private int contextLookups;
+    /** Indicates that the context listeners can't be added anymore. */
+    private volatile boolean initialized;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param storage
+     *            the attribute holder to use. It must not be {@code null}.
+     */
+    private MockServletContext(Map<String, Object> storage) {
+        attributes = storage;
+    }
 
     /**
      * Creates a new instance.
      */
     public MockServletContext() {
-        // Default constructor
+        this(new HashMap<>());
     }
 
     /**
@@ -61,12 +88,80 @@ final class MockServletContext implements ServletContext {
      *            the source of the attributes. It must not be {@code null}.
      */
     public MockServletContext(ServletContext source) {
+        this();
         for (Enumeration<String> names = source.getAttributeNames(); names.hasMoreElements();) {
             final String name = names.nextElement();
             attributes.put(name, source.getAttribute(name));
         }
     }
 
+    /**
+     * Creates a new instance that is safe for concurrent use as real contexts
+     * must be.
+     *
+     * @return the new instance
+     */
+    public static MockServletContext concurrent() {
+        return new MockServletContext(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Notifies the context listeners about destroying this context.
+     */
+    public void destroy() {
+        final ServletContextEvent event = new ServletContextEvent(this);
+        for (EventListener listener : listeners) {
+            if (listener instanceof ServletContextListener) {
+                ((ServletContextListener) listener).contextDestroyed(event);
+            }
+        }
+    }
+
+    /**
+     * Makes a context available via {@link #getContext(String)}.
+     *
+     * @param uripath
+     *            the path of the context. It must not be {@code null}.
+     * @param context
+     *            the context to provide, or {@code null} to remove it
+     */
+    public void context(String uripath, ServletContext context) {
+        if (context == null) {
+            contexts.remove(uripath);
+        } else {
+            contexts.put(uripath, context);
+        }
+    }
+
+    /**
+     * Makes the context behave as outside of a container initializer, which
+     * rejects adding context listeners.
+     *
+     * @return this instance
+     */
+    public MockServletContext initialized() {
+        initialized = true;
+        return this;
+    }
+
+    /**
+     * Returns the number of {@link #getContext(String)} invocations.
+     *
+     * @return the number of {@link #getContext(String)} invocations
+     */
+    public int contextLookups() {
+        return contextLookups;
+    }
+
+    /**
+     * Returns the logged messages.
+     *
+     * @return the logged messages
+     */
+    public List<String> messages() {
+        return messages;
+    }
+
     // Methods needed by the implementation
 
     /**
@@ -81,14 +176,78 @@ final class MockServletContext implements ServletContext {
      *      java.lang.Object)
      */
     public void setAttribute(String name, Object o) {
-        attributes.put(name, o);
+        if (o == null) { // Equivalent to removing according to the specification
+            removeAttribute(name);
+            return;
+        }
+
+        final Object replaced = attributes.put(name, o);
+        if (listeners.isEmpty()) { // Avoid allocations for plain attribute holding
+            return;
+        }
+
+        for (EventListener listener : listeners) {
+            if (listener instanceof ServletContextAttributeListener) {
+                final ServletContextAttributeListener l = (ServletContextAttributeListener) listener;
+
+                if (replaced == null) {
+                    l.attributeAdded(new ServletContextAttributeEvent(this, name, o));
+                } else {
+                    l.attributeReplaced(new ServletContextAttributeEvent(this, name, replaced));
+                }
+            }
+        }
     }
 
     /**
      * @see javax.servlet.ServletRequest#removeAttribute(java.lang.String)
      */
     public void removeAttribute(String name) {
-        attributes.remove(name);
+        final Object removed = attributes.remove(name);
+        if ((removed == null) || listeners.isEmpty()) {
+            return;
+        }
+
+        for (EventListener listener : listeners) {
+            if (listener instanceof ServletContextAttributeListener) {
+                final ServletContextAttributeEvent event = new ServletContextAttributeEvent(this, name, removed);
+                ((ServletContextAttributeListener) listener).attributeRemoved(event);
+            }
+        }
+    }
+
+    /**
+     * @see javax.servlet.ServletContext#getContext(java.lang.String)
+     */
+    public ServletContext getContext(String uripath) {
+        ++contextLookups;
+        return contexts.get(uripath);
+    }
+
+    /**
+     * @see javax.servlet.ServletContext#addListener(java.util.EventListener)
+     */
+    public <T extends EventListener> void addListener(T t) {
+        if (initialized && (t instanceof ServletContextListener)) {
+            throw new IllegalArgumentException("Context listeners can be added by initializers only.");
+        }
+
+        listeners.add(t);
+    }
+
+    /**
+     * @see javax.servlet.ServletContext#log(java.lang.String)
+     */
+    public void log(String msg) {
+        messages.add(msg);
+    }
+
+    /**
+     * @see javax.servlet.ServletContext#log(java.lang.String,
+     *      java.lang.Throwable)
+     */
+    public void log(String message, Throwable throwable) {
+        messages.add(message);
     }
 
     /**
@@ -107,13 +266,6 @@ final class MockServletContext implements ServletContext {
         throw new UnsupportedOperationException();
     }
 
-    /**
-     * @see javax.servlet.ServletContext#getContext(java.lang.String)
-     */
-    public ServletContext getContext(String uripath) {
-        throw new UnsupportedOperationException();
-    }
-
     /**
      * @see javax.servlet.ServletContext#getMajorVersion()
      */
@@ -211,13 +363,6 @@ final class MockServletContext implements ServletContext {
         throw new UnsupportedOperationException();
     }
 
-    /**
-     * @see javax.servlet.ServletContext#log(java.lang.String)
-     */
-    public void log(String msg) {
-        throw new UnsupportedOperationException();
-    }
-
     /**
      * @see javax.servlet.ServletContext#log(java.lang.Exception,
      *      java.lang.String)
@@ -228,14 +373,6 @@ final class MockServletContext implements ServletContext {
         throw new UnsupportedOperationException();
     }
 
-    /**
-     * @see javax.servlet.ServletContext#log(java.lang.String,
-     *      java.lang.Throwable)
-     */
-    public void log(String message, Throwable throwable) {
-        throw new UnsupportedOperationException();
-    }
-
     /**
      * @see javax.servlet.ServletContext#getRealPath(java.lang.String)
      */
@@ -404,13 +541,6 @@ final class MockServletContext implements ServletContext {
         throw new UnsupportedOperationException();
     }
 
-    /**
-     * @see javax.servlet.ServletContext#addListener(java.util.EventListener)
-     */
-    public <T extends EventListener> void addListener(T t) {
-        throw new UnsupportedOperationException();
-    }
-
     /**
      * @see javax.servlet.ServletContext#addListener(java.lang.Class)
      */
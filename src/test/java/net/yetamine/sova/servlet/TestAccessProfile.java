@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.Downcasting;
+
+/**
+ * Tests {@link AccessProfile}.
+ */
+public final class TestAccessProfile {
+
+    /** Symbol falling back to the context. */
+    private static final ServletSymbol<String> LOCALE = new ServletSymbol<>("locale", Downcasting.to(String.class));
+    /** Request symbol. */
+    private static final ServletRequestSymbol<String> USER = new ServletRequestSymbol<>("user", String.class);
+
+    /**
+     * Tests recording the accesses.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testRecording() throws Exception {
+        final AccessProfile profile = new AccessProfile(Collections.singleton(LOCALE), 1.0, 16);
+        final MockServletContext context = new MockServletContext();
+        context.setAttribute("locale", "en");
+
+        for (int i = 0; i < 2; i++) {
+            final ServletRequest request = request(new MockServletRequest().setServletContext(context), "/app");
+            profile.doFilter(request, null, (req, res) -> {
+                Assert.assertEquals(LOCALE.get(req), "en");
+                USER.push(req, "alice");
+                Assert.assertEquals(USER.get(req), "alice");
+            });
+
+            // Not recorded after the chain completes
+            USER.get(request);
+        }
+
+        final List<AccessProfile.Access> report = profile.report();
+        Assert.assertEquals(report.size(), 2);
+        for (AccessProfile.Access access : report) {
+            Assert.assertEquals(access.route(), "/app");
+            Assert.assertEquals(access.requests(), 2);
+
+            switch (access.attribute()) {
+                case "locale":
+                    Assert.assertEquals(access.misses(), 2);
+                    Assert.assertEquals(access.fallbacks(), 2);
+                    Assert.assertEquals(access.reads(), 0);
+                    break;
+
+                case "user":
+                    Assert.assertEquals(access.writes(), 2);
+                    Assert.assertEquals(access.reads(), 2);
+                    Assert.assertEquals(access.fallbacks(), 0);
+                    break;
+
+                default:
+                    Assert.fail(access.toString());
+            }
+        }
+
+        profile.clear();
+        Assert.assertTrue(profile.report().isEmpty());
+    }
+
+    /**
+     * Tests the sampling rate and the limit.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testBounds() throws Exception {
+        final AccessProfile disabled = new AccessProfile(Collections.emptySet(), 0.0, 16);
+        disabled.doFilter(request(new MockServletRequest(), null), null, (req, res) -> USER.get(req));
+        Assert.assertTrue(disabled.report().isEmpty());
+
+        final AccessProfile limited = new AccessProfile(Collections.emptySet(), 1.0, 1);
+        limited.doFilter(new MockServletRequest(), null, (req, res) -> USER.get(req));
+        Assert.assertTrue(limited.report().isEmpty()); // Not an HTTP request
+
+        limited.doFilter(request(new MockServletRequest(), null), null, (req, res) -> {
+            USER.get(req);
+            LOCALE.forRequest().get(req);
+        });
+
+        Assert.assertEquals(limited.report().size(), 1);
+        Assert.assertEquals(limited.report().get(0).route(), "/");
+        Assert.assertEquals(limited.dropped(), 1);
+    }
+
+    /**
+     * Tests that the wrappers below the profile keep working.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testWrappers() throws Exception {
+        final AccessProfile profile = new AccessProfile(Collections.emptySet(), 1.0, 16);
+        final AttributeTable table = AttributeTable.of(Collections.singleton(USER));
+        final MockServletRequest attributes = new MockServletRequest().setServletContext(new MockServletContext());
+
+        new AttributeTableFilter(table).doFilter(request(attributes, "/app"), null, (outer, response) -> {
+            new WriteBehindFilter().doFilter(outer, response, (inner, r) -> profile.doFilter(inner, r, (req, res) -> {
+                Assert.assertFalse(req instanceof AttributeTableRequest);
+                final AttributeTableRequest found = AttributeTableRequest.find(req).get();
+                Assert.assertSame(found, outer);
+
+                USER.push(req, "alice");
+                Assert.assertEquals(USER.get(req), "alice");
+                Assert.assertNull(found.get(table.slot(USER))); // Still buffered above the table
+            }));
+
+            Assert.assertEquals(((AttributeTableRequest) outer).get(table.slot(USER)), "alice");
+            Assert.assertNull(attributes.getAttribute("user"));
+        });
+
+        Assert.assertEquals(attributes.getAttribute("user"), "alice");
+        Assert.assertEquals(profile.report().size(), 1);
+        Assert.assertFalse(AttributeTableRequest.find(attributes).isPresent());
+    }
+
+    /**
+     * Tests the routes derived from the servlet mappings.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testRoutes() throws Exception {
+        final List<String> patterns = Arrays.asList("/", "/app", "*.jsp", "/api/*");
+        final ServletRegistration registration = (ServletRegistration) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ServletRegistration.class }, (proxy, method, args) -> {
+            if ("getMappings".equals(method.getName())) {
+                return patterns;
+            }
+
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        final MockServletContext actual = new MockServletContext();
+        final ServletContext context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ServletContext.class }, (proxy, method, args) -> {
+            if ("getServletRegistrations".equals(method.getName())) {
+                return Collections.singletonMap("main", registration);
+            }
+
+            return method.invoke(actual, args);
+        });
+
+        final AccessProfile profile = new AccessProfile(Collections.emptySet(), 1.0, 16);
+        final String[][] requests = { //
+                { "/app", null }, //
+                { "/api", "/users/1" }, //
+                { "/api", "/users/2" }, //
+                { "/pages/index.jsp", null }, //
+                { "/users/1", null }, //
+                { "/users/2", null }, //
+                { "/static/style.css", null } //
+        };
+
+        for (String[] paths : requests) {
+            final ServletRequest request = request(new MockServletRequest().setServletContext(context), paths[0], paths[1]);
+            profile.doFilter(request, null, (req, res) -> USER.get(req));
+        }
+
+        final Map<String, Long> routes = new HashMap<>();
+        profile.report().forEach(access -> routes.put(access.route(), access.requests()));
+        final Map<String, Long> expected = new HashMap<>();
+        expected.put("/app", 1L);
+        expected.put("/api/*", 2L);
+        expected.put("*.jsp", 1L);
+        expected.put("/", 3L);
+        Assert.assertEquals(routes, expected);
+        Assert.assertEquals(profile.dropped(), 0);
+    }
+
+    /**
+     * Creates an HTTP request delegating to the given request.
+     *
+     * @param request
+     *            the actual request. It must not be {@code null}.
+     * @param servletPath
+     *            the servlet path of the request
+     *
+     * @return the request
+     */
+    private static HttpServletRequest request(ServletRequest request, String servletPath) {
+        return request(request, servletPath, null);
+    }
+
+    /**
+     * Creates an HTTP request delegating to the given request.
+     *
+     * @param request
+     *            the actual request. It must not be {@code null}.
+     * @param servletPath
+     *            the servlet path of the request
+     * @param pathInfo
+     *            the path info of the request
+     *
+     * @return the request
+     */
+    private static HttpServletRequest request(ServletRequest request, String servletPath, String pathInfo) {
+        return (HttpServletRequest) Proxy.newProxyInstance(TestAccessProfile.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == ServletRequest.class) {
+                return method.invoke(request, args);
+            }
+
+            if ("getServletPath".equals(method.getName())) {
+                return servletPath;
+            }
+
+            if ("getPathInfo".equals(method.getName())) {
+                return pathInfo;
+            }
+
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AdaptationPipeline}.
+ */
+public final class TestAdaptationPipeline {
+
+    /** Pipeline parsing positive integers from strings. */
+    private static final AdaptationPipeline<Integer> POSITIVE = AdaptationPipeline.of(String.class)
+            .map(Integer.class, TestAdaptationPipeline::parse)
+            .filter(i -> i > 0);
+
+    /**
+     * Tests {@link AdaptationPipeline#apply(Object)}.
+     */
+    @Test
+    public void testApply() {
+        Assert.assertEquals(AdaptationPipeline.of(String.class).apply("hello"), "hello");
+        Assert.assertNull(AdaptationPipeline.of(String.class).apply(Integer.valueOf(1)));
+        Assert.assertNull(AdaptationPipeline.of(String.class).apply(null));
+
+        Assert.assertEquals(POSITIVE.type(), Integer.class);
+        Assert.assertEquals(POSITIVE.apply("42"), Integer.valueOf(42));
+        Assert.assertNull(POSITIVE.apply("-1"));
+        Assert.assertNull(POSITIVE.apply("nothing"));
+        Assert.assertNull(POSITIVE.apply(Integer.valueOf(42)));
+        Assert.assertNull(POSITIVE.apply(null));
+
+        // Type mismatch of a conversion result must fail the step
+        Assert.assertNull(AdaptationPipeline.of(Object.class).map(Integer.class, Object::toString).apply("42"));
+    }
+
+    /**
+     * Tests symbols using a pipeline.
+     */
+    @Test
+    public void testSymbols() {
+        final Integer fallback = Integer.valueOf(1);
+        final AdaptationPipeline<Integer> pipeline = POSITIVE.withFallback(fallback);
+
+        final ServletContext context = new MockServletContext();
+        context.setAttribute("context", "7");
+        final ServletRequest request = new MockServletRequest().setServletContext(context);
+        request.setAttribute("valid", "42");
+        request.setAttribute("invalid", "-42");
+
+        final ServletRequestSymbol<Integer> valid = new ServletRequestSymbol<>("valid", pipeline);
+        Assert.assertEquals(valid.get(request), Integer.valueOf(42));
+        Assert.assertEquals(valid.find(request).get(), Integer.valueOf(42));
+        Assert.assertEquals(valid.yield(request).get(), Integer.valueOf(42));
+
+        // Both kinds of results report the outcome of the pipeline
+        final ResultHolder<Integer> holder = new ResultHolder<>();
+        Assert.assertTrue(valid.yieldInto(request, holder));
+        Assert.assertEquals(holder.argument(), valid.yield(request).argument());
+        Assert.assertEquals(holder.argument(), Integer.valueOf(42));
+        Assert.assertTrue(new ServletSymbol<>("context", pipeline).yieldInto(request, holder));
+        Assert.assertEquals(holder.argument(), new ServletSymbol<>("context", pipeline).yield(request).argument());
+
+        final ServletRequestSymbol<Integer> invalid = new ServletRequestSymbol<>("invalid", pipeline);
+        Assert.assertNull(invalid.get(request));
+        Assert.assertEquals(invalid.give(request), fallback);
+        Assert.assertFalse(invalid.find(request).isPresent());
+
+        invalid.let(request, "13");
+        Assert.assertEquals(request.getAttribute("invalid"), Integer.valueOf(13));
+        invalid.let(request, "-13");
+        Assert.assertNull(request.getAttribute("invalid"));
+
+        Assert.assertEquals(new ServletContextSymbol<>("context", pipeline).get(context), Integer.valueOf(7));
+        Assert.assertEquals(new ServletSymbol<>("context", pipeline).get(request), Integer.valueOf(7));
+        Assert.assertEquals(new ServletSymbol<>("valid", pipeline).get(request), Integer.valueOf(42));
+    }
+
+    /**
+     * Parses an integer.
+     *
+     * @param s
+     *            the string to parse
+     *
+     * @return the integer, or {@code null} if not possible
+     */
+    private static Integer parse(String s) {
+        try {
+            return Integer.valueOf(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.AdaptationProvider;
+import net.yetamine.sova.Downcasting;
+
+/**
+ * Tests the allocation budgets of the symbol operations, so that any silent
+ * allocation creep is caught by the build.
+ *
+ * <p>
+ * The budgets are the upper bounds of the average number of bytes allocated
+ * by a single invocation of an operation. The results of the operations are
+ * always published in a field, hence they escape and their allocations can't
+ * be eliminated by the escape analysis; the budgets therefore represent the
+ * worst case rather than the best case of a well-optimized call site.
+ */
+public final class TestAllocationBudget {
+
+    /** Number of invocations to warm up the code before measuring. */
+    private static final int WARMUP = 50_000;
+    /** Number of invocations to measure. */
+    private static final int ITERATIONS = 200_000;
+
+    /** Budget for operations that must not allocate at all. */
+    private static final long NOTHING = 0;
+    /** Budget for operations that may allocate a single small object. */
+    private static final long SINGLE_OBJECT = 32;
+    /** Budget for operations that may allocate two small objects. */
+    private static final long TWO_OBJECTS = 2 * SINGLE_OBJECT;
+
+    /** Value to be present under the key {@code "integer"}. */
+    private static final Integer INTEGER_VALUE = Integer.valueOf(1024);
+    /** Value to be present under the key {@code "mock"}. */
+    private static final MockObject MOCK_VALUE = new MockObject("mock");
+    /** Adaptation to use for {@link #INTEGER_VALUE}. */
+    private static final AdaptationProvider<Integer> INTEGER = Downcasting.to(Integer.class);
+    /** Supplier for {@code supply} operations. */
+    private static final Supplier<Integer> SURROGATE = () -> INTEGER_VALUE;
+
+    /** Thread management interface to use. */
+    private com.sun.management.ThreadMXBean threads;
+    /** Sink for the results, so that they escape. */
+    private Object sink;
+    /** Sink for the hash codes, so that they need no boxing. */
+    private int hash;
+    /** Sink for the presence flags, so that they need no boxing. */
+    private boolean present;
+
+    /**
+     * Prepares the thread management interface, or skips the tests if it is
+     * not supported by the platform.
+     */
+    @BeforeClass
+    public void setUp() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("Thread allocation measurement not available.");
+        }
+
+        threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new SkipException("Thread allocation measurement not supported.");
+        }
+
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Tests {@link ServletRequestSymbol} operations.
+     */
+    @Test
+    public void testServletRequestSymbol() {
+        final ServletRequest request = new MockServletRequest();
+        request.setAttribute("integer", INTEGER_VALUE);
+        final ServletRequestSymbol<Integer> symbol = new ServletRequestSymbol<>("integer", INTEGER);
+        final ServletRequestSymbol<Integer> missing = new ServletRequestSymbol<>("missing", INTEGER);
+
+        assertBudget("get", NOTHING, () -> sink = symbol.get(request));
+        assertBudget("get/missing", NOTHING, () -> sink = missing.get(request));
+        assertBudget("give", NOTHING, () -> sink = symbol.give(request));
+        assertBudget("find", SINGLE_OBJECT, () -> sink = symbol.find(request));
+        assertBudget("find/missing", NOTHING, () -> sink = missing.find(request));
+        assertBudget("yield", SINGLE_OBJECT, () -> sink = symbol.yield(request));
+        final ResultHolder<Integer> holder = new ResultHolder<>();
+        assertBudget("yieldInto", NOTHING, () -> present = symbol.yieldInto(request, holder));
+        assertBudget("supply", NOTHING, () -> sink = symbol.supply(request, SURROGATE));
+        assertBudget("let", NOTHING, () -> symbol.let(request, INTEGER_VALUE));
+        assertBudget("have", TWO_OBJECTS, () -> sink = symbol.have(request, INTEGER_VALUE));
+        assertBudget("have/present", SINGLE_OBJECT, () -> sink = symbol.have(request));
+        assertBudget("hashCode", NOTHING, () -> hash = symbol.hashCode());
+    }
+
+    /**
+     * Tests {@link ServletContextSymbol} operations.
+     */
+    @Test
+    public void testServletContextSymbol() {
+        final ServletContext context = new MockServletContext();
+        context.setAttribute("integer", INTEGER_VALUE);
+        final ServletContextSymbol<Integer> symbol = new ServletContextSymbol<>("integer", INTEGER);
+        final ServletContextSymbol<Integer> missing = new ServletContextSymbol<>("missing", INTEGER);
+
+        assertBudget("get", NOTHING, () -> sink = symbol.get(context));
+        assertBudget("get/missing", NOTHING, () -> sink = missing.get(context));
+        assertBudget("give", NOTHING, () -> sink = symbol.give(context));
+        assertBudget("find", SINGLE_OBJECT, () -> sink = symbol.find(context));
+        assertBudget("find/missing", NOTHING, () -> sink = missing.find(context));
+        assertBudget("yield", SINGLE_OBJECT, () -> sink = symbol.yield(context));
+        final ResultHolder<Integer> holder = new ResultHolder<>();
+        assertBudget("yieldInto", NOTHING, () -> present = symbol.yieldInto(context, holder));
+        assertBudget("supply", NOTHING, () -> sink = symbol.supply(context, SURROGATE));
+        assertBudget("let", NOTHING, () -> symbol.let(context, INTEGER_VALUE));
+        assertBudget("have", TWO_OBJECTS, () -> sink = symbol.have(context, INTEGER_VALUE));
+        assertBudget("have/present", SINGLE_OBJECT, () -> sink = symbol.have(context));
+        assertBudget("hashCode", NOTHING, () -> hash = symbol.hashCode());
+    }
+
+    /**
+     * Tests {@link ServletSymbol} operations.
+     */
+    @Test
+    public void testServletSymbol() {
+        final ServletContext context = new MockServletContext();
+        context.setAttribute("mock", MOCK_VALUE);
+        final ServletRequest request = new MockServletRequest().setServletContext(context);
+        request.setAttribute("integer", INTEGER_VALUE);
+
+        final ServletSymbol<Integer> symbol = new ServletSymbol<>("integer", INTEGER);
+        final ServletSymbol<MockObject> fallback = new ServletSymbol<>("mock", Downcasting.to(MockObject.class));
+
+        assertBudget("get", NOTHING, () -> sink = symbol.get(request));
+        assertBudget("get/context", NOTHING, () -> sink = fallback.get(request));
+        assertBudget("give", NOTHING, () -> sink = symbol.give(request));
+        assertBudget("give/context", NOTHING, () -> sink = fallback.give(request));
+        assertBudget("find", SINGLE_OBJECT, () -> sink = symbol.find(request));
+        assertBudget("find/context", SINGLE_OBJECT, () -> sink = fallback.find(request));
+        assertBudget("yield", SINGLE_OBJECT, () -> sink = symbol.yield(request));
+        assertBudget("yield/context", TWO_OBJECTS, () -> sink = fallback.yield(request));
+        final ResultHolder<Object> holder = new ResultHolder<>();
+        assertBudget("yieldInto", NOTHING, () -> present = symbol.yieldInto(request, holder));
+        assertBudget("yieldInto/context", NOTHING, () -> present = fallback.yieldInto(request, holder));
+        assertBudget("hashCode", NOTHING, () -> hash = symbol.hashCode());
+    }
+
+    /**
+     * Asserts that the given operation does not allocate more than allowed.
+     *
+     * @param name
+     *            the name of the operation. It must not be {@code null}.
+     * @param budget
+     *            the maximal number of bytes allocated by a single invocation
+     * @param operation
+     *            the operation to test. It must not be {@code null}.
+     */
+    private void assertBudget(String name, long budget, Runnable operation) {
+        final double allocated = measure(operation) - measure(() -> sink = null);
+        final String message = String.format("Operation '%s' allocated %.2f bytes per call (budget %d).", name, allocated, budget);
+        Assert.assertTrue(allocated <= budget + 0.5, message);
+    }
+
+    /**
+     * Measures the average number of bytes allocated by the operation.
+     *
+     * @param operation
+     *            the operation to measure. It must not be {@code null}.
+     *
+     * @return the average number of bytes allocated by the operation
+     */
+    private double measure(Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        final long thread = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+
+        final long after = threads.getThreadAllocatedBytes(thread);
+        return (double) (after - before) / ITERATIONS;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.servlet.ServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AttributeBinder}.
+ */
+public final class TestAttributeBinder {
+
+    /**
+     * Tests binding attributes from all scopes.
+     */
+    @Test
+    public void testBind() {
+        final MockServletContext context = new MockServletContext();
+        context.setAttribute("limit", 10);
+        context.setAttribute("locale", "en");
+        final ServletRequest request = new MockServletRequest().setServletContext(context);
+        request.setAttribute("user", "alice");
+        request.setAttribute("locale", "cs");
+        request.setAttribute("limit", 20);
+
+        final AttributeBinder<Handler> binder = AttributeBinder.of(Handler.class);
+        Assert.assertSame(AttributeBinder.of(Handler.class), binder);
+        Assert.assertEquals(new HashSet<>(binder.attributes()), new HashSet<>(Arrays.asList("user", "limit", "locale", "flag")));
+
+        final Handler handler = binder.bind(request);
+        Assert.assertEquals(handler.user, "alice");
+        Assert.assertEquals(handler.limit, 10);
+        Assert.assertEquals(handler.locale, "cs");
+        Assert.assertTrue(handler.flag); // Missing, so retains the default
+
+        // Non-adaptable values are skipped as well
+        request.setAttribute("user", 42);
+        request.removeAttribute("locale");
+        final Handler filled = binder.fill(request, new Handler());
+        Assert.assertNull(filled.user);
+        Assert.assertEquals(filled.locale, "en");
+    }
+
+    /**
+     * Tests rejecting types that can't be bound.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidType() {
+        AttributeBinder.of(Runnable.class);
+    }
+
+    /**
+     * Bound type for testing.
+     */
+    public static final class Handler {
+
+        /** Request attribute. */
+        String user;
+        /** Context attribute. */
+        int limit;
+        /** Attribute from either scope. */
+        String locale;
+        /** Missing attribute. */
+        boolean flag = true;
+
+        /**
+         * Sets the user.
+         *
+         * @param value
+         *            the value
+         */
+        @BoundAttribute("user")
+        public void setUser(String value) {
+            user = value;
+        }
+
+        /**
+         * Sets the limit.
+         *
+         * @param value
+         *            the value
+         */
+        @BoundAttribute(value = "limit", scope = BoundAttribute.Scope.CONTEXT)
+        public void setLimit(int value) {
+            limit = value;
+        }
+
+        /**
+         * Sets the locale.
+         *
+         * @param value
+         *            the value
+         *
+         * @return this instance
+         */
+        @BoundAttribute(value = "locale", scope = BoundAttribute.Scope.ANY)
+        public Handler setLocale(String value) {
+            locale = value;
+            return this;
+        }
+
+        /**
+         * Sets the flag.
+         *
+         * @param value
+         *            the value
+         */
+        @BoundAttribute("flag")
+        public void setFlag(boolean value) {
+            flag = value;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AttributeFootprint} and {@link FootprintEstimator}.
+ */
+public final class TestAttributeFootprint {
+
+    /**
+     * Tests {@link FootprintEstimator#standard()}.
+     */
+    @Test
+    public void testStandardEstimator() {
+        final FootprintEstimator estimator = FootprintEstimator.standard();
+        Assert.assertEquals(estimator.estimate(null), 0);
+        Assert.assertTrue(estimator.estimate("hello") > 0);
+        Assert.assertTrue(estimator.estimate(new long[1000]) >= 8000);
+        Assert.assertTrue(estimator.estimate(new byte[1000]) < estimator.estimate(new long[1000]));
+
+        final List<String> strings = Collections.nCopies(1000, "hello");
+        Assert.assertTrue(estimator.estimate(strings) > 1000 * estimator.estimate("hello"));
+        final Map<String, Object> map = new HashMap<>();
+        map.put("a", new int[100]);
+        Assert.assertTrue(estimator.estimate(map) > estimator.estimate(new int[100]));
+
+        // Opaque objects have a fixed size unless an estimator is plugged in
+        final MockObject opaque = new MockObject("opaque");
+        final FootprintEstimator custom = FootprintEstimator.standard(Collections.singletonMap(MockObject.class, value -> 1000));
+        Assert.assertTrue(estimator.estimate(opaque) < 1000);
+        Assert.assertEquals(custom.estimate(opaque), 1000);
+        Assert.assertTrue(custom.estimate(Collections.nCopies(10, opaque)) >= 10_000);
+        Assert.assertEquals(custom.estimate("hello"), estimator.estimate("hello"));
+    }
+
+    /**
+     * Tests that a failing estimate does not escape.
+     */
+    @Test
+    public void testFailures() {
+        final ServletContextSymbol<Object> symbol = new ServletContextSymbol<>("failing", Object.class);
+        final FootprintEstimator estimator = value -> {
+            throw new ConcurrentModificationException();
+        };
+
+        final AttributeFootprint footprint = new AttributeFootprint(estimator, Arrays.asList(symbol), Collections.emptyList(), 1.0);
+        final ServletContext context = new MockServletContext();
+        symbol.push(context, new Object());
+        Assert.assertEquals(footprint.update(context, 1), 1);
+        Assert.assertEquals(footprint.failures(), 1);
+        Assert.assertTrue(footprint.report().isEmpty());
+    }
+
+    /**
+     * Tests the accounting.
+     */
+    @Test
+    public void testAccounting() {
+        final ServletContextSymbol<long[]> small = new ServletContextSymbol<>("small", long[].class);
+        final ServletContextSymbol<long[]> large = new ServletContextSymbol<>("large", long[].class);
+        final ServletContextSymbol<long[]> missing = new ServletContextSymbol<>("missing", long[].class);
+        final ServletRequestSymbol<long[]> session = new ServletRequestSymbol<>("session", long[].class);
+        final AttributeFootprint footprint = new AttributeFootprint(FootprintEstimator.standard(), Arrays.asList(small, large, missing), Arrays.asList(session), 1.0);
+
+        final ServletContext context = new MockServletContext();
+        small.push(context, new long[10]);
+        large.push(context, new long[10_000]);
+
+        footprint.install(context);
+        Assert.assertSame(AttributeFootprint.find(context).get(), footprint);
+        Assert.assertFalse(AttributeFootprint.find(new MockServletContext()).isPresent());
+
+        Assert.assertEquals(footprint.update(context, 1), 1);
+        Assert.assertEquals(footprint.report().size(), 1);
+        Assert.assertEquals(footprint.update(context, 10), 3);
+
+        final Map<String, Object> attributes = Collections.singletonMap("session", new long[100]);
+        footprint.sample((HttpSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+            Assert.assertEquals(method.getName(), "getAttribute");
+            return attributes.get(args[0]);
+        }));
+
+        final Map<String, AttributeFootprint.Footprint> report = new HashMap<>();
+        footprint.report().forEach(f -> report.put(f.scope() + ':' + f.attribute(), f));
+        Assert.assertEquals(report.keySet().size(), 3);
+        Assert.assertEquals(report.get("context:small").samples(), 2);
+        Assert.assertEquals(report.get("context:large").samples(), 1);
+        Assert.assertTrue(report.get("context:large").max() > report.get("context:small").max());
+        Assert.assertEquals(report.get("session:session").samples(), 1);
+        Assert.assertEquals(report.get("session:session").average(), report.get("session:session").last());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AttributeNamespace}.
+ */
+public final class TestAttributeNamespace {
+
+    /**
+     * Tests {@link AttributeNamespace#name(String)} and related methods.
+     */
+    @Test
+    public void testNames() {
+        final AttributeNamespace namespace = new AttributeNamespace("test");
+        Assert.assertEquals(namespace.qualifier(), "test");
+        Assert.assertEquals(namespace.names(), Collections.emptySet());
+
+        Assert.assertEquals(namespace.name("a"), ServletAttributeSymbol.name("test", "a"));
+        Assert.assertEquals(namespace.name("b"), "test:b");
+        Assert.assertEquals(namespace.name("a"), "test:a");
+        Assert.assertEquals(namespace.names(), new HashSet<>(Arrays.asList("test:a", "test:b")));
+
+        Assert.assertTrue(namespace.contains("test:a"));
+        Assert.assertFalse(namespace.contains("test:c"));
+        Assert.assertFalse(namespace.contains(null));
+
+        final AttributeNamespace typed = AttributeNamespace.of(TestAttributeNamespace.class);
+        Assert.assertEquals(typed.name("a"), ServletAttributeSymbol.name(TestAttributeNamespace.class, "a"));
+    }
+
+    /**
+     * Tests the operations with request attributes.
+     */
+    @Test
+    public void testRequest() {
+        final AttributeNamespace namespace = new AttributeNamespace("test");
+        final ServletRequestSymbol<Integer> a = new ServletRequestSymbol<>(namespace.name("a"), Integer.class);
+        final ServletRequestSymbol<Integer> b = new ServletRequestSymbol<>(namespace.name("b"), Integer.class);
+
+        final ServletRequest source = new MockServletRequest();
+        source.setAttribute("other", "other");
+        source.setAttribute("test:unknown", "unknown");
+        a.push(source, Integer.valueOf(1));
+
+        Assert.assertEquals(namespace.attributes(source), Collections.singletonMap("test:a", Integer.valueOf(1)));
+
+        final ServletRequest target = new MockServletRequest();
+        b.push(target, Integer.valueOf(2));
+        namespace.copy(source, target);
+        Assert.assertEquals(a.get(target), Integer.valueOf(1));
+        Assert.assertNull(b.get(target));
+
+        namespace.clear(source);
+        Assert.assertNull(a.get(source));
+        Assert.assertEquals(source.getAttribute("other"), "other");
+        Assert.assertEquals(source.getAttribute("test:unknown"), "unknown");
+    }
+
+    /**
+     * Tests the operations with context attributes.
+     */
+    @Test
+    public void testContext() {
+        final AttributeNamespace namespace = new AttributeNamespace("test");
+        final ServletContextSymbol<Integer> a = new ServletContextSymbol<>(namespace.name("a"), Integer.class);
+        final ServletContextSymbol<Integer> b = new ServletContextSymbol<>(namespace.name("b"), Integer.class);
+
+        final ServletContext source = new MockServletContext();
+        source.setAttribute("other", "other");
+        a.push(source, Integer.valueOf(1));
+
+        Assert.assertEquals(namespace.attributes(source), Collections.singletonMap("test:a", Integer.valueOf(1)));
+
+        final ServletContext target = new MockServletContext();
+        b.push(target, Integer.valueOf(2));
+        namespace.copy(source, target);
+        Assert.assertEquals(a.get(target), Integer.valueOf(1));
+        Assert.assertNull(b.get(target));
+
+        namespace.clear(source);
+        Assert.assertNull(a.get(source));
+        Assert.assertEquals(source.getAttribute("other"), "other");
+    }
+}
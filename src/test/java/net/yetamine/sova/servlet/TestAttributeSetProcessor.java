@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.servlet.ServletRequest;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.Downcasting;
+import net.yetamine.sova.servlet.processor.AttributeSetProcessor;
+
+/**
+ * Tests {@link AttributeSetProcessor}.
+ */
+public final class TestAttributeSetProcessor {
+
+    /** Source of a valid attribute set. */
+    private static final String VALID = String.join("\n", //
+            "package sample;", //
+            "import net.yetamine.sova.servlet.BoundAttribute.Scope;", //
+            "import net.yetamine.sova.servlet.processing.*;", //
+            "@AttributeSet(qualifier = \"sample\")", //
+            "public interface Web {", //
+            "    @Attribute(\"user\") String user();", //
+            "    @Attribute(value = \"limit\", scope = Scope.CONTEXT, fallback = \"10\") int pageLimit();", //
+            "    @Attribute(scope = Scope.ANY) String[] locales();", //
+            "    default boolean anonymous() { return user() == null; }", //
+            "}");
+
+    /** Source of an attribute set with a collision. */
+    private static final String COLLIDING = String.join("\n", //
+            "package sample;", //
+            "import net.yetamine.sova.servlet.processing.*;", //
+            "@AttributeSet", //
+            "public interface Web {", //
+            "    @Attribute(\"user\") String user();", //
+            "    @Attribute(\"user\") String login();", //
+            "    @Attribute int count();", //
+            "}");
+
+    /** Temporary directory for the sources and outputs of a test. */
+    private Path directory;
+
+    /**
+     * Creates the temporary directory.
+     *
+     * @throws IOException
+     *             if the directory could not be created
+     */
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("sova");
+    }
+
+    /**
+     * Deletes the temporary directory with its content.
+     *
+     * @throws IOException
+     *             if the directory could not be deleted
+     */
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Tests generating the symbols and the facade.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testGenerate() throws Exception {
+        Assert.assertEquals(compile(directory, VALID), "");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, getClass().getClassLoader())) {
+            final Class<?> symbols = loader.loadClass("sample.WebSymbols");
+            Assert.assertEquals(((ServletRequestSymbol<?>) symbols.getField("USER").get(null)).attribute(), "user");
+            Assert.assertEquals(((ServletContextSymbol<?>) symbols.getField("PAGE_LIMIT").get(null)).attribute(), "limit");
+            Assert.assertTrue(symbols.getField("LOCALES").get(null) instanceof ServletSymbol);
+
+            final MockServletContext context = new MockServletContext();
+            final ServletRequest request = new MockServletRequest().setServletContext(context);
+            final Object facade = symbols.getMethod("facade", ServletRequest.class).invoke(null, request);
+            final Class<?> web = loader.loadClass("sample.Web");
+            Assert.assertEquals(web.getMethod("user").invoke(facade), null);
+            Assert.assertEquals(web.getMethod("anonymous").invoke(facade), Boolean.TRUE);
+            Assert.assertEquals(web.getMethod("pageLimit").invoke(facade), 10);
+
+            request.setAttribute("user", "alice");
+            context.setAttribute("limit", 20);
+            context.setAttribute("sample:locales", new String[] { "cs" });
+            Assert.assertEquals(web.getMethod("user").invoke(facade), "alice");
+            Assert.assertEquals(web.getMethod("pageLimit").invoke(facade), 20);
+            Assert.assertEquals((String[]) web.getMethod("locales").invoke(facade), new String[] { "cs" });
+        }
+    }
+
+    /**
+     * Tests reporting the collisions and invalid definitions.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testErrors() throws Exception {
+        final String diagnostics = compile(directory, COLLIDING);
+        Assert.assertTrue(diagnostics.contains("'user' collides"), diagnostics);
+        Assert.assertTrue(diagnostics.contains("requires a fallback"), diagnostics);
+    }
+
+    /**
+     * Compiles the given source with the processor.
+     *
+     * @param directory
+     *            the directory for the source and output. It must not be
+     *            {@code null}.
+     * @param source
+     *            the source of {@code sample.Web}. It must not be
+     *            {@code null}.
+     *
+     * @return the diagnostic output
+     *
+     * @throws IOException
+     *             if the source could not be written
+     * @throws URISyntaxException
+     *             if the classpath could not be resolved
+     */
+    private static String compile(Path directory, String source) throws IOException, URISyntaxException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new SkipException("No system Java compiler available.");
+        }
+
+        final Path file = Files.createDirectories(directory.resolve("sample")).resolve("Web.java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        final List<String> classpath = Arrays.asList( //
+                location(ServletRequest.class), location(Downcasting.class), location(ServletRequestSymbol.class));
+
+        final StringWriter output = new StringWriter();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            final Iterable<? extends JavaFileObject> units = files.getJavaFileObjects(file.toFile());
+            final List<String> options = Arrays.asList("-d", directory.toString(), "-cp", String.join(File.pathSeparator, classpath));
+            final JavaCompiler.CompilationTask task = compiler.getTask(output, files, null, options, null, units);
+            task.setProcessors(Collections.singleton(new AttributeSetProcessor()));
+            task.call();
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Returns the classpath location of the given class.
+     *
+     * @param type
+     *            the class to locate. It must not be {@code null}.
+     *
+     * @return the classpath location
+     *
+     * @throws URISyntaxException
+     *             if the location could not be resolved
+     */
+    private static String location(Class<?> type) throws URISyntaxException {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AttributeSnapshot}.
+ */
+public final class TestAttributeSnapshot {
+
+    /** Symbol for testing. */
+    private static final ServletRequestSymbol<String> TITLE = new ServletRequestSymbol<>("title", String.class);
+    /** Symbol for testing. */
+    private static final ServletRequestSymbol<Integer> DEPTH = new ServletRequestSymbol<>("depth", Integer.class);
+
+    /**
+     * Tests saving and restoring around an include.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testInclude() throws Exception {
+        final AttributeSnapshot snapshot = new AttributeSnapshot(Arrays.asList(TITLE, DEPTH));
+        Assert.assertEquals(snapshot.size(), 2);
+        Assert.assertEquals(snapshot.ordinal(DEPTH), 1);
+        Assert.assertEquals(snapshot.ordinal(new ServletRequestSymbol<>("other", Object.class)), -1);
+
+        final ServletRequest request = new MockServletRequest();
+        TITLE.push(request, "page");
+
+        snapshot.include(new RequestDispatcher() {
+            public void include(ServletRequest req, ServletResponse res) {
+                TITLE.push(req, "fragment");
+                DEPTH.push(req, 1);
+            }
+
+            public void forward(ServletRequest req, ServletResponse res) {
+                throw new UnsupportedOperationException();
+            }
+        }, request, null);
+
+        Assert.assertEquals(TITLE.get(request), "page");
+        Assert.assertNull(request.getAttribute("depth"));
+    }
+
+    /**
+     * Tests reusing the snapshot array.
+     */
+    @Test
+    public void testReuse() {
+        final AttributeSnapshot snapshot = new AttributeSnapshot(Arrays.asList(TITLE, DEPTH));
+        final ServletRequest request = new MockServletRequest();
+        final Object[] saved = new Object[snapshot.size()];
+
+        DEPTH.push(request, 1);
+        snapshot.save(request, saved);
+        Assert.assertEquals(saved, new Object[] { null, 1 });
+
+        DEPTH.push(request, 2);
+        TITLE.push(request, "changed");
+        snapshot.restore(request, saved);
+        Assert.assertEquals(DEPTH.get(request), Integer.valueOf(1));
+        Assert.assertNull(TITLE.get(request));
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link AttributeTable} and {@link AttributeTableRequest}.
+ */
+public final class TestAttributeTable {
+
+    /** Symbol for testing. */
+    private static final ServletRequestSymbol<Integer> COUNTER = new ServletRequestSymbol<>("counter", Integer.class);
+    /** Symbol for testing. */
+    private static final ServletRequestSymbol<String> USER = new ServletRequestSymbol<>("user", String.class);
+
+    /**
+     * Tests the ordinals of a table.
+     */
+    @Test
+    public void testOrdinals() {
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add(ServletAttributeSymbol.name(TestAttributeTable.class, "attribute" + i));
+        }
+
+        final AttributeTable table = new AttributeTable(names);
+        Assert.assertEquals(table.size(), names.size());
+        Assert.assertEquals(table.attributes(), new HashSet<>(names));
+
+        final Set<Integer> ordinals = new HashSet<>();
+        for (String name : names) {
+            final int ordinal = table.ordinal(new String(name));
+            Assert.assertTrue(ordinal >= 0 && ordinal < table.capacity());
+            Assert.assertEquals(table.attribute(ordinal), name);
+            ordinals.add(ordinal);
+        }
+
+        Assert.assertEquals(ordinals.size(), names.size());
+        Assert.assertEquals(table.ordinal("missing"), -1);
+        Assert.assertEquals(new AttributeTable(Collections.emptyList()).ordinal("missing"), -1);
+
+        final AttributeTable symbols = AttributeTable.of(Arrays.asList(COUNTER, USER, COUNTER));
+        Assert.assertEquals(symbols.size(), 2);
+        Assert.assertEquals(symbols.attribute(symbols.ordinal(USER)), "user");
+    }
+
+    /**
+     * Tests names with equal hash codes.
+     */
+    @Test
+    public void testCollision() {
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+        Assert.assertEquals("AaAa".hashCode(), "BBBB".hashCode());
+        Assert.assertEquals("AaAa".hashCode(), "AaBB".hashCode());
+
+        final List<String> names = Arrays.asList("Aa", "BB", "AaAa", "BBBB", "AaBB", "other");
+        final AttributeTable table = new AttributeTable(names);
+        final Set<Integer> ordinals = new HashSet<>();
+        for (String name : names) {
+            final int ordinal = table.ordinal(name);
+            Assert.assertEquals(table.attribute(ordinal), name);
+            ordinals.add(ordinal);
+        }
+
+        Assert.assertEquals(ordinals.size(), names.size());
+        Assert.assertEquals(table.ordinal("BBAa"), -1);
+    }
+
+    /**
+     * Tests {@link AttributeTableRequest} and {@link AttributeTableFilter}.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testRequest() throws Exception {
+        final MockServletRequest attributes = new MockServletRequest();
+        attributes.setAttribute("user", "guest");
+        attributes.setAttribute("other", "value");
+
+        final AttributeTable table = AttributeTable.of(Arrays.asList(COUNTER, USER));
+        final List<String> writes = new ArrayList<>();
+        new AttributeTableFilter(table).doFilter(request(attributes, writes), null, (req, res) -> {
+            Assert.assertTrue(req instanceof AttributeTableRequest);
+            final AttributeTableRequest request = (AttributeTableRequest) req;
+            Assert.assertEquals(USER.get(request), "guest");
+
+            COUNTER.put(request, 1);
+            USER.remove(request);
+            request.setAttribute("other", "changed");
+            Assert.assertEquals(request.get(table.ordinal(COUNTER)), 1);
+            Assert.assertEquals(request.getAttribute("counter"), 1);
+            Assert.assertNull(request.getAttribute("user"));
+            Assert.assertEquals(new HashSet<>(Collections.list(request.getAttributeNames())), new HashSet<>(Arrays.asList("counter", "other")));
+
+            final AttributeTable.Slot<Integer> counter = table.slot(COUNTER);
+            Assert.assertSame(counter.symbol(), COUNTER);
+            Assert.assertEquals(request.get(counter), Integer.valueOf(1));
+            request.put(counter, "invalid");
+            Assert.assertNull(request.getAttribute("counter"));
+
+            request.set(counter.ordinal(), 2);
+            Assert.assertEquals(COUNTER.get(request), Integer.valueOf(2));
+            Assert.assertEquals(request.get(counter), Integer.valueOf(2));
+            Assert.assertEquals(writes, Collections.singletonList("other"));
+        });
+
+        // Published when completed
+        Assert.assertEquals(attributes.getAttribute("counter"), 2);
+        Assert.assertNull(attributes.getAttribute("user"));
+        Assert.assertEquals(attributes.getAttribute("other"), "changed");
+    }
+
+    /**
+     * Tests publishing the attributes on dispatching.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testDispatch() throws Exception {
+        final MockServletRequest attributes = new MockServletRequest();
+        final AttributeTable table = AttributeTable.of(Arrays.asList(COUNTER, USER));
+        final AttributeTableRequest request = new AttributeTableRequest(request(attributes, new ArrayList<>()), table);
+
+        COUNTER.put(request, 1);
+        Assert.assertNull(attributes.getAttribute("counter"));
+        request.getRequestDispatcher("/include").include(request, null);
+        Assert.assertEquals(attributes.getAttribute("counter"), 1);
+
+        // The table is disabled since then
+        USER.put(request, "guest");
+        Assert.assertEquals(attributes.getAttribute("user"), "guest");
+    }
+
+    /**
+     * Creates a request recording the attribute writes.
+     *
+     * @param attributes
+     *            the attribute storage. It must not be {@code null}.
+     * @param writes
+     *            the list of the written attributes. It must not be
+     *            {@code null}.
+     *
+     * @return the request
+     */
+    private static HttpServletRequest request(MockServletRequest attributes, List<String> writes) {
+        return (HttpServletRequest) Proxy.newProxyInstance(TestAttributeTable.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAttribute":
+                    return attributes.getAttribute((String) args[0]);
+
+                case "getAttributeNames":
+                    return attributes.getAttributeNames();
+
+                case "setAttribute":
+                    writes.add((String) args[0]);
+                    attributes.setAttribute((String) args[0], args[1]);
+                    return null;
+
+                case "removeAttribute":
+                    writes.add((String) args[0]);
+                    attributes.removeAttribute((String) args[0]);
+                    return null;
+
+                case "getRequestDispatcher":
+                    return new RequestDispatcher() {
+                        public void forward(ServletRequest request, ServletResponse response) {
+                            // Do nothing
+                        }
+
+                        public void include(ServletRequest request, ServletResponse response) {
+                            // Do nothing
+                        }
+                    };
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+
+import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.AdaptationProvider;
+import net.yetamine.sova.Downcasting;
+import net.yetamine.sova.Mappable;
+
+/**
+ * Stress tests for the paths that are shared by concurrent threads, typically
+ * for all symbols and for context attributes.
+ *
+ * <p>
+ * Each test runs many rounds in which several threads start the same action
+ * at once. The tests document the observed outcomes in the way of jcstress:
+ * forbidden outcomes fail the test, while acceptable, but interesting outcomes
+ * (e.g., a lost update) are just counted and reported.
+ */
+public final class TestConcurrentAccess {
+
+    /** Number of threads racing in each round. */
+    private static final int THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    /** Number of rounds for each test. */
+    private static final int ROUNDS = 1_000;
+
+    /** Executor for running the racing threads. */
+    private ExecutorService executor;
+
+    /**
+     * Prepares the executor.
+     */
+    @BeforeClass
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    /**
+     * Releases the executor.
+     */
+    @AfterClass
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests {@link ServletAttributeSymbol#substitute()}.
+     *
+     * <p>
+     * Forbidden: {@code null} result. Acceptable: racing threads get distinct,
+     * yet interchangeable instances, since the cache is racy deliberately.
+     *
+     * @throws Exception
+     *             if the test fails unexpectedly
+     */
+    @Test
+    public void testSubstitute() throws Exception {
+        int interesting = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final ServletRequestSymbol<Integer> symbol = new ServletRequestSymbol<>("integer", Integer.class);
+            final List<Mappable<String, Integer>> results = race(symbol::substitute);
+
+            final Set<Object> distinct = identitySet();
+            for (Mappable<String, Integer> result : results) {
+                Assert.assertNotNull(result);
+                distinct.add(result);
+            }
+
+            if (distinct.size() > 1) {
+                ++interesting;
+            }
+
+            // Once published, the cached instance must stay
+            Assert.assertSame(symbol.substitute(), symbol.substitute());
+        }
+
+        report("substitute: rounds with distinct instances", interesting);
+    }
+
+    /**
+     * Tests {@link ServletContextSymbol#supply(ServletContext, java.util.function.Supplier)}.
+     *
+     * <p>
+     * Forbidden: {@code null} result, a result that no surrogate provided, or
+     * the final attribute value that no thread returned. Acceptable: multiple
+     * surrogate invocations and threads getting different values, because the
+     * operation is not atomic.
+     *
+     * @throws Exception
+     *             if the test fails unexpectedly
+     */
+    @Test
+    public void testSupply() throws Exception {
+        final AdaptationProvider<MockObject> adaptation = Downcasting.to(MockObject.class);
+        final ServletContextSymbol<MockObject> symbol = new ServletContextSymbol<>("mock", adaptation);
+        int interesting = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final ServletContext context = MockServletContext.concurrent();
+            final Set<Object> created = Collections.synchronizedSet(identitySet());
+            final AtomicInteger invocations = new AtomicInteger();
+
+            final List<MockObject> results = race(() -> symbol.supply(context, () -> {
+                final MockObject result = new MockObject(invocations.incrementAndGet());
+                created.add(result);
+                return result;
+            }));
+
+            final Set<Object> distinct = identitySet();
+            for (MockObject result : results) {
+                Assert.assertNotNull(result);
+                Assert.assertTrue(created.contains(result));
+                distinct.add(result);
+            }
+
+            Assert.assertTrue(distinct.contains(context.getAttribute("mock")));
+            Assert.assertTrue(1 <= invocations.get() && invocations.get() <= THREADS);
+
+            if (distinct.size() > 1) {
+                ++interesting;
+            }
+        }
+
+        report("supply: rounds with different results", interesting);
+    }
+
+    /**
+     * Tests {@link ServletContextSymbol#have(ServletContext)}.
+     *
+     * <p>
+     * Forbidden: an empty result, or any other value than the fallback. There
+     * is no interesting outcome: although the operation is not atomic, racing
+     * threads store an equivalent fallback value.
+     *
+     * @throws Exception
+     *             if the test fails unexpectedly
+     */
+    @Test
+    public void testHave() throws Exception {
+        final MockObject fallback = new MockObject("fallback");
+        final AdaptationProvider<MockObject> adaptation = Downcasting.withFallbackTo(MockObject.class, fallback);
+        final ServletContextSymbol<MockObject> symbol = new ServletContextSymbol<>("mock", adaptation);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final ServletContext context = MockServletContext.concurrent();
+            for (Optional<MockObject> result : race(() -> symbol.have(context))) {
+                Assert.assertSame(result.get(), fallback);
+            }
+
+            Assert.assertSame(context.getAttribute("mock"), fallback);
+        }
+    }
+
+    /**
+     * Tests {@link ServletContextSymbol#get(ServletContext)} racing with
+     * {@link ServletContextSymbol#let(ServletContext, Object)}.
+     *
+     * <p>
+     * Forbidden: a reader gets a value that no writer provided, including the
+     * value that could not be adapted. Acceptable: a reader gets {@code null}
+     * because a writer removed the attribute.
+     *
+     * @throws Exception
+     *             if the test fails unexpectedly
+     */
+    @Test
+    public void testReadWrite() throws Exception {
+        final Object writer = new Object(); // Marks results of writers
+        final Integer value = Integer.valueOf(1);
+        final ServletContextSymbol<Integer> symbol = new ServletContextSymbol<>("integer", Integer.class);
+        int interesting = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final ServletContext context = MockServletContext.concurrent();
+            final AtomicInteger turn = new AtomicInteger();
+
+            final List<Object> results = race(() -> {
+                switch (turn.getAndIncrement() % 3) {
+                    case 0:
+                        symbol.let(context, value);
+                        return writer;
+
+                    case 1: // Removes the attribute as the value is not adaptable
+                        symbol.let(context, "not adaptable");
+                        return writer;
+
+                    default:
+                        return symbol.get(context);
+                }
+            });
+
+            for (Object result : results) {
+                if (result == writer) {
+                    continue;
+                }
+
+                if (result == null) {
+                    ++interesting;
+                    continue;
+                }
+
+                Assert.assertSame(result, value);
+            }
+        }
+
+        report("get/let: missed reads", interesting);
+    }
+
+    /**
+     * Runs the action concurrently in all threads that start at once.
+     *
+     * @param action
+     *            the action to run. It must not be {@code null}.
+     *
+     * @return the results of all threads
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     * @throws ExecutionException
+     *             if the action failed
+     */
+    private <R> List<R> race(Callable<? extends R> action) throws InterruptedException, ExecutionException {
+        final CountDownLatch ready = new CountDownLatch(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<? extends R>> futures = new ArrayList<>(THREADS);
+
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return action.call();
+            }));
+        }
+
+        ready.await();
+        start.countDown();
+
+        final List<R> result = new ArrayList<>(THREADS);
+        for (Future<? extends R> future : futures) {
+            result.add(future.get());
+        }
+
+        return result;
+    }
+
+    /**
+     * Reports an observed outcome.
+     *
+     * @param outcome
+     *            the description of the outcome. It must not be {@code null}.
+     * @param count
+     *            the count of the observations
+     */
+    private static void report(String outcome, int count) {
+        Reporter.log(String.format("%s: %d of %d (%d threads)", outcome, count, ROUNDS, THREADS));
+    }
+
+    /**
+     * Creates a set that uses identity comparison.
+     *
+     * @return the new set
+     */
+    private static Set<Object> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
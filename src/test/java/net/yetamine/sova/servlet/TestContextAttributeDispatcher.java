@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ContextAttributeDispatcher}.
+ */
+public final class TestContextAttributeDispatcher {
+
+    /**
+     * Tests {@link ServletContextSymbol#subscribe(javax.servlet.ServletContext, java.util.function.Consumer)}.
+     */
+    @Test
+    public void testSubscribe() {
+        final MockServletContext context = new MockServletContext().initialized();
+        final ServletContextSymbol<Integer> symbol = new ServletContextSymbol<>("integer", Integer.class);
+        symbol.push(context, Integer.valueOf(1));
+
+        final List<Integer> values = new ArrayList<>();
+        final ContextAttributeDispatcher.Subscription subscription = symbol.subscribe(context, values::add);
+        Assert.assertSame(ContextAttributeDispatcher.of(context), ContextAttributeDispatcher.of(context));
+        Assert.assertEquals(values, Arrays.asList(1));
+
+        symbol.push(context, Integer.valueOf(2));
+        context.setAttribute("other", "other");
+        context.setAttribute("integer", "not adaptable");
+        context.removeAttribute("integer");
+        Assert.assertEquals(values, Arrays.asList(1, 2, null, null));
+
+        subscription.close();
+        symbol.push(context, Integer.valueOf(3));
+        Assert.assertEquals(values, Arrays.asList(1, 2, null, null));
+    }
+
+    /**
+     * Tests delivery with an executor and the context lifecycle.
+     */
+    @Test
+    public void testExecutor() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final Executor executor = tasks::add;
+        final ContextAttributeDispatcher dispatcher = new ContextAttributeDispatcher(executor);
+        final ServletContextSymbol<Integer> symbol = new ServletContextSymbol<>("integer", Integer.class);
+
+        final MockServletContext context = new MockServletContext();
+        context.addListener(new ContextCleanupListener()); // Declared
+        context.initialized().addListener(dispatcher);
+        dispatcher.install(context);
+        Assert.assertSame(ContextAttributeDispatcher.of(context), dispatcher);
+
+        final List<Integer> values = new ArrayList<>();
+        symbol.subscribe(context, values::add);
+        symbol.push(context, Integer.valueOf(1));
+        Assert.assertEquals(tasks.size(), 2);
+        Assert.assertTrue(values.isEmpty());
+
+        tasks.forEach(Runnable::run);
+        Assert.assertEquals(values, Arrays.asList(1, 1)); // Deliver the current value
+
+        context.destroy();
+        Assert.expectThrows(IllegalStateException.class, () -> dispatcher.subscribe(symbol, values::add));
+    }
+
+    /**
+     * Tests that concurrent subscriptions share a single dispatcher.
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testConcurrentInstall() throws InterruptedException {
+        final MockServletContext context = MockServletContext.concurrent().initialized();
+        final ContextAttributeDispatcher[] dispatchers = new ContextAttributeDispatcher[8];
+        final Thread[] threads = new Thread[dispatchers.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> dispatchers[index] = ContextAttributeDispatcher.of(context));
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (ContextAttributeDispatcher dispatcher : dispatchers) {
+            Assert.assertSame(dispatcher, dispatchers[0]);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ContextConfiguration}.
+ */
+public final class TestContextConfiguration {
+
+    /** First member. */
+    private static final ServletContextSymbol<Integer> A = new ServletContextSymbol<>("a", Integer.class);
+    /** Second member. */
+    private static final ServletContextSymbol<Integer> B = new ServletContextSymbol<>("b", Integer.class);
+    /** Not a member. */
+    private static final ServletContextSymbol<Integer> C = new ServletContextSymbol<>("c", Integer.class);
+
+    /**
+     * Tests updating and reading.
+     */
+    @Test
+    public void testUpdate() {
+        final ContextConfiguration configuration = new ContextConfiguration("configuration", A, B);
+        final ServletContext context = new MockServletContext();
+
+        final ContextConfiguration.Snapshot empty = configuration.snapshot(context);
+        Assert.assertEquals(empty.version(), 0);
+        Assert.assertNull(empty.get(A));
+        Assert.assertFalse(empty.find(B).isPresent());
+
+        final ContextConfiguration.Snapshot s1 = configuration.update(context, s -> s.with(A, 1).with(B, 2));
+        Assert.assertSame(configuration.snapshot(context), s1);
+        Assert.assertEquals(s1.version(), 1);
+        Assert.assertEquals(s1.get(A), Integer.valueOf(1));
+        Assert.assertEquals(s1.get(B), Integer.valueOf(2));
+        Assert.assertNull(A.get(context)); // Not published as individual attributes
+
+        Assert.assertSame(configuration.update(context, s -> s.with(A, 1)), s1);
+        final ContextConfiguration.Snapshot s2 = configuration.update(context, s -> s.without(B));
+        Assert.assertEquals(s2.version(), 2);
+        Assert.assertEquals(s2.get(A), Integer.valueOf(1));
+        Assert.assertNull(s2.get(B));
+        Assert.assertEquals(s1.get(B), Integer.valueOf(2)); // Old snapshot unchanged
+
+        Assert.expectThrows(IllegalArgumentException.class, () -> s2.with(C, 3));
+        final ContextConfiguration other = new ContextConfiguration("other", A);
+        Assert.expectThrows(IllegalArgumentException.class, () -> configuration.update(context, s -> other.snapshot(context)));
+
+        configuration.clear(context);
+        Assert.assertEquals(configuration.snapshot(context).version(), 0);
+    }
+
+    /**
+     * Tests that readers never see a partial update.
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testConsistency() throws InterruptedException {
+        final ContextConfiguration configuration = new ContextConfiguration("configuration", A, B);
+        final ServletContext context = MockServletContext.concurrent();
+        configuration.update(context, s -> s.with(A, 0).with(B, 0));
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger inconsistent = new AtomicInteger();
+        final Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                final ContextConfiguration.Snapshot snapshot = configuration.snapshot(context);
+                if (!snapshot.get(A).equals(snapshot.get(B))) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+        });
+
+        reader.start();
+        for (int i = 1; i <= 10_000; i++) {
+            final Integer value = Integer.valueOf(i);
+            configuration.update(context, s -> s.with(A, value).with(B, value));
+        }
+
+        done.set(true);
+        reader.join();
+        Assert.assertEquals(inconsistent.get(), 0);
+    }
+}
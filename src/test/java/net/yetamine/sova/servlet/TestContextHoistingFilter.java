@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.servlet.ServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.Downcasting;
+
+/**
+ * Tests {@link ContextHoistingFilter}.
+ */
+public final class TestContextHoistingFilter {
+
+    /**
+     * Tests hoisting the values.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testHoist() throws Exception {
+        final ServletSymbol<String> locale = new ServletSymbol<>("locale", Downcasting.to(String.class));
+        final ServletSymbol<String> theme = new ServletSymbol<>("theme", Downcasting.to(String.class));
+        final ContextHoistingFilter filter = new ContextHoistingFilter(Arrays.asList(locale, theme));
+
+        final MockServletContext context = new MockServletContext();
+        context.setAttribute("locale", "en");
+        context.setAttribute("theme", "dark");
+        final ServletRequest request = new MockServletRequest().setServletContext(context);
+        request.setAttribute("theme", "light");
+
+        filter.doFilter(request, null, (req, res) -> {
+            Assert.assertSame(req, request);
+            Assert.assertEquals(req.getAttribute("locale"), "en");
+            Assert.assertEquals(req.getAttribute("theme"), "light");
+        });
+
+        context.removeAttribute("locale");
+        Assert.assertEquals(locale.get(request), "en");
+    }
+
+    /**
+     * Tests that the hoisted values behave like the request attributes.
+     */
+    @Test
+    public void testRemove() {
+        final ServletSymbol<Integer> limit = new ServletSymbol<>("limit", Downcasting.withFallbackTo(Integer.class, 10));
+        final ContextHoistingFilter filter = new ContextHoistingFilter(Collections.singleton(limit));
+
+        final MockServletContext context = new MockServletContext();
+        context.setAttribute("limit", 20);
+        final ServletRequest request = new MockServletRequest().setServletContext(context);
+        filter.hoist(request);
+        Assert.assertTrue(Collections.list(request.getAttributeNames()).contains("limit"));
+
+        // The hoisted value is used even when the context changes
+        context.setAttribute("limit", 30);
+        Assert.assertEquals(limit.get(request), Integer.valueOf(20));
+
+        // Removing the request attribute falls back to the context
+        request.removeAttribute("limit");
+        Assert.assertEquals(limit.get(request), Integer.valueOf(30));
+
+        // Missing values are not hoisted
+        context.removeAttribute("limit");
+        final ServletRequest other = new MockServletRequest().setServletContext(context);
+        filter.hoist(other);
+        Assert.assertNull(other.getAttribute("limit"));
+        context.setAttribute("limit", 50);
+        Assert.assertEquals(limit.get(other), Integer.valueOf(50));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContext;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link CrossContextSymbol}.
+ */
+public final class TestCrossContextSymbol {
+
+    /**
+     * Tests reading the foreign attribute and caching the context handle.
+     */
+    @Test
+    public void testResolution() {
+        final MockServletContext local = new MockServletContext();
+        final MockServletContext foreign = new MockServletContext();
+        local.context("/foreign", foreign);
+        foreign.setAttribute("shared", Integer.valueOf(1));
+
+        final AtomicLong clock = new AtomicLong();
+        final ServletContextSymbol<Integer> shared = new ServletContextSymbol<>("shared", Integer.class);
+        final CrossContextSymbol<Integer> symbol = new CrossContextSymbol<>("/foreign", shared, Duration.ofNanos(10), clock::get);
+
+        Assert.assertEquals(symbol.get(local), Integer.valueOf(1));
+        Assert.assertEquals(symbol.find(local).get(), Integer.valueOf(1));
+        Assert.assertEquals(symbol.yield(local).get(), Integer.valueOf(1));
+        Assert.assertSame(symbol.context(local).get(), foreign);
+        Assert.assertEquals(local.contextLookups(), 1);
+
+        final MockServletRequest request = new MockServletRequest().setServletContext(local);
+        Assert.assertEquals(symbol.get(request), Integer.valueOf(1));
+        Assert.assertEquals(symbol.find(request).get(), Integer.valueOf(1));
+        Assert.assertEquals(local.contextLookups(), 1);
+
+        // A miss resolves again only after the revalidation period
+        foreign.removeAttribute("shared");
+        Assert.assertNull(symbol.get(local));
+        Assert.assertEquals(local.contextLookups(), 1);
+        clock.set(10);
+        Assert.assertNull(symbol.get(local));
+        Assert.assertEquals(local.contextLookups(), 2);
+
+        // Supplying stores the surrogate in the foreign context
+        Assert.assertEquals(symbol.supply(local, () -> Integer.valueOf(2)), Integer.valueOf(2));
+        Assert.assertEquals(foreign.getAttribute("shared"), Integer.valueOf(2));
+        Assert.assertEquals(symbol.give(request), Integer.valueOf(2));
+        Assert.assertEquals(local.contextLookups(), 2);
+    }
+
+    /**
+     * Tests finding a redeployed foreign context.
+     */
+    @Test
+    public void testRedeploy() {
+        final MockServletContext local = new MockServletContext();
+        final MockServletContext foreign = new MockServletContext();
+        local.context("/foreign", foreign);
+        foreign.setAttribute("shared", "old");
+
+        final AtomicLong clock = new AtomicLong();
+        final ServletContextSymbol<String> shared = new ServletContextSymbol<>("shared", String.class);
+        final CrossContextSymbol<String> symbol = new CrossContextSymbol<>("/foreign", shared, Duration.ofNanos(10), clock::get);
+        Assert.assertEquals(symbol.get(local), "old");
+
+        // Redeploy the foreign application, the old context is still alive
+        final MockServletContext redeployed = new MockServletContext();
+        redeployed.setAttribute("shared", "new");
+        local.context("/foreign", redeployed);
+        Assert.assertEquals(symbol.get(local), "old");
+        clock.set(10);
+        Assert.assertEquals(symbol.get(local), "new");
+        Assert.assertEquals(local.contextLookups(), 2);
+
+        // Unresolvable context
+        local.context("/foreign", null);
+        symbol.invalidate();
+        Assert.assertFalse(symbol.context(local).isPresent());
+        Assert.assertNull(symbol.get(local));
+        Assert.assertEquals(symbol.supply(local, () -> "surrogate"), "surrogate");
+        Assert.assertEquals(redeployed.getAttribute("shared"), "new");
+        Assert.assertEquals(local.contextLookups(), 3);
+
+        // Found again after the revalidation period
+        local.context("/foreign", redeployed);
+        Assert.assertNull(symbol.get(local));
+        clock.set(20);
+        Assert.assertEquals(symbol.get(local), "new");
+    }
+
+    /**
+     * Tests caching the foreign context for several local contexts.
+     */
+    @Test
+    public void testLocalContexts() {
+        final MockServletContext first = new MockServletContext();
+        final MockServletContext second = new MockServletContext();
+        final MockServletContext foreign = new MockServletContext();
+        first.context("/foreign", foreign);
+        second.context("/foreign", foreign);
+        foreign.setAttribute("shared", "value");
+
+        final AtomicLong clock = new AtomicLong();
+        final ServletContextSymbol<String> shared = new ServletContextSymbol<>("shared", String.class);
+        final CrossContextSymbol<String> symbol = new CrossContextSymbol<>("/foreign", shared, Duration.ofNanos(10), clock::get);
+
+        for (int i = 0; i < 3; i++) { // Alternating does not resolve again
+            Assert.assertEquals(symbol.get(first), "value");
+            Assert.assertEquals(symbol.get(second), "value");
+        }
+
+        Assert.assertEquals(first.contextLookups(), 1);
+        Assert.assertEquals(second.contextLookups(), 1);
+
+        // Revalidation resolves again for each of them
+        clock.set(10);
+        Assert.assertEquals(symbol.get(first), "value");
+        Assert.assertEquals(symbol.get(second), "value");
+        Assert.assertEquals(symbol.get(first), "value");
+        Assert.assertEquals(first.contextLookups(), 2);
+        Assert.assertEquals(second.contextLookups(), 2);
+
+        symbol.invalidate();
+        Assert.assertEquals(symbol.get(second), "value");
+        Assert.assertEquals(second.contextLookups(), 3);
+    }
+
+    /**
+     * Tests that a reclaimed foreign context is resolved again.
+     */
+    @Test
+    public void testUndeploy() {
+        final MockServletContext local = new MockServletContext();
+        final ServletContextSymbol<String> shared = new ServletContextSymbol<>("shared", String.class);
+        final List<Reference<ServletContext>> references = new ArrayList<>();
+        final CrossContextSymbol<String> symbol = new CrossContextSymbol<>("/foreign", shared, Duration.ofDays(1), System::nanoTime, context -> {
+            final Reference<ServletContext> result = new WeakReference<>(context);
+            references.add(result);
+            return result;
+        });
+
+        final MockServletContext foreign = new MockServletContext();
+        foreign.setAttribute("shared", "value");
+        local.context("/foreign", foreign);
+        Assert.assertEquals(symbol.get(local), "value");
+        Assert.assertEquals(references.size(), 2);
+
+        // Undeploy the foreign application and let the collector reclaim it
+        local.context("/foreign", null);
+        references.stream().filter(reference -> reference.get() == foreign).forEach(Reference::clear);
+        Assert.assertNull(symbol.get(local));
+        Assert.assertEquals(local.contextLookups(), 2);
+
+        // Reclaiming the local context discards its resolution as well
+        local.context("/foreign", foreign);
+        references.forEach(Reference::clear);
+        Assert.assertEquals(symbol.get(local), "value");
+        Assert.assertEquals(local.contextLookups(), 3);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link DerivedRequestValue} and the combinators of
+ * {@link ServletRequestValue}.
+ */
+public final class TestDerivedRequestValue {
+
+    /** Symbol for an integer. */
+    private static final ServletRequestSymbol<Integer> INTEGER = new ServletRequestSymbol<>("integer", Integer.class);
+    /** Symbol for a string. */
+    private static final ServletRequestSymbol<String> STRING = new ServletRequestSymbol<>("string", String.class);
+
+    /**
+     * Tests the memoization of the results.
+     */
+    @Test
+    public void testMemoization() {
+        final AtomicInteger computations = new AtomicInteger();
+        final DerivedRequestValue<Integer> doubled = INTEGER.map(i -> {
+            computations.incrementAndGet();
+            return i * 2;
+        });
+
+        final ServletRequest request = new MockServletRequest();
+        INTEGER.push(request, 21);
+        Assert.assertEquals(doubled.get(request), Integer.valueOf(42));
+        Assert.assertEquals(doubled.give(request), Integer.valueOf(42));
+        Assert.assertEquals(doubled.yield(request).get(), Integer.valueOf(42));
+        Assert.assertEquals(computations.get(), 1);
+
+        // The memoized result remains until reset
+        INTEGER.push(request, 1);
+        Assert.assertEquals(doubled.get(request), Integer.valueOf(42));
+        doubled.reset(request);
+        Assert.assertEquals(doubled.get(request), Integer.valueOf(2));
+        Assert.assertEquals(computations.get(), 2);
+
+        // Other instances share the attribute, but not the results
+        final DerivedRequestValue<Integer> negated = INTEGER.map(i -> -i);
+        Assert.assertEquals(negated.attribute(), doubled.attribute());
+        Assert.assertEquals(negated.get(request), Integer.valueOf(-1));
+        Assert.assertEquals(doubled.get(request), Integer.valueOf(2));
+        negated.reset(request);
+        Assert.assertEquals(doubled.get(request), Integer.valueOf(2));
+        Assert.assertEquals(computations.get(), 2);
+
+        // Another request has its own result
+        final ServletRequest other = new MockServletRequest();
+        Assert.assertNull(doubled.get(other));
+        Assert.assertFalse(doubled.find(other).isPresent());
+        Assert.assertFalse(doubled.yield(other).isPresent());
+        Assert.assertEquals(computations.get(), 2);
+    }
+
+    /**
+     * Tests memoizing a {@code null} result.
+     */
+    @Test
+    public void testNullResult() {
+        final AtomicInteger computations = new AtomicInteger();
+        final DerivedRequestValue<Object> value = DerivedRequestValue.of(request -> {
+            computations.incrementAndGet();
+            return null;
+        });
+
+        final ServletRequest request = new MockServletRequest();
+        Assert.assertNull(value.get(request));
+        Assert.assertNull(value.pull(request));
+        Assert.assertEquals(computations.get(), 1);
+    }
+
+    /**
+     * Tests the combinators.
+     */
+    @Test
+    public void testCombinators() {
+        final ServletRequest request = new MockServletRequest();
+        final DerivedRequestValue<String> zipped = ServletRequestValue.zip(STRING, INTEGER, (s, i) -> s + i);
+        final DerivedRequestValue<String> fallback = STRING.orElse(INTEGER.map(String::valueOf));
+        final DerivedRequestValue<Integer> indirect = STRING.flatMap(s -> "int".equals(s) ? INTEGER : STRING.map(String::length));
+
+        INTEGER.push(request, 7);
+        Assert.assertNull(zipped.get(request));
+        Assert.assertEquals(fallback.get(request), "7");
+        Assert.assertNull(indirect.get(request));
+
+        final ServletRequest complete = new MockServletRequest();
+        INTEGER.push(complete, 7);
+        STRING.push(complete, "int");
+        Assert.assertEquals(zipped.get(complete), "int7");
+        Assert.assertEquals(fallback.get(complete), "int");
+        Assert.assertEquals(indirect.get(complete), Integer.valueOf(7));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ExpiringContextSymbol}.
+ */
+public final class TestExpiringContextSymbol {
+
+    /**
+     * Tests loading and refreshing.
+     */
+    @Test
+    public void testRefresh() {
+        final AtomicLong clock = new AtomicLong();
+        final AtomicInteger loads = new AtomicInteger();
+        final List<Runnable> tasks = new ArrayList<>();
+        final ExpiringContextSymbol<Integer> symbol = new ExpiringContextSymbol<>("expiring", c -> loads.incrementAndGet(), Duration.ofNanos(10), tasks::add, clock::get);
+
+        final MockServletContext context = new MockServletContext();
+        Assert.assertNull(symbol.peek(context));
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        Assert.assertTrue(tasks.isEmpty());
+
+        // Expired: serve the stale value and refresh once
+        clock.set(10);
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        Assert.assertEquals(symbol.find(context).get(), Integer.valueOf(1));
+        Assert.assertEquals(tasks.size(), 1);
+        Assert.assertFalse(symbol.refresh(context));
+
+        tasks.remove(0).run();
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(2));
+        Assert.assertEquals(loads.get(), 2);
+
+        // Explicit values and invalidation
+        symbol.put(context, Integer.valueOf(42), Duration.ofNanos(100));
+        clock.set(50);
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(42));
+        Assert.assertTrue(tasks.isEmpty());
+        symbol.invalidate(context);
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(42));
+        Assert.assertEquals(tasks.size(), 1);
+        tasks.remove(0).run();
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(3));
+
+        symbol.remove(context);
+        Assert.assertNull(symbol.peek(context));
+    }
+
+    /**
+     * Tests a failing refresh.
+     */
+    @Test
+    public void testFailure() {
+        final AtomicLong clock = new AtomicLong();
+        final AtomicInteger loads = new AtomicInteger();
+        final ExpiringContextSymbol<Integer> symbol = new ExpiringContextSymbol<>("expiring", c -> {
+            if (loads.incrementAndGet() > 1) {
+                throw new IllegalStateException();
+            }
+
+            return Integer.valueOf(1);
+        }, Duration.ofNanos(10), Runnable::run, clock::get);
+
+        final MockServletContext context = new MockServletContext();
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        clock.set(10);
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        Assert.assertEquals(loads.get(), 2);
+        Assert.assertEquals(context.messages().size(), 1);
+
+        // Postponed for another period
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        Assert.assertEquals(loads.get(), 2);
+        clock.set(20);
+        Assert.assertEquals(symbol.get(context), Integer.valueOf(1));
+        Assert.assertEquals(loads.get(), 3);
+    }
+
+    /**
+     * Tests that a foreign attribute value is not replaced.
+     */
+    @Test
+    public void testForeignValue() {
+        final ExpiringContextSymbol<Integer> symbol = new ExpiringContextSymbol<>("expiring", c -> 1, Duration.ofNanos(10), Runnable::run);
+        final MockServletContext context = new MockServletContext();
+        context.setAttribute("expiring", "foreign");
+
+        Assert.expectThrows(IllegalStateException.class, () -> symbol.get(context));
+        Assert.assertEquals(context.getAttribute("expiring"), "foreign");
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link PooledRequestSymbol}.
+ */
+public final class TestPooledRequestSymbol {
+
+    /** Symbol for the tests. */
+    private static final ServletRequestSymbol<StringBuilder> BUILDER = new ServletRequestSymbol<>("builder", StringBuilder.class);
+
+    /**
+     * Tests taking and returning values.
+     */
+    @Test
+    public void testLifecycle() {
+        final PooledRequestSymbol<StringBuilder> pooled = new PooledRequestSymbol<>(BUILDER, StringBuilder::new, b -> b.setLength(0), 1);
+        final ServletContext context = new MockServletContext();
+
+        final ServletRequest request1 = new MockServletRequest().setServletContext(context);
+        Assert.assertNull(pooled.get(request1));
+        final StringBuilder value = pooled.supply(request1).append("hello");
+        Assert.assertSame(pooled.supply(request1), value);
+        Assert.assertSame(BUILDER.get(request1), value);
+        Assert.assertEquals(pooled.created(), 1);
+        Assert.assertEquals(pooled.outstanding(), 1);
+
+        pooled.requestDestroyed(new ServletRequestEvent(context, request1));
+        Assert.assertNull(pooled.get(request1));
+        Assert.assertEquals(pooled.returned(), 1);
+        Assert.assertEquals(pooled.outstanding(), 0);
+        Assert.assertEquals(value.length(), 0);
+
+        // Releasing again must have no effect
+        pooled.release(request1);
+        Assert.assertEquals(pooled.returned(), 1);
+
+        final ServletRequest request2 = new MockServletRequest().setServletContext(context);
+        Assert.assertSame(pooled.supply(request2), value);
+        Assert.assertEquals(pooled.reused(), 1);
+
+        // The pool has no space for more than one value
+        final ServletRequest request3 = new MockServletRequest().setServletContext(context);
+        final StringBuilder other = pooled.supply(request3);
+        Assert.assertNotSame(other, value);
+        pooled.release(request2);
+        pooled.release(request3);
+        Assert.assertEquals(pooled.created(), 2);
+        Assert.assertEquals(pooled.returned(), 3);
+        Assert.assertSame(pooled.supply(new MockServletRequest().setServletContext(context)), value);
+    }
+
+    /**
+     * Tests that a present value is preferred.
+     */
+    @Test
+    public void testPresent() {
+        final PooledRequestSymbol<StringBuilder> pooled = new PooledRequestSymbol<>(BUILDER, StringBuilder::new, 1);
+        final ServletRequest request = new MockServletRequest();
+        final StringBuilder value = new StringBuilder();
+        BUILDER.push(request, value);
+
+        Assert.assertSame(pooled.supply(request), value);
+        Assert.assertEquals(pooled.created(), 0);
+
+        pooled.release(request);
+        Assert.assertSame(BUILDER.get(request), value);
+        Assert.assertEquals(pooled.returned(), 0);
+    }
+
+    /**
+     * Tests leak detection and clearing the pool when the context is
+     * destroyed.
+     */
+    @Test
+    public void testLeak() {
+        final MockServletContext context = new MockServletContext();
+        context.addListener(new ContextCleanupListener());
+
+        final PooledRequestSymbol<StringBuilder> pooled = new PooledRequestSymbol<>(BUILDER, StringBuilder::new, 1);
+        pooled.install(context);
+
+        final ServletRequest returned = new MockServletRequest().setServletContext(context);
+        final StringBuilder value = pooled.supply(returned);
+        pooled.release(returned);
+        pooled.supply(new MockServletRequest().setServletContext(context)); // Never returned
+        Assert.assertEquals(pooled.outstanding(), 1);
+
+        context.destroy();
+        Assert.assertEquals(pooled.leaked(), 1);
+        Assert.assertEquals(pooled.outstanding(), 0);
+        Assert.assertEquals(context.messages().size(), 1);
+
+        // The pool is empty now
+        Assert.assertNotSame(pooled.supply(new MockServletRequest()), value);
+        Assert.assertEquals(pooled.created(), 2);
+    }
+}
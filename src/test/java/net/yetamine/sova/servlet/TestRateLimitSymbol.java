@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link TokenBucket}, {@link RateLimitSymbol} and
+ * {@link RateLimitFilter}.
+ */
+public final class TestRateLimitSymbol {
+
+    /**
+     * Tests acquiring and refilling the tokens.
+     */
+    @Test
+    public void testBucket() {
+        final AtomicLong clock = new AtomicLong(-100); // Arbitrary origin
+        final TokenBucket bucket = new TokenBucket(3, Duration.ofNanos(10), clock::get);
+        Assert.assertTrue(bucket.isFull());
+        Assert.assertEquals(bucket.available(), 3);
+        Assert.assertFalse(bucket.tryAcquire(4));
+
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertTrue(bucket.tryAcquire(2));
+        Assert.assertFalse(bucket.tryAcquire());
+        Assert.assertEquals(bucket.available(), 0);
+        Assert.assertEquals(bucket.delay(1), Duration.ofNanos(10));
+        Assert.assertEquals(bucket.delay(0), Duration.ZERO);
+
+        clock.addAndGet(15);
+        Assert.assertEquals(bucket.available(), 1);
+        Assert.assertEquals(bucket.delay(2), Duration.ofNanos(5));
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertFalse(bucket.tryAcquire());
+
+        // Never fills over the capacity
+        clock.addAndGet(1000);
+        Assert.assertTrue(bucket.isFull());
+        Assert.assertEquals(bucket.available(), 3);
+        Assert.assertTrue(bucket.tryAcquire(3));
+        Assert.assertFalse(bucket.tryAcquire());
+    }
+
+    /**
+     * Tests the keyed buckets.
+     */
+    @Test
+    public void testKeys() {
+        final AtomicLong clock = new AtomicLong();
+        final RateLimitSymbol symbol = new RateLimitSymbol("limit", 1, Duration.ofNanos(10), 2, clock::get);
+        final ServletContext context = new MockServletContext();
+
+        Assert.assertTrue(symbol.tryAcquire(context, "a"));
+        Assert.assertFalse(symbol.tryAcquire(context, "a"));
+        Assert.assertTrue(symbol.tryAcquire(context, "b"));
+        Assert.assertTrue(symbol.tryAcquire(context));
+        Assert.assertEquals(symbol.keys(context), 2);
+
+        // Excessive keys share the overflow bucket
+        Assert.assertTrue(symbol.tryAcquire(context, "c"));
+        Assert.assertFalse(symbol.tryAcquire(context, "d"));
+        Assert.assertEquals(symbol.keys(context), 2);
+
+        // Full buckets make space for new keys
+        clock.set(10);
+        Assert.assertTrue(symbol.tryAcquire(context, "c"));
+        Assert.assertEquals(symbol.keys(context), 1);
+
+        symbol.remove(context);
+        Assert.assertEquals(symbol.keys(context), 0);
+    }
+
+    /**
+     * Tests that the sweeps happen only for every {@code maxKeys}-th excessive
+     * key.
+     */
+    @Test
+    public void testSweeps() {
+        final AtomicLong clock = new AtomicLong();
+        final RateLimitSymbol symbol = new RateLimitSymbol("limit", 1, Duration.ofNanos(10), 2, clock::get);
+        final ServletContext context = new MockServletContext();
+
+        Assert.assertTrue(symbol.tryAcquire(context, "a"));
+        Assert.assertTrue(symbol.tryAcquire(context, "b"));
+        Assert.assertTrue(symbol.tryAcquire(context, "c")); // Sweeps, uses the overflow
+
+        // The next excessive key does not sweep even though it could
+        clock.set(10);
+        Assert.assertTrue(symbol.tryAcquire(context, "d")); // Uses the overflow
+        Assert.assertEquals(symbol.keys(context), 2);
+
+        // The next one sweeps again
+        Assert.assertTrue(symbol.tryAcquire(context, "e"));
+        Assert.assertEquals(symbol.keys(context), 1);
+    }
+
+    /**
+     * Tests that the acquisition returns the bucket which refused the token.
+     */
+    @Test
+    public void testAcquire() {
+        final AtomicLong clock = new AtomicLong();
+        final RateLimitSymbol symbol = new RateLimitSymbol("limit", 1, Duration.ofNanos(10), 1, clock::get);
+        final ServletContext context = new MockServletContext();
+
+        Assert.assertNull(symbol.acquire(context, "a"));
+        Assert.assertSame(symbol.acquire(context, "a"), symbol.bucket(context, "a"));
+        Assert.assertNull(symbol.acquire(context, "b")); // Sweeps, uses the overflow
+
+        // The overflow bucket refuses now, while asking again would sweep
+        clock.set(5);
+        final TokenBucket refused = symbol.acquire(context, "c");
+        Assert.assertNotNull(refused);
+        Assert.assertEquals(refused.delay(1), Duration.ofNanos(5));
+        Assert.assertEquals(symbol.keys(context), 1);
+
+        Assert.assertNull(symbol.acquire(context));
+        Assert.assertSame(symbol.acquire(context), symbol.bucket(context));
+    }
+
+    /**
+     * Tests that a foreign attribute value is not replaced.
+     */
+    @Test
+    public void testForeignValue() {
+        final RateLimitSymbol symbol = new RateLimitSymbol("limit", 1, Duration.ofNanos(10), 1);
+        final ServletContext context = new MockServletContext();
+        context.setAttribute("limit", "foreign");
+
+        Assert.expectThrows(IllegalStateException.class, () -> symbol.tryAcquire(context));
+        Assert.assertEquals(context.getAttribute("limit"), "foreign");
+    }
+
+    /**
+     * Tests {@link RateLimitFilter}.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testFilter() throws Exception {
+        final RateLimitSymbol symbol = new RateLimitSymbol("limit", 2, Duration.ofMinutes(1), 10);
+        final RateLimitFilter filter = new RateLimitFilter(symbol, HttpServletRequest::getRemoteAddr);
+        final ServletContext context = new MockServletContext();
+
+        final Map<String, Object> response = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(request(context, "10.0.0.1"), response(response), (req, res) -> response.put("passed", req));
+        }
+
+        Assert.assertEquals(filter.accepted(), 2);
+        Assert.assertEquals(filter.rejected(), 1);
+        Assert.assertEquals(response.get("sendError"), 429);
+        Assert.assertEquals(response.get("Retry-After"), "60");
+
+        response.clear();
+        filter.doFilter(request(context, "10.0.0.2"), response(response), (req, res) -> response.put("passed", req));
+        Assert.assertTrue(response.containsKey("passed"));
+        Assert.assertEquals(filter.accepted(), 3);
+    }
+
+    /**
+     * Creates a request.
+     *
+     * @param context
+     *            the context of the request. It must not be {@code null}.
+     * @param address
+     *            the remote address. It must not be {@code null}.
+     *
+     * @return the request
+     */
+    private static HttpServletRequest request(ServletContext context, String address) {
+        return (HttpServletRequest) Proxy.newProxyInstance(TestRateLimitSymbol.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServletContext":
+                    return context;
+
+                case "getRemoteAddr":
+                    return address;
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Creates a response recording the headers and errors.
+     *
+     * @param record
+     *            the map to record the headers and errors. It must not be
+     *            {@code null}.
+     *
+     * @return the response
+     */
+    private static HttpServletResponse response(Map<String, Object> record) {
+        return (HttpServletResponse) Proxy.newProxyInstance(TestRateLimitSymbol.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "setHeader":
+                    record.put((String) args[0], args[1]);
+                    return null;
+
+                case "sendError":
+                    record.put("sendError", args[0]);
+                    return null;
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.AdaptationResult;
+
+/**
+ * Tests {@link ReclaimableContextSymbol}.
+ */
+public final class TestReclaimableContextSymbol {
+
+    /** Symbol for the tests. */
+    private static final ServletContextSymbol<MockObject> SYMBOL = new ServletContextSymbol<>("mock", MockObject.class);
+
+    /**
+     * Tests the reading operations.
+     */
+    @Test
+    public void testRead() {
+        final AtomicInteger counter = new AtomicInteger();
+        final ReclaimableContextSymbol<MockObject> symbol = ReclaimableContextSymbol.soft(SYMBOL, c -> new MockObject(counter.incrementAndGet()));
+        final ServletContext context = new MockServletContext();
+
+        final MockObject value = symbol.get(context);
+        Assert.assertEquals(value, new MockObject(1));
+        Assert.assertSame(symbol.find(context).get(), value);
+        final AdaptationResult<MockObject> result = symbol.yield(context);
+        Assert.assertSame(result.argument(), value);
+        Assert.assertSame(result.get(), value);
+        Assert.assertEquals(symbol.computed(), 1);
+        Assert.assertEquals(symbol.reclaimed(), 0);
+
+        final MockObject replacement = new MockObject("replacement");
+        symbol.put(context, replacement);
+        Assert.assertSame(symbol.get(context), replacement);
+
+        symbol.remove(context);
+        Assert.assertEquals(symbol.get(context), new MockObject(2));
+    }
+
+    /**
+     * Tests a value that can't be adapted.
+     */
+    @Test
+    public void testNotAdaptable() {
+        final ReclaimableContextSymbol<MockObject> symbol = ReclaimableContextSymbol.soft(SYMBOL, c -> "string");
+        final ServletContext context = new MockServletContext();
+
+        Assert.assertNull(symbol.get(context));
+        Assert.assertFalse(symbol.find(context).isPresent());
+        Assert.assertEquals(symbol.yield(context).argument(), "string");
+        Assert.assertNull(symbol.yield(context).get());
+    }
+
+    /**
+     * Tests recomputing of a reclaimed value.
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testReclaim() throws InterruptedException {
+        final AtomicInteger counter = new AtomicInteger();
+        final ReclaimableContextSymbol<MockObject> symbol = ReclaimableContextSymbol.weak(SYMBOL, c -> new MockObject(counter.incrementAndGet()));
+        final ServletContext context = new MockServletContext();
+
+        Assert.assertNotNull(symbol.get(context));
+        for (int attempt = 0; (attempt < 100) && (symbol.reclaimed() == 0); attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            Assert.assertNotNull(symbol.get(context));
+        }
+
+        Assert.assertEquals(symbol.reclaimed(), 1);
+        Assert.assertEquals(symbol.computed(), 2);
+    }
+
+    /**
+     * Tests that a foreign attribute value is not replaced.
+     */
+    @Test
+    public void testForeignValue() {
+        final ReclaimableContextSymbol<MockObject> symbol = ReclaimableContextSymbol.soft(SYMBOL, c -> new MockObject("value"));
+        final ServletContext context = new MockServletContext();
+        context.setAttribute("mock", "foreign");
+
+        Assert.expectThrows(IllegalStateException.class, () -> symbol.get(context));
+        Assert.assertEquals(context.getAttribute("mock"), "foreign");
+    }
+}
@@ -16,6 +16,8 @@
 
 package net.yetamine.sova.servlet;
 
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import javax.servlet.ServletContext;
@@ -234,4 +236,70 @@ public final class TestServletContextSymbol {
         Assert.assertEquals(new ServletContextSymbol<>("missing", adaptation).supply(m, () -> i), i);
         Assert.assertEquals(m.getAttribute("missing"), i);
     }
+
+    /**
+     * Tests that a value that could not be adapted is not adapted again.
+     *
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testRejected() throws InterruptedException {
+        final AtomicInteger adaptations = new AtomicInteger();
+        final MockObject fallback = new MockObject("fallback");
+        final AdaptationPipeline<MockObject> pipeline = AdaptationPipeline.of(MockObject.class).filter(o -> {
+            adaptations.incrementAndGet();
+            return INTEGER_VALUE.equals(o.value());
+        }).withFallback(fallback);
+
+        final ServletContextSymbol<MockObject> symbol = new ServletContextSymbol<>("mock", pipeline);
+        final ServletContext m = new MockServletContext();
+        m.setAttribute("mock", new MockObject(STRING_VALUE));
+
+        Assert.assertNull(symbol.get(m));
+        Assert.assertEquals(adaptations.get(), 1);
+        Assert.assertNull(symbol.get(m));
+        Assert.assertEquals(symbol.give(m), fallback);
+        Assert.assertFalse(symbol.find(m).isPresent());
+        Assert.assertFalse(symbol.yield(m).isPresent());
+        Assert.assertEquals(symbol.yield(m).fallback().get(), fallback);
+        Assert.assertFalse(symbol.yieldInto(m, new ResultHolder<>()));
+        Assert.assertFalse(symbol.have(m).isPresent());
+        Assert.assertEquals(adaptations.get(), 1);
+
+        // Replacing the value invalidates the cache
+        final MockObject valid = new MockObject(INTEGER_VALUE);
+        m.setAttribute("mock", valid);
+        Assert.assertSame(symbol.get(m), valid);
+        Assert.assertEquals(adaptations.get(), 2);
+
+        m.setAttribute("mock", new MockObject(STRING_VALUE));
+        Assert.assertNull(symbol.get(m));
+        Assert.assertEquals(adaptations.get(), 3);
+
+        // The symbol must not keep the rejected value reachable
+        final WeakReference<Object> probe = new WeakReference<>(m.getAttribute("mock"));
+        m.removeAttribute("mock");
+        for (int attempt = 0; (attempt < 100) && (probe.get() != null); attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertNull(probe.get());
+    }
+
+    /**
+     * Tests that the operations have the signatures with the context type, so
+     * that the code compiled against them links.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testSignatures() throws Exception {
+        Assert.assertEquals(ServletContextSymbol.class.getMethod("get", ServletContext.class).getReturnType(), Object.class);
+        ServletContextSymbol.class.getMethod("pull", ServletContext.class);
+        ServletContextSymbol.class.getMethod("put", ServletContext.class, Object.class);
+        ServletContextSymbol.class.getMethod("supply", ServletContext.class, Supplier.class);
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ServletSessionSymbol}.
+ */
+public final class TestServletSessionSymbol {
+
+    /**
+     * Tests the basic operations.
+     */
+    @Test
+    public void testOperations() {
+        final ServletSessionSymbol<Integer> symbol = new ServletSessionSymbol<>("integer", Integer.class);
+        final MockHttpSession session = new MockHttpSession();
+
+        Assert.assertNull(symbol.get(session));
+        Assert.assertEquals(symbol.supply(session, () -> 1), Integer.valueOf(1));
+        Assert.assertEquals(session.getAttribute("integer"), 1);
+        symbol.let(session, "string");
+        Assert.assertNull(session.getAttribute("integer"));
+        symbol.put(session, 2);
+        Assert.assertEquals(symbol.find(session).get(), Integer.valueOf(2));
+        symbol.remove(session);
+        Assert.assertNull(symbol.pull(session));
+
+        Assert.assertEquals(symbol, new ServletSessionSymbol<>("integer", Integer.class));
+        Assert.assertNotEquals(symbol, new ServletRequestSymbol<>("integer", Integer.class));
+    }
+}
@@ -133,4 +133,48 @@ public final class TestServletSymbol {
         Assert.assertNull(r3.get());
         Assert.assertEquals(r3.fallback().get(), i);
     }
+
+    /**
+     * Tests {@link ServletSymbol#yieldInto(ServletRequest, ResultHolder)}.
+     */
+    @Test
+    public void testYieldInto() {
+        final ResultHolder<Object> holder = new ResultHolder<>();
+
+        Assert.assertTrue(new ServletSymbol<>("integer", Downcasting.to(Integer.class)).yieldInto(DATA, holder));
+        Assert.assertEquals(holder.argument(), INTEGER_VALUE);
+        Assert.assertEquals(holder.get(), INTEGER_VALUE);
+
+        Assert.assertTrue(new ServletSymbol<>("mock", Downcasting.to(MockObject.class)).yieldInto(DATA, holder));
+        Assert.assertEquals(holder.argument(), MOCK_VALUE);
+        Assert.assertEquals(holder.get(), MOCK_VALUE);
+
+        Assert.assertFalse(new ServletSymbol<>("string", Downcasting.to(Integer.class)).yieldInto(DATA, holder));
+        Assert.assertEquals(holder.argument(), STRING_VALUE);
+        Assert.assertFalse(holder.isPresent());
+
+        Assert.assertFalse(new ServletSymbol<>("missing", Downcasting.to(Integer.class)).yieldInto(DATA, holder));
+        Assert.assertNull(holder.argument());
+        Assert.assertNull(holder.get());
+    }
+
+    /**
+     * Tests that {@link ServletSymbol#yieldInto(ServletRequest, ResultHolder)}
+     * agrees with {@link ServletSymbol#yield(ServletRequest)} when both the
+     * request and the context have values that could not be adapted.
+     */
+    @Test
+    public void testYieldIntoNonAdaptable() {
+        final ServletContext context = new MockServletContext();
+        context.setAttribute("both", MOCK_VALUE);
+        final ServletRequest request = new MockServletRequest().setServletContext(context);
+        request.setAttribute("both", STRING_VALUE);
+
+        final ServletSymbol<Integer> symbol = new ServletSymbol<>("both", Downcasting.to(Integer.class));
+        final ResultHolder<Integer> holder = new ResultHolder<>();
+        Assert.assertFalse(symbol.yieldInto(request, holder));
+        Assert.assertFalse(holder.isPresent());
+        Assert.assertEquals(holder.argument(), STRING_VALUE);
+        Assert.assertEquals(holder.argument(), symbol.yield(request).argument());
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link StoreSymbol}.
+ */
+public final class TestStoreSymbol {
+
+    /**
+     * Tests {@link StoreSymbol} with {@link AttributeScope#map()}.
+     */
+    @Test
+    public void testMap() {
+        final StoreSymbol<Map<String, Object>, String> symbol = new StoreSymbol<>("string", AttributeScope.map(), String.class);
+        final Map<String, Object> store = new HashMap<>();
+
+        Assert.assertFalse(symbol.have(store, 1).isPresent());
+        Assert.assertTrue(store.isEmpty());
+        Assert.assertTrue(symbol.have(store, "hello").isPresent());
+        Assert.assertEquals(symbol.get(store), "hello");
+
+        final ResultHolder<String> holder = new ResultHolder<>();
+        store.put("string", 1);
+        Assert.assertFalse(symbol.yieldInto(store, holder));
+        Assert.assertEquals(holder.argument(), 1);
+        Assert.assertFalse(symbol.yield(store).isPresent());
+
+        symbol.push(store, null);
+        Assert.assertTrue(store.isEmpty());
+        Assert.assertEquals(symbol, new StoreSymbol<>("string", AttributeScope.map(), String.class));
+    }
+}
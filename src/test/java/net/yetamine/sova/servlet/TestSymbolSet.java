@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import net.yetamine.sova.Downcasting;
+
+/**
+ * Tests {@link SymbolSet} and the symbol identifiers.
+ */
+public final class TestSymbolSet {
+
+    /**
+     * Tests the identifiers and the equality based on them.
+     */
+    @Test
+    public void testIds() {
+        final ServletRequestSymbol<Integer> a = new ServletRequestSymbol<>("ids.a", Integer.class);
+        final ServletRequestSymbol<String> b = new ServletRequestSymbol<>(new String("ids.a"), String.class);
+        final ServletRequestSymbol<Integer> c = new ServletRequestSymbol<>("ids.c", Integer.class);
+        final ServletContextSymbol<Integer> d = new ServletContextSymbol<>("ids.a", Integer.class);
+
+        Assert.assertEquals(a.id(), b.id());
+        Assert.assertEquals(a.id(), d.id());
+        Assert.assertNotEquals(a.id(), c.id());
+
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+        Assert.assertNotEquals(a, c);
+        Assert.assertNotEquals(a, d);
+
+        final ServletSymbol<Integer> e = new ServletSymbol<>("ids.a", Downcasting.to(Integer.class));
+        final ServletSymbol<Integer> f = new ServletSymbol<>("ids.a", Downcasting.to(Integer.class));
+        Assert.assertEquals(e, f);
+        Assert.assertEquals(e.hashCode(), f.hashCode());
+        Assert.assertNotEquals(e, new ServletSymbol<>("ids.c", Downcasting.to(Integer.class)));
+    }
+
+    /**
+     * Tests the set operations.
+     */
+    @Test
+    public void testSet() {
+        final ServletRequestSymbol<Integer> a = new ServletRequestSymbol<>("set.a", Integer.class);
+        final ServletRequestSymbol<Integer> b = new ServletRequestSymbol<>("set.b", Integer.class);
+        final ServletContextSymbol<Integer> c = new ServletContextSymbol<>("set.c", Integer.class);
+
+        final SymbolSet set = new SymbolSet();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.add(a));
+        Assert.assertFalse(set.add(new ServletRequestSymbol<>("set.a", String.class)));
+        Assert.assertTrue(set.add(c));
+        Assert.assertTrue(set.contains(a));
+        Assert.assertFalse(set.contains(b));
+        Assert.assertEquals(set.size(), 2);
+        Assert.assertEquals(set.attributes(), new LinkedHashSet<>(Arrays.asList("set.a", "set.c")));
+
+        final SymbolSet other = new SymbolSet();
+        other.add(b);
+        set.addAll(other);
+        Assert.assertEquals(set.size(), 3);
+        Assert.assertTrue(set.remove(a));
+        Assert.assertFalse(set.remove(a));
+        Assert.assertEquals(set.attributes(), new LinkedHashSet<>(Arrays.asList("set.b", "set.c")));
+
+        // Symbols of other scopes are the same elements
+        Assert.assertTrue(set.contains(new ServletContextSymbol<>("set.b", Integer.class)));
+        Assert.assertFalse(set.contains(new ServletRequestSymbol<>("set.d", Integer.class)));
+
+        final SymbolSet both = new SymbolSet();
+        both.add(c);
+        both.add(a);
+        both.retainAll(set);
+        Assert.assertEquals(both.attributes(), Collections.singleton("set.c"));
+
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.contains(b));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link TrackedSessionSymbol} and {@link SessionTrackingFilter}.
+ */
+public final class TestTrackedSessionSymbol {
+
+    /** Symbol for an immutable value. */
+    private static final TrackedSessionSymbol<String> USER = new TrackedSessionSymbol<>(new ServletSessionSymbol<>("user", String.class));
+    /** Symbol for a mutable value. */
+    private static final TrackedSessionSymbol<List<?>> CART = new TrackedSessionSymbol<>(new ServletSessionSymbol<>("cart", castList()));
+
+    /**
+     * Tests writing only the dirty attributes.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testTracking() throws Exception {
+        final SessionTrackingFilter filter = new SessionTrackingFilter();
+        final MockHttpSession session = new MockHttpSession();
+        session.setAttribute("user", "alice");
+        session.setAttribute("cart", new ArrayList<>());
+        final int initialWrites = session.writes();
+
+        // Reading and re-setting the same values writes nothing
+        filter.doFilter(request(session), null, (req, res) -> {
+            final HttpServletRequest http = (HttpServletRequest) req;
+            USER.set(http, USER.get(http));
+            CART.set(http, CART.get(http));
+            Assert.assertFalse(USER.isDirty(http));
+        });
+
+        Assert.assertEquals(session.writes(), initialWrites);
+        Assert.assertEquals(filter.skipped(), 2);
+
+        // Changes are deferred until the chain returns
+        filter.doFilter(request(session), null, (req, res) -> {
+            final HttpServletRequest http = (HttpServletRequest) req;
+            USER.set(http, "bob");
+            USER.set(http, "carol");
+            Assert.assertEquals(USER.get(http), "carol");
+            Assert.assertEquals(session.getAttribute("user"), "alice");
+
+            @SuppressWarnings("unchecked")
+            final List<Object> cart = (List<Object>) CART.get(http);
+            cart.add("item");
+            CART.touch(http);
+            Assert.assertTrue(CART.isDirty(http));
+        });
+
+        Assert.assertEquals(session.writes(), initialWrites + 2);
+        Assert.assertEquals(session.getAttribute("user"), "carol");
+        Assert.assertEquals(filter.written(), 2);
+
+        // Removal is a change as well
+        filter.doFilter(request(session), null, (req, res) -> USER.remove((HttpServletRequest) req));
+        Assert.assertNull(session.getAttribute("user"));
+    }
+
+    /**
+     * Tests accessing the session directly without the filter.
+     */
+    @Test
+    public void testUntracked() {
+        final MockHttpSession session = new MockHttpSession();
+        final HttpServletRequest request = (HttpServletRequest) request(session);
+        USER.set(request, "alice");
+        Assert.assertEquals(session.getAttribute("user"), "alice");
+        Assert.assertEquals(USER.get(request), "alice");
+        Assert.assertFalse(USER.isDirty(request));
+    }
+
+    /**
+     * Creates a request with the given session.
+     *
+     * @param session
+     *            the session. It must not be {@code null}.
+     *
+     * @return the request
+     */
+    private static ServletRequest request(MockHttpSession session) {
+        final MockServletRequest attributes = new MockServletRequest();
+        return (ServletRequest) Proxy.newProxyInstance(TestTrackedSessionSymbol.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getSession":
+                    return session;
+
+                case "getAttribute":
+                    return attributes.getAttribute((String) args[0]);
+
+                case "setAttribute":
+                    attributes.setAttribute((String) args[0], args[1]);
+                    return null;
+
+                case "removeAttribute":
+                    attributes.removeAttribute((String) args[0]);
+                    return null;
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Returns the class of lists typed for the symbol.
+     *
+     * @return the class of lists
+     */
+    @SuppressWarnings("unchecked")
+    private static Class<List<?>> castList() {
+        return (Class<List<?>>) (Class<?>) List.class;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Yetamine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.yetamine.sova.servlet;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link WriteBehindRequest} and {@link WriteBehindFilter}.
+ */
+public final class TestWriteBehindRequest {
+
+    /** Symbol for testing. */
+    private static final ServletRequestSymbol<Integer> COUNTER = new ServletRequestSymbol<>("counter", Integer.class);
+
+    /**
+     * Tests buffering the symbol writes.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testBuffering() throws Exception {
+        final List<String> writes = new ArrayList<>();
+        final MockServletRequest attributes = new MockServletRequest();
+        final WriteBehindRequest request = new WriteBehindRequest(request(attributes, writes));
+
+        for (int i = 1; i <= 10; i++) {
+            COUNTER.put(request, i);
+        }
+
+        Assert.assertEquals(COUNTER.get(request), Integer.valueOf(10));
+        Assert.assertEquals(request.buffered(), 1);
+        Assert.assertTrue(writes.isEmpty());
+
+        // Other code and wrappers above see the buffer
+        Assert.assertEquals(request.getAttribute("counter"), 10);
+        Assert.assertEquals(new HttpServletRequestWrapper(request).getAttribute("counter"), 10);
+        request.setAttribute("counter", 11);
+        Assert.assertEquals(COUNTER.get(request), Integer.valueOf(11));
+        Assert.assertTrue(writes.isEmpty());
+
+        // Listing the attributes triggers the flush
+        Assert.assertTrue(Collections.list(request.getAttributeNames()).contains("counter"));
+        Assert.assertEquals(attributes.getAttribute("counter"), 11);
+        Assert.assertEquals(writes.size(), 1);
+
+        // Removal is buffered too
+        COUNTER.let(request, "invalid");
+        Assert.assertNull(COUNTER.get(request));
+        Assert.assertEquals(attributes.getAttribute("counter"), 11);
+
+        // Dispatching flushes
+        request.getRequestDispatcher("/include").include(request, null);
+        Assert.assertNull(attributes.getAttribute("counter"));
+        Assert.assertEquals(writes.size(), 2);
+    }
+
+    /**
+     * Tests {@link WriteBehindFilter}.
+     *
+     * @throws Exception
+     *             if something fails
+     */
+    @Test
+    public void testFilter() throws Exception {
+        final List<String> writes = new ArrayList<>();
+        final MockServletRequest attributes = new MockServletRequest();
+
+        new WriteBehindFilter().doFilter(request(attributes, writes), null, (req, res) -> {
+            Assert.assertTrue(req instanceof WriteBehindRequest);
+            COUNTER.push(req, 1);
+            COUNTER.push(req, 2);
+            Assert.assertTrue(writes.isEmpty());
+        });
+
+        Assert.assertEquals(attributes.getAttribute("counter"), 2);
+        Assert.assertEquals(writes.size(), 1);
+    }
+
+    /**
+     * Creates a request recording the attribute writes.
+     *
+     * @param attributes
+     *            the attribute storage. It must not be {@code null}.
+     * @param writes
+     *            the list of the written attributes. It must not be
+     *            {@code null}.
+     *
+     * @return the request
+     */
+    private static HttpServletRequest request(MockServletRequest attributes, List<String> writes) {
+        return (HttpServletRequest) Proxy.newProxyInstance(TestWriteBehindRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAttribute":
+                    return attributes.getAttribute((String) args[0]);
+
+                case "getAttributeNames":
+                    return attributes.getAttributeNames();
+
+                case "setAttribute":
+                    writes.add((String) args[0]);
+                    attributes.setAttribute((String) args[0], args[1]);
+                    return null;
+
+                case "removeAttribute":
+                    writes.add((String) args[0]);
+                    attributes.removeAttribute((String) args[0]);
+                    return null;
+
+                case "getRequestDispatcher":
+                    return new RequestDispatcher() {
+                        public void forward(ServletRequest request, ServletResponse response) {
+                            // Do nothing
+                        }
+
+                        public void include(ServletRequest request, ServletResponse response) {
+                            // Do nothing
+                        }
+                    };
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}